@@ -0,0 +1,98 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import schwarz.jobs.interview.coupon.configuration.CouponJournalProperties;
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.journal.ApplicationJournal;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+
+/**
+ * Benchmarks the cost of the {@link ApplicationJournal}: one append, and {@link CouponService#apply} on the
+ * in-memory store with and without the journal. The journal writes to a temporary directory and commits
+ * every 10 ms in the background, as configured by default.
+ *
+ * @author manik sharma
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ApplicationJournalBenchmark {
+
+	private BenchmarkBackend backend;
+
+	private Path directory;
+
+	private ApplicationJournal journal;
+
+	private CouponService withoutJournal;
+
+	private CouponService withJournal;
+
+	private String[] codes;
+
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		backend = BenchmarkBackend.start(BenchmarkBackend.MEMORY);
+		directory = Files.createTempDirectory("coupon-journal");
+		final CouponJournalProperties properties = new CouponJournalProperties();
+		properties.setEnabled(true);
+		properties.setDirectory(directory.toString());
+		properties.setSegmentSize(DataSize.ofMegabytes(256));
+		journal = new ApplicationJournal(properties, new SimpleMeterRegistry());
+		journal.start();
+		withoutJournal = backend.newService();
+		withJournal = backend.newService(journal);
+		codes = new String[1024];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = BenchmarkBackend.code(i * 7 % BenchmarkBackend.SEEDED_COUPONS);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		journal.destroy();
+		backend.close();
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public void append() {
+		journal.append(codes[index++ & (codes.length - 1)], 12050, 500, ApplicationOutcome.APPLIED);
+	}
+
+	@Benchmark
+	public Basket applyWithoutJournal() {
+		final Basket basket = Basket.builder().value(new BigDecimal("120.50")).build();
+		return withoutJournal.apply(basket, codes[index++ & (codes.length - 1)]).block();
+	}
+
+	@Benchmark
+	public Basket applyWithJournal() {
+		final Basket basket = Basket.builder().value(new BigDecimal("120.50")).build();
+		return withJournal.apply(basket, codes[index++ & (codes.length - 1)]).block();
+	}
+}
@@ -0,0 +1,217 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.CouponApplication;
+import schwarz.jobs.interview.coupon.configuration.CouponCacheProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponCatalogProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponFilterProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponJournalProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponRedemptionProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponScopeProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponSnapshotProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponStackingProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponValidityProperties;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.repository.CouponStore;
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCodeFilter;
+import schwarz.jobs.interview.coupon.core.services.journal.ApplicationJournal;
+import schwarz.jobs.interview.coupon.core.services.metrics.CouponMetrics;
+import schwarz.jobs.interview.coupon.core.services.redemption.RedemptionCounters;
+import schwarz.jobs.interview.coupon.core.services.scope.CouponScopeIndex;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponSnapshot;
+import schwarz.jobs.interview.coupon.core.services.validity.CouponValidity;
+import schwarz.jobs.interview.coupon.util.Money;
+
+/**
+ * The {@link CouponStore} a benchmark runs against, seeded with {@code bench-00000} ... coupons.
+ * <ul>
+ * <li>{@code memory}: a map standing in for the repository, measures the service alone</li>
+ * <li>{@code h2}: the application context with R2DBC on an in-memory H2 database</li>
+ * <li>{@code snapshot}: the {@code h2} context serving all reads from the coupon snapshot</li>
+ * </ul>
+ *
+ * @author manik sharma
+ */
+final class BenchmarkBackend implements AutoCloseable {
+
+	static final String MEMORY = "memory";
+
+	static final String H2 = "h2";
+
+	static final String SNAPSHOT = "snapshot";
+
+	static final int SEEDED_COUPONS = 10_000;
+
+	private final CouponStore couponStore;
+
+	private final CouponCodeFilter couponCodeFilter;
+
+	private final CouponSnapshot couponSnapshot;
+
+	private final ConfigurableApplicationContext context;
+
+	private BenchmarkBackend(final CouponStore couponStore, final CouponCodeFilter couponCodeFilter,
+			final CouponSnapshot couponSnapshot, final ConfigurableApplicationContext context) {
+		this.couponStore = couponStore;
+		this.couponCodeFilter = couponCodeFilter;
+		this.couponSnapshot = couponSnapshot;
+		this.context = context;
+	}
+
+	static BenchmarkBackend start(final String store) {
+		final List<Coupon> coupons = new ArrayList<>(SEEDED_COUPONS);
+		for (int i = 0; i < SEEDED_COUPONS; i++) {
+			coupons.add(Coupon.builder().code(code(i)).discount(BigDecimal.valueOf(i % 50 + 1, 0))
+					.minBasketValue(BigDecimal.valueOf(i % 100, 0)).build());
+		}
+		if (MEMORY.equals(store)) {
+			final InMemoryCouponStore couponStore = new InMemoryCouponStore();
+			coupons.forEach(couponStore::save);
+			final CouponCodeFilter couponCodeFilter = new CouponCodeFilter(new CouponFilterProperties(), null, null,
+					new SimpleMeterRegistry());
+			couponCodeFilter.rebuild(coupons.stream().map(Coupon::getCode).collect(Collectors.toList()));
+			return new BenchmarkBackend(couponStore, couponCodeFilter, disabledSnapshot(), null);
+		}
+		if (H2.equals(store) || SNAPSHOT.equals(store)) {
+			final ConfigurableApplicationContext context = new SpringApplicationBuilder(CouponApplication.class)
+					.web(WebApplicationType.NONE)
+					.properties("spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+							"coupon.r2dbc.url=r2dbc:h2:mem:///benchmark",
+							"coupon.snapshot.enabled=" + SNAPSHOT.equals(store))
+					.run();
+			final List<Object[]> rows = new ArrayList<>(coupons.size());
+			coupons.forEach(coupon -> rows.add(
+					new Object[] { coupon.getCode(), coupon.getDiscount(), coupon.getMinBasketValue() }));
+			context.getBean(JdbcTemplate.class)
+					.batchUpdate("INSERT INTO coupons (code, discount, min_basket_value) VALUES (?, ?, ?)", rows);
+			final CouponCodeFilter couponCodeFilter = context.getBean(CouponCodeFilter.class);
+			couponCodeFilter.rebuild().block();
+			final CouponSnapshot couponSnapshot = context.getBean(CouponSnapshot.class);
+			if (SNAPSHOT.equals(store)) {
+				couponSnapshot.refresh().block();
+			}
+			return new BenchmarkBackend(context.getBean(CouponStore.class), couponCodeFilter, couponSnapshot, context);
+		}
+		throw new IllegalArgumentException("Unknown store: " + store);
+	}
+
+	static String code(final int index) {
+		return String.format("bench-%05d", index);
+	}
+
+	/**
+	 * @return a service with its own empty cache, so the first lookups go to the store
+	 */
+	CouponService newService() {
+		return newService(new ApplicationJournal(new CouponJournalProperties(), new SimpleMeterRegistry()));
+	}
+
+	/**
+	 * @return a service with its own empty cache, appending to the given journal
+	 */
+	CouponService newService(final ApplicationJournal applicationJournal) {
+		final CouponCacheProperties properties = new CouponCacheProperties();
+		properties.setMaximumSize(SEEDED_COUPONS * 2L);
+		properties.setExpireAfterWrite(Duration.ofHours(1));
+		final CouponCache couponCache = new CouponCache(properties, new SimpleMeterRegistry());
+		final CatalogVersion catalogVersion = new CatalogVersion(new CouponCatalogProperties(), null, null);
+		return new CouponService(couponStore, couponCache, new CouponMetrics(new SimpleMeterRegistry()), couponCodeFilter,
+				couponSnapshot, new CouponStackingProperties(),
+				// the seeded coupons have no redemption limit and never reach the repository
+				new RedemptionCounters(new CouponRedemptionProperties(), null, null, new SimpleMeterRegistry()),
+				applicationJournal, catalogVersion,
+				new CouponValidity(new CouponValidityProperties(), couponCache, catalogVersion, new SimpleMeterRegistry()),
+				// no benchmark coupon is scoped
+				new CouponScopeIndex(new CouponScopeProperties(), null, null, new SimpleMeterRegistry()));
+	}
+
+	CouponSnapshot couponSnapshot() {
+		return couponSnapshot;
+	}
+
+	/**
+	 * @return the template of the {@code h2} and {@code snapshot} backends
+	 */
+	JdbcTemplate jdbcTemplate() {
+		return context.getBean(JdbcTemplate.class);
+	}
+
+	private static CouponSnapshot disabledSnapshot() {
+		final CouponValidity couponValidity = new CouponValidity(new CouponValidityProperties(),
+				new CouponCache(new CouponCacheProperties(), new SimpleMeterRegistry()),
+				new CatalogVersion(new CouponCatalogProperties(), null, null), new SimpleMeterRegistry());
+		return new CouponSnapshot(new CouponSnapshotProperties(), null, null, couponValidity, new SimpleMeterRegistry());
+	}
+
+	@Override
+	public void close() {
+		if (context != null) {
+			context.close();
+		}
+	}
+
+	private static final class InMemoryCouponStore implements CouponStore {
+
+		private final Map<String, Coupon> coupons = new ConcurrentHashMap<>();
+
+		private final AtomicLong ids = new AtomicLong();
+
+		@Override
+		public Mono<Coupon> findByCode(final String code) {
+			return Mono.justOrEmpty(coupons.get(code));
+		}
+
+		@Override
+		public Flux<Coupon> findByCodeIn(final Collection<String> codes) {
+			return Flux.fromIterable(codes).handle((code, sink) -> {
+				final Coupon coupon = coupons.get(code);
+				if (coupon != null) {
+					sink.next(coupon);
+				}
+			});
+		}
+
+		@Override
+		public Mono<Coupon> save(final Coupon coupon) {
+			if (coupon.getId() == null) {
+				coupon.setId(ids.incrementAndGet());
+			}
+			coupons.put(coupon.getCode(), coupon);
+			return Mono.just(coupon);
+		}
+
+		@Override
+		public Flux<Coupon> findEligible(final BigDecimal basketValue, final Instant now, final int limit,
+				final boolean bestFirst) {
+			final long basketValueCents = Money.toCents(basketValue);
+			return Flux.fromStream(coupons.values().stream()
+					.filter(coupon -> coupon.getMinBasketValueCents() <= basketValueCents
+							&& !coupon.isScoped() && coupon.isValidAt(now.toEpochMilli()))
+					.sorted(bestFirst ? Comparator.comparingLong(Coupon::getDiscountCents).reversed()
+							: Comparator.comparingLong(Coupon::getMinBasketValueCents))
+					.limit(limit));
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.stacking.CombinationSearch;
+import schwarz.jobs.interview.coupon.core.services.stacking.CombinationSearch.Combination;
+
+/**
+ * Benchmarks the search of the best coupon combination alone, without lookups.
+ * <p>
+ * Every tenth candidate is exclusive, the basket value is about the sum of the three largest discounts,
+ * so the cap decides between the combinations.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CombinationSearchBenchmark {
+
+	@Param({ "10", "50" })
+	public int codes;
+
+	@Param({ "3", "10" })
+	public int maxCoupons;
+
+	private List<Coupon> candidates;
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(42);
+		candidates = new ArrayList<>(codes);
+		for (int i = 0; i < codes; i++) {
+			candidates.add(Coupon.builder().code("bench-" + i).discount(BigDecimal.valueOf(random.nextInt(5000), 2))
+					.minBasketValue(BigDecimal.ZERO).exclusive(i % 10 == 9).build());
+		}
+	}
+
+	@Benchmark
+	public Combination best() {
+		return CombinationSearch.best(12_000, candidates, maxCoupons);
+	}
+}
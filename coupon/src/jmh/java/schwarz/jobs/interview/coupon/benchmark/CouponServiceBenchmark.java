@@ -0,0 +1,114 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.MultiApplicationResultDTO;
+
+/**
+ * Benchmarks {@link CouponService#apply}, {@link CouponService#applyMulti} and {@link CouponService#createCoupon}
+ * against the in-memory and the H2-backed store, see {@link BenchmarkBackend}.
+ * <p>
+ * {@code apply} runs with a warm cache, the store is only read on the first call of each code.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CouponServiceBenchmark {
+
+	@Param({ BenchmarkBackend.MEMORY, BenchmarkBackend.H2, BenchmarkBackend.SNAPSHOT })
+	public String store;
+
+	private BenchmarkBackend backend;
+
+	private CouponService couponService;
+
+	private String[] codes;
+
+	private final CouponDTO validCoupon = CouponDTO.builder().code("Bench-Create").discount(new BigDecimal("5.00"))
+			.minBasketValue(new BigDecimal("20.00")).build();
+
+	private final CouponDTO invalidCoupon = CouponDTO.builder().code("bench-invalid").discount(new BigDecimal("-1"))
+			.minBasketValue(BigDecimal.ZERO).build();
+
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		backend = BenchmarkBackend.start(store);
+		couponService = backend.newService();
+		codes = new String[1024];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = BenchmarkBackend.code(i * 7 % BenchmarkBackend.SEEDED_COUPONS);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		backend.close();
+	}
+
+	@Benchmark
+	public Basket apply() {
+		final Basket basket = Basket.builder().value(new BigDecimal("120.50")).build();
+		return couponService.apply(basket, codes[index++ & (codes.length - 1)]).block();
+	}
+
+	/**
+	 * The best combination of ten codes, resolved with one lookup.
+	 */
+	@Benchmark
+	public MultiApplicationResultDTO applyMultiTenCodes() {
+		final Basket basket = Basket.builder().value(new BigDecimal("120.50")).build();
+		final int from = index++ & (codes.length - 16);
+		final List<String> tenCodes = Arrays.asList(codes).subList(from, from + 10);
+		return couponService.applyMulti(basket, tenCodes).block();
+	}
+
+	/**
+	 * A mistyped code, rejected by the code filter unless it is a false positive.
+	 */
+	@Benchmark
+	public Basket applyUnknownCode() {
+		final Basket basket = Basket.builder().value(new BigDecimal("120.50")).build();
+		return couponService.apply(basket, "unknown-" + (index++ & 0xFFFF)).block();
+	}
+
+	@Benchmark
+	public Coupon createCoupon() {
+		return couponService.createCoupon(validCoupon).block();
+	}
+
+	/**
+	 * Rejected by the input validation before the store is called.
+	 */
+	@Benchmark
+	public Throwable createCouponValidation() {
+		try {
+			couponService.createCoupon(invalidCoupon).block();
+			throw new IllegalStateException("Invalid coupon was accepted");
+		} catch (IllegalArgumentException e) {
+			return e;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jol.info.GraphLayout;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponSnapshot;
+
+/**
+ * Benchmarks the lookups and the delta refresh of the {@link CouponSnapshot}.
+ * <p>
+ * {@code refreshOneChange} updates one row and swaps in a new snapshot, {@code refreshUnchanged} only reads
+ * the rows of the refresh overlap. The setup prints the heap per coupon measured by JOL next to the
+ * estimate published as {@code coupon.snapshot.bytes}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CouponSnapshotBenchmark {
+
+	private BenchmarkBackend backend;
+
+	private CouponSnapshot couponSnapshot;
+
+	private String[] codes;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		backend = BenchmarkBackend.start(BenchmarkBackend.SNAPSHOT);
+		couponSnapshot = backend.couponSnapshot();
+		codes = new String[1024];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = BenchmarkBackend.code(i * 7 % BenchmarkBackend.SEEDED_COUPONS);
+		}
+		// the same rows the snapshot holds, in the same kind of map
+		final Map<String, Coupon> coupons = new HashMap<>();
+		backend.jdbcTemplate().query("SELECT id, code, discount, min_basket_value FROM coupons",
+				resultSet -> {
+					coupons.put(resultSet.getString("code"), Coupon.builder().id(resultSet.getLong("id"))
+							.code(resultSet.getString("code")).discount(resultSet.getBigDecimal("discount"))
+							.minBasketValue(resultSet.getBigDecimal("min_basket_value")).build());
+				});
+		final long measured = GraphLayout.parseInstance(Map.copyOf(coupons)).totalSize();
+		System.out.printf("%nSnapshot of %d coupons: %d bytes per coupon measured, %d bytes per coupon estimated%n",
+				coupons.size(), measured / coupons.size(), couponSnapshot.estimatedBytes() / couponSnapshot.size());
+	}
+
+	@TearDown
+	public void tearDown() {
+		backend.close();
+	}
+
+	@Benchmark
+	public Coupon get() {
+		return couponSnapshot.get(codes[index++ & (codes.length - 1)]);
+	}
+
+	@Benchmark
+	public void refreshUnchanged() {
+		couponSnapshot.refresh().block();
+	}
+
+	@Benchmark
+	public void refreshOneChange() {
+		backend.jdbcTemplate().update("UPDATE coupons SET discount = MOD(discount + 1, 100) WHERE code = ?",
+				codes[index++ & (codes.length - 1)]);
+		couponSnapshot.refresh().block();
+	}
+}
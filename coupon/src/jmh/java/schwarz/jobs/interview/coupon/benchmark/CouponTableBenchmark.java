@@ -0,0 +1,74 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jol.info.GraphLayout;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponTable;
+import schwarz.jobs.interview.coupon.util.Money;
+
+/**
+ * Compares the lookups and the footprint of the {@link CouponTable} layouts at 1M and 10M coupons.
+ * <p>
+ * The setup prints the estimated heap per coupon and, up to 1M coupons, the heap measured by JOL.
+ * Every coupon has its own amounts like rows read from the database; the {@code objects} layout
+ * at 10M coupons needs about 4 GB of heap.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(jvmArgsAppend = "-Xmx4g")
+public class CouponTableBenchmark {
+
+	@Param({ CouponTable.OBJECTS, CouponTable.COMPACT })
+	public String layout;
+
+	@Param({ "1000000", "10000000" })
+	public int size;
+
+	private CouponTable table;
+
+	private String[] codes;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		final CouponTable.Builder builder = CouponTable.builder(layout, size);
+		for (int i = 0; i < size; i++) {
+			builder.add(Coupon.builder().id((long) i).code(code(i)).discount(Money.toBigDecimal(100 + i % 5_000))
+					.minBasketValue(Money.toBigDecimal(i % 10_000)).build());
+		}
+		table = builder.build();
+		codes = new String[1024];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = code((int) ((i * 2_654_435_761L) % size));
+		}
+		final String measured = size > 1_000_000 ? "-"
+				: String.valueOf(GraphLayout.parseInstance(table).totalSize() / size);
+		System.out.printf("%n%s table of %d coupons: %d bytes per coupon estimated, %s bytes per coupon measured%n",
+				layout, size, table.estimatedBytes() / size, measured);
+	}
+
+	@Benchmark
+	public Coupon get() {
+		return table.get(codes[index++ & (codes.length - 1)]);
+	}
+
+	private static String code(final int index) {
+		return "coupon-" + index;
+	}
+}
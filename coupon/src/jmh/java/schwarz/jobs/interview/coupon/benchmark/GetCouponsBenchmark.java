@@ -0,0 +1,113 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import schwarz.jobs.interview.coupon.configuration.CouponCatalogProperties;
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.web.CouponJsonCache;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+
+/**
+ * Benchmarks {@link CouponService#getCoupons} for 1, 100 and 10k codes
+ * against the in-memory and the H2-backed store, see {@link BenchmarkBackend}, and the JSON of the lookup
+ * endpoint written by Jackson and copied from the {@link CouponJsonCache}.
+ * <p>
+ * With {@code cache=cold} every call uses a new service with an empty cache and an empty {@link CouponJsonCache},
+ * so all codes are loaded from the store.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GetCouponsBenchmark {
+
+	@Param({ BenchmarkBackend.MEMORY, BenchmarkBackend.H2, BenchmarkBackend.SNAPSHOT })
+	public String store;
+
+	@Param({ "1", "100", "10000" })
+	public int codeCount;
+
+	@Param({ "warm", "cold" })
+	public String cache;
+
+	private BenchmarkBackend backend;
+
+	private CouponService couponService;
+
+	private List<String> codes;
+
+	private ObjectMapper objectMapper;
+
+	private CouponJsonCache couponJsonCache;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		backend = BenchmarkBackend.start(store);
+		couponService = backend.newService();
+		codes = new ArrayList<>(codeCount);
+		for (int i = 0; i < codeCount; i++) {
+			codes.add(BenchmarkBackend.code(i));
+		}
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		couponJsonCache = newJsonCache();
+	}
+
+	private CouponJsonCache newJsonCache() {
+		final CouponCatalogProperties properties = new CouponCatalogProperties();
+		return new CouponJsonCache(new CatalogVersion(properties, null, null), Jackson2ObjectMapperBuilder.json(), properties,
+				new SimpleMeterRegistry());
+	}
+
+	/**
+	 * Runs once per call, the calls take at least microseconds so the setup does not distort the score.
+	 */
+	@Setup(Level.Invocation)
+	public void resetCache() {
+		if ("cold".equals(cache)) {
+			couponService = backend.newService();
+			couponJsonCache = newJsonCache();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		backend.close();
+	}
+
+	@Benchmark
+	public List<CouponDTO> getCoupons() {
+		return couponService.getCoupons(codes).collectList().block();
+	}
+
+	@Benchmark
+	public byte[] getCouponsJson() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(couponService.getCoupons(codes).collectList().block());
+	}
+
+	@Benchmark
+	public byte[] getSerializedCoupons() {
+		return couponJsonCache.current().serialize(CouponJsonCache.Format.JSON, codes, couponService::getCoupons).block();
+	}
+}
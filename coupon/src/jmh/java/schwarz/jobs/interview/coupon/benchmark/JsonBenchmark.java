@@ -0,0 +1,115 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationResultDTO;
+
+/**
+ * Benchmarks the (de)serialization of the apply and bulk apply request and response bodies in JSON and Smile
+ * with an {@link ObjectMapper} configured like the one of the application,
+ * which reads the Lombok DTOs through their constructor parameter names.
+ * <p>
+ * The score is the server CPU time per request spent in the codec, the bytes on the wire of every body are
+ * printed once per format.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonBenchmark {
+
+	private static final int BULK_SIZE = 100;
+
+	@Param({ "json", "smile" })
+	public String format;
+
+	private ObjectReader requestReader;
+
+	private ObjectWriter basketWriter;
+
+	private ObjectReader bulkReader;
+
+	private ObjectWriter bulkWriter;
+
+	private byte[] request;
+
+	private Basket basket;
+
+	private byte[] bulkRequest;
+
+	private List<ApplicationResultDTO> bulkResults;
+
+	@Setup
+	public void setup() throws IOException {
+		final Jackson2ObjectMapperBuilder builder = "smile".equals(format) ? Jackson2ObjectMapperBuilder.smile()
+				: Jackson2ObjectMapperBuilder.json();
+		final ObjectMapper objectMapper = builder.modulesToInstall(new ParameterNamesModule()).build();
+		requestReader = objectMapper.readerFor(ApplicationRequestDTO.class);
+		basketWriter = objectMapper.writerFor(Basket.class);
+		bulkReader = objectMapper.readerFor(new TypeReference<List<ApplicationRequestDTO>>() { });
+		bulkWriter = objectMapper.writerFor(new TypeReference<List<ApplicationResultDTO>>() { });
+		basket = Basket.builder().value(new BigDecimal("120.50")).appliedDiscount(new BigDecimal("10.00"))
+				.applicationSuccessful(true).build();
+		request = objectMapper.writeValueAsBytes(ApplicationRequestDTO.builder().code("bench-00042")
+				.basket(Basket.builder().value(new BigDecimal("120.50")).build()).build());
+		final List<ApplicationRequestDTO> requests = new ArrayList<>(BULK_SIZE);
+		bulkResults = new ArrayList<>(BULK_SIZE);
+		for (int i = 0; i < BULK_SIZE; i++) {
+			final String code = BenchmarkBackend.code(i);
+			requests.add(ApplicationRequestDTO.builder().code(code)
+					.basket(Basket.builder().value(BigDecimal.valueOf(10_000 + i, 2)).build()).build());
+			bulkResults.add(ApplicationResultDTO.builder().code(code).outcome(ApplicationOutcome.APPLIED)
+					.basket(Basket.builder().value(BigDecimal.valueOf(10_000 + i, 2)).appliedDiscount(new BigDecimal("5.00"))
+							.applicationSuccessful(true).build()).build());
+		}
+		bulkRequest = objectMapper.writeValueAsBytes(requests);
+		System.out.printf("%n%s bytes: apply request %d, basket %d, bulk request of %d %d, bulk results %d%n", format,
+				request.length, basketWriter.writeValueAsBytes(basket).length, BULK_SIZE, bulkRequest.length,
+				bulkWriter.writeValueAsBytes(bulkResults).length);
+	}
+
+	@Benchmark
+	public ApplicationRequestDTO readApplicationRequest() throws IOException {
+		return requestReader.readValue(request);
+	}
+
+	@Benchmark
+	public byte[] writeBasket() throws IOException {
+		return basketWriter.writeValueAsBytes(basket);
+	}
+
+	@Benchmark
+	public List<ApplicationRequestDTO> readBulkRequest() throws IOException {
+		return bulkReader.readValue(bulkRequest);
+	}
+
+	@Benchmark
+	public byte[] writeBulkResults() throws IOException {
+		return bulkWriter.writeValueAsBytes(bulkResults);
+	}
+}
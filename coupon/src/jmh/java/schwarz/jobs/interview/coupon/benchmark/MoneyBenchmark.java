@@ -0,0 +1,70 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.util.Money;
+
+/**
+ * Compares the discount evaluation on {@link BigDecimal} with the fixed-point {@link Money} cents.
+ * <p>
+ * Each operation checks a basket against the coupon and computes the payable amount of the basket.
+ * The basket value arrives as {@link BigDecimal} from JSON, so the cents variants include its conversion.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MoneyBenchmark {
+
+	private static final int SIZE = 1024;
+
+	private final BigDecimal[] basketValues = new BigDecimal[SIZE];
+
+	private Coupon coupon;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		for (int i = 0; i < SIZE; i++) {
+			basketValues[i] = BigDecimal.valueOf(ThreadLocalRandom.current().nextLong(0, 100_000), 2);
+		}
+		coupon = Coupon.builder().code("bench").discount(new BigDecimal("10.00"))
+				.minBasketValue(new BigDecimal("50.00")).build();
+	}
+
+	@Benchmark
+	public BigDecimal bigDecimal() {
+		final BigDecimal value = basketValues[index++ & (SIZE - 1)];
+		if (value.signum() <= 0 || value.compareTo(coupon.getMinBasketValue()) < 0) {
+			return value;
+		}
+		final BigDecimal payable = value.subtract(coupon.getDiscount());
+		return payable.signum() < 0 ? BigDecimal.ZERO : payable;
+	}
+
+	@Benchmark
+	public long cents() {
+		final long value = Money.toCents(basketValues[index++ & (SIZE - 1)]);
+		if (value <= 0 || value < coupon.getMinBasketValueCents()) {
+			return value;
+		}
+		return Math.max(0, value - coupon.getDiscountCents());
+	}
+
+	@Benchmark
+	public BigDecimal centsToBigDecimal() {
+		return Money.toBigDecimal(cents());
+	}
+}
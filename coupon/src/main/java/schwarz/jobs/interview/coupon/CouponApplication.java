@@ -2,8 +2,10 @@ package schwarz.jobs.interview.coupon;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class CouponApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,56 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.util.List;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import schwarz.jobs.interview.coupon.util.Constants;
+
+/**
+ * Registers newline delimited JSON ({@code application/x-ndjson}) with the Jackson codecs,
+ * so that request bodies are decoded and responses are written one JSON value per line.
+ * <p>
+ * Smile ({@code application/x-jackson-smile}), the binary encoding of JSON, is read and written with a mapper
+ * configured like the JSON one, callers choose it with the {@code Content-Type} and {@code Accept} headers.
+ * </p>
+ */
+@Configuration
+public class CodecConfiguration {
+
+	@Bean
+	@Order(1)
+	public CodecCustomizer ndjsonCodecCustomizer(final ObjectMapper objectMapper) {
+		return configurer -> {
+			final Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper, MediaType.APPLICATION_JSON,
+					new MediaType("application", "*+json"), Constants.APPLICATION_NDJSON);
+			encoder.setStreamingMediaTypes(List.of(MediaType.APPLICATION_STREAM_JSON, Constants.APPLICATION_NDJSON));
+			configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+			configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper,
+					MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), Constants.APPLICATION_NDJSON));
+		};
+	}
+
+	@Bean
+	@Order(2)
+	public CodecCustomizer smileCodecCustomizer(final Jackson2ObjectMapperBuilder objectMapperBuilder) {
+		final ObjectMapper smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+		// without explicit types the codecs would claim the JSON ones
+		final MediaType[] mediaTypes = { Constants.APPLICATION_SMILE, new MediaType("application", "*+x-jackson-smile") };
+		return configurer -> {
+			configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper, mediaTypes));
+			configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, mediaTypes));
+		};
+	}
+}
@@ -0,0 +1,31 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the in-memory coupon cache.
+ * <p>
+ * Bound from the {@code coupon.cache} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.cache")
+public class CouponCacheProperties {
+
+	/**
+	 * Maximum number of coupons kept in the cache before entries are evicted.
+	 */
+	private long maximumSize = 10_000;
+
+	/**
+	 * Time after which a cached coupon is reloaded from the repository.
+	 */
+	private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+}
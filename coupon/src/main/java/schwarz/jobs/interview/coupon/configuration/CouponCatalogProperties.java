@@ -0,0 +1,31 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties of the catalog version and the serialized coupons of the lookup endpoint.
+ * <p>
+ * Bound from the {@code coupon.catalog} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.catalog")
+public class CouponCatalogProperties {
+
+	/**
+	 * Interval of checking the coupons table for writes of other instances.
+	 */
+	private Duration pollInterval = Duration.ofSeconds(5);
+
+	/**
+	 * Maximum number of codes whose JSON is kept serialized.
+	 */
+	private long maximumSerializedCoupons = 100_000;
+
+}
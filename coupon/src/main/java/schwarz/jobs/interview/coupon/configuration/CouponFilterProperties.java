@@ -0,0 +1,47 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Configuration properties of the Bloom filter over the known coupon codes.
+ * <p>
+ * Bound from the {@code coupon.filter} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.filter")
+public class CouponFilterProperties {
+
+	/**
+	 * Reject unknown codes with the filter before the cache and the store are asked.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * Probability that an unknown code passes the filter and is looked up anyway.
+	 */
+	private double falsePositiveRate = 0.01;
+
+	/**
+	 * Minimum number of codes the filter is sized for, it grows with the table on every rebuild.
+	 */
+	private long expectedCodes = 1_000_000;
+
+	/**
+	 * Upper bound of the filter size, the false positive rate rises when the budget is too small.
+	 */
+	private DataSize maxMemory = DataSize.ofMegabytes(16);
+
+	/**
+	 * Time between two rebuilds from the coupons table, which also drop codes that no longer exist.
+	 */
+	private Duration rebuildInterval = Duration.ofHours(1);
+
+}
@@ -0,0 +1,42 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Configuration properties of the journal of applied coupons.
+ * <p>
+ * Bound from the {@code coupon.journal} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.journal")
+public class CouponJournalProperties {
+
+	/**
+	 * Append every coupon application to the journal.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Directory of the journal segments, used by one instance at a time.
+	 */
+	private String directory = "journal";
+
+	/**
+	 * Size of one memory-mapped segment, a full segment is closed and a new one started.
+	 */
+	private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+	/**
+	 * Interval of forcing the appended records to disk, the records an operating system crash loses at most.
+	 */
+	private Duration commitInterval = Duration.ofMillis(10);
+
+}
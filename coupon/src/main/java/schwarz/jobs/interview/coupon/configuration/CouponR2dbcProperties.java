@@ -0,0 +1,28 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Connection settings of the non-blocking R2DBC persistence path.
+ * <p>
+ * Bound from the {@code coupon.r2dbc} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.r2dbc")
+public class CouponR2dbcProperties {
+
+	/**
+	 * R2DBC url of the coupon database, e.g. {@code r2dbc:h2:mem:///testdb}.
+	 */
+	private String url;
+
+	private String username;
+
+	private String password;
+
+}
@@ -0,0 +1,36 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties of the redemption counters of coupons with a redemption limit.
+ * <p>
+ * Bound from the {@code coupon.redemption} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.redemption")
+public class CouponRedemptionProperties {
+
+	/**
+	 * Interval of the batch writes of new redemptions, the redemptions a crash loses at most.
+	 */
+	private Duration flushInterval = Duration.ofSeconds(1);
+
+	/**
+	 * Time without committed redemptions after which the counter of a coupon is dropped, loaded again on its next apply.
+	 */
+	private Duration idleTimeout = Duration.ofMinutes(10);
+
+	/**
+	 * Maximum number of stripes of one counter, 0 for the number of available processors.
+	 */
+	private int maxStripes = 0;
+
+}
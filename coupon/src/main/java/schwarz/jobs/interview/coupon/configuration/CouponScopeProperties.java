@@ -0,0 +1,27 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties of the index of the coupons limited to SKUs or categories.
+ * <p>
+ * Bound from the {@code coupon.scope} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.scope")
+public class CouponScopeProperties {
+
+	/**
+	 * Time between two rebuilds from the coupons table, which pick up the coupons scoped by other instances
+	 * and drop deleted ones.
+	 */
+	private Duration rebuildInterval = Duration.ofMinutes(5);
+
+}
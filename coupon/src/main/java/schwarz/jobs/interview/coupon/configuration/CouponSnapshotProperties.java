@@ -0,0 +1,43 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponTable;
+
+/**
+ * Configuration properties of the in-memory snapshot of all coupons.
+ * <p>
+ * Bound from the {@code coupon.snapshot} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.snapshot")
+public class CouponSnapshotProperties {
+
+	/**
+	 * Serve all coupon reads from the snapshot instead of the cache and the store.
+	 */
+	private boolean enabled;
+
+	/**
+	 * Storage of the snapshot, {@code objects} or {@code compact} for catalogs of millions of codes.
+	 */
+	private String layout = CouponTable.OBJECTS;
+
+	/**
+	 * Time between two reads of the rows changed since the last refresh.
+	 */
+	private Duration refreshInterval = Duration.ofSeconds(5);
+
+	/**
+	 * Rows changed up to this time before the last refresh are read again, so that
+	 * transactions committing late with an older timestamp are not missed.
+	 */
+	private Duration refreshOverlap = Duration.ofSeconds(10);
+
+}
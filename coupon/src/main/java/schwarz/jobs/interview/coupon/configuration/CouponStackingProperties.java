@@ -0,0 +1,24 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties of the stacking rules for several coupons on one basket.
+ * <p>
+ * Bound from the {@code coupon.stacking} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.stacking")
+public class CouponStackingProperties {
+
+	/**
+	 * Maximum number of coupons combined on one basket.
+	 */
+	private int maxCoupons = 3;
+
+}
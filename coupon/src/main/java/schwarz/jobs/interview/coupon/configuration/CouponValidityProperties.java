@@ -0,0 +1,51 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties of the validity windows of coupons and the purge of expired coupons.
+ * <p>
+ * Bound from the {@code coupon.validity} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.validity")
+public class CouponValidityProperties {
+
+	/**
+	 * Resolution of the timer wheel, coupons enter and leave the in-memory lookups at most this late.
+	 */
+	private Duration tick = Duration.ofMillis(100);
+
+	/**
+	 * Time an expired coupon is kept, then the purge moves it to the archive.
+	 */
+	private Duration retention = Duration.ofDays(30);
+
+	/**
+	 * Move coupons expired longer than the retention to the archive.
+	 */
+	private boolean purgeEnabled = true;
+
+	/**
+	 * Time between two runs of the purge.
+	 */
+	private Duration purgeInterval = Duration.ofHours(1);
+
+	/**
+	 * Coupons moved in one transaction, which keeps the locks on the coupons table short.
+	 */
+	private int purgeBatchSize = 500;
+
+	/**
+	 * Pause between two chunks of one purge run, leaving the table to the other writers.
+	 */
+	private Duration purgePause = Duration.ofMillis(50);
+
+}
@@ -0,0 +1,39 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration properties of the persistence execution mode.
+ * <p>
+ * Bound from the {@code coupon.execution} prefix of the application configuration.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@ConfigurationProperties(prefix = "coupon.execution")
+public class ExecutionProperties {
+
+	/**
+	 * Persistence path, {@code reactive} (R2DBC) or {@code jpa} (blocking JPA on the blocking executor).
+	 */
+	private String mode = "reactive";
+
+	/**
+	 * Run blocking calls on virtual threads when the JDK provides them.
+	 */
+	private boolean virtualThreads = true;
+
+	/**
+	 * Maximum number of blocking calls running at once, 0 sizes it to the Hikari maximum pool size.
+	 */
+	private int maxConcurrency;
+
+	/**
+	 * Maximum number of blocking calls waiting for execution before new calls are rejected.
+	 */
+	private int queueCapacity = 1000;
+
+}
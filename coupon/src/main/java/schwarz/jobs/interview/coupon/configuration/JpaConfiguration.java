@@ -0,0 +1,20 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.ReactiveCouponRepository;
+
+/**
+ * Restricts the JPA repositories to the blocking ones, the reactive repositories
+ * are created by {@link R2dbcConfiguration}.
+ */
+@Configuration
+@EnableJpaRepositories(basePackageClasses = CouponRepository.class, excludeFilters = @ComponentScan.Filter(
+		type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveCouponRepository.class))
+public class JpaConfiguration {
+
+}
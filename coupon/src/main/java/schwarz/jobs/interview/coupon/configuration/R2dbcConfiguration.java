@@ -0,0 +1,68 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.RequiredArgsConstructor;
+import schwarz.jobs.interview.coupon.core.repository.ReactiveCouponRepository;
+
+@Configuration
+@RequiredArgsConstructor
+@EnableR2dbcRepositories(basePackageClasses = ReactiveCouponRepository.class)
+public class R2dbcConfiguration extends AbstractR2dbcConfiguration {
+
+	private final CouponR2dbcProperties properties;
+
+	@Bean
+	@Override
+	public ConnectionFactory connectionFactory() {
+		return ConnectionFactories.get(ConnectionFactoryOptions.parse(properties.getUrl()).mutate()
+				.option(ConnectionFactoryOptions.USER, properties.getUsername())
+				.option(ConnectionFactoryOptions.PASSWORD, properties.getPassword())
+				.build());
+	}
+
+	/**
+	 * The H2 driver has no codec for {@link Instant}, the validity windows are bound as local timestamps
+	 * of the default zone, as JPA and the JDBC template write them.
+	 */
+	@Override
+	protected List<Object> getCustomConverters() {
+		return List.of(InstantToLocalDateTime.INSTANCE, LocalDateTimeToInstant.INSTANCE);
+	}
+
+	@WritingConverter
+	enum InstantToLocalDateTime implements Converter<Instant, LocalDateTime> {
+
+		INSTANCE;
+
+		@Override
+		public LocalDateTime convert(final Instant source) {
+			return LocalDateTime.ofInstant(source, ZoneId.systemDefault());
+		}
+	}
+
+	@ReadingConverter
+	enum LocalDateTimeToInstant implements Converter<LocalDateTime, Instant> {
+
+		INSTANCE;
+
+		@Override
+		public Instant convert(final LocalDateTime source) {
+			return source.atZone(ZoneId.systemDefault()).toInstant();
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.nio.channels.ClosedChannelException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.rsocket.server.ServerRSocketFactoryProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Logs the connection errors of the RSocket server instead of printing them, a client closing its
+ * connection is expected and only logged at debug level.
+ */
+@Configuration
+public class RSocketConfiguration {
+
+	private static final Logger log = LoggerFactory.getLogger(RSocketConfiguration.class);
+
+	@Bean
+	public ServerRSocketFactoryProcessor rsocketErrorLogging() {
+		return factory -> factory.errorConsumer(error -> {
+			if (error instanceof ClosedChannelException) {
+				log.debug("RSocket connection closed.", error);
+			} else {
+				log.warn("RSocket connection failed.", error);
+			}
+		});
+	}
+}
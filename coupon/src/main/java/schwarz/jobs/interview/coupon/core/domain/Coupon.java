@@ -1,36 +1,256 @@
 package schwarz.jobs.interview.coupon.core.domain;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import schwarz.jobs.interview.coupon.util.Money;
 
 @Entity
+@org.springframework.data.relational.core.mapping.Table("coupons")
+@Table(name = "coupons", indexes = {@Index(name = "ux_coupons_code", columnList = "code", unique = true),
+        @Index(name = "ix_coupons_min_basket_value", columnList = "min_basket_value")})
 @Data
-@Builder
 @NoArgsConstructor
-@AllArgsConstructor
 public class Coupon {
 
+    private static final long UNSET = Long.MIN_VALUE;
+
+    /** Separates the entries of the scope columns. */
+    public static final String SCOPE_SEPARATOR = ",";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @org.springframework.data.annotation.Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupons_seq")
+    @SequenceGenerator(name = "coupons_seq", sequenceName = "coupons_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "code")
+    @Column(name = "code", nullable = false, length = 250)
     private String code;
 
-    @Column(name = "discount", precision = 10, scale = 2)
+    @Column(name = "discount", nullable = false, precision = 10, scale = 2)
     private BigDecimal discount;
 
-    @Column(name = "minBasketValue", precision = 10, scale = 2)
+    @Column(name = "min_basket_value", precision = 10, scale = 2)
     private BigDecimal minBasketValue;
 
+    /**
+     * An exclusive coupon is never combined with other coupons on one basket.
+     */
+    @Column(name = "exclusive", nullable = false)
+    private boolean exclusive;
+
+    /**
+     * Maximum number of redemptions, 1 for a single-use code, null for no limit.
+     */
+    @Column(name = "max_redemptions")
+    private Long maxRedemptions;
+
+    /**
+     * Start of the validity window, inclusive, null if the coupon is valid from its creation.
+     */
+    @Column(name = "valid_from")
+    private Instant validFrom;
+
+    /**
+     * End of the validity window, exclusive, null if the coupon never expires.
+     */
+    @Column(name = "valid_until")
+    private Instant validUntil;
+
+    /**
+     * SKUs the coupon is limited to, normalized, sorted and comma separated, null if it is not limited to SKUs.
+     */
+    @Column(name = "skus", length = 4000)
+    private String skus;
+
+    /**
+     * Categories the coupon is limited to, normalized, sorted and comma separated, null if it is not limited to categories.
+     */
+    @Column(name = "categories", length = 4000)
+    private String categories;
+
+    /**
+     * The amounts in cents, converted once on first use, see {@link Money}.
+     */
+    @ToString.Exclude
+    @org.springframework.data.annotation.Transient
+    @Setter(AccessLevel.NONE)
+    private transient volatile long discountCents = UNSET;
+
+    @ToString.Exclude
+    @org.springframework.data.annotation.Transient
+    @Setter(AccessLevel.NONE)
+    private transient volatile long minBasketValueCents = UNSET;
+
+    /**
+     * The scope columns as sets, split once on first use.
+     */
+    @ToString.Exclude
+    @org.springframework.data.annotation.Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient volatile Set<String> skuSet;
+
+    @ToString.Exclude
+    @org.springframework.data.annotation.Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient volatile Set<String> categorySet;
+
+    public Coupon(final Long id, final String code, final BigDecimal discount, final BigDecimal minBasketValue) {
+        this(id, code, discount, minBasketValue, false, null, null, null, null, null);
+    }
+
+    @Builder
+    public Coupon(final Long id, final String code, final BigDecimal discount, final BigDecimal minBasketValue,
+            final boolean exclusive, final Long maxRedemptions, final Instant validFrom, final Instant validUntil,
+            final String skus, final String categories) {
+        this.id = id;
+        this.code = code;
+        this.discount = discount;
+        this.minBasketValue = minBasketValue;
+        this.exclusive = exclusive;
+        this.maxRedemptions = maxRedemptions;
+        this.validFrom = validFrom;
+        this.validUntil = validUntil;
+        this.skus = skus;
+        this.categories = categories;
+    }
+
+    public void setDiscount(final BigDecimal discount) {
+        this.discount = discount;
+        this.discountCents = UNSET;
+    }
+
+    public void setMinBasketValue(final BigDecimal minBasketValue) {
+        this.minBasketValue = minBasketValue;
+        this.minBasketValueCents = UNSET;
+    }
+
+    public void setSkus(final String skus) {
+        this.skus = skus;
+        this.skuSet = null;
+    }
+
+    public void setCategories(final String categories) {
+        this.categories = categories;
+        this.categorySet = null;
+    }
+
+    /**
+     * @return the discount in cents
+     */
+    public long getDiscountCents() {
+        long cents = discountCents;
+        if (cents == UNSET) {
+            cents = Money.toCents(discount);
+            discountCents = cents;
+        }
+        return cents;
+    }
+
+    /**
+     * @return the minimum basket value in cents, 0 if the coupon has none
+     */
+    public long getMinBasketValueCents() {
+        long cents = minBasketValueCents;
+        if (cents == UNSET) {
+            cents = Money.toCentsOrZero(minBasketValue);
+            minBasketValueCents = cents;
+        }
+        return cents;
+    }
+
+    /**
+     * @param epochMillis the time
+     * @return true if the validity window has not started at the time
+     */
+    public boolean isNotStartedAt(final long epochMillis) {
+        return validFrom != null && epochMillis < validFrom.toEpochMilli();
+    }
+
+    /**
+     * @param epochMillis the time
+     * @return true if the validity window has ended at the time
+     */
+    public boolean isExpiredAt(final long epochMillis) {
+        return validUntil != null && epochMillis >= validUntil.toEpochMilli();
+    }
+
+    /**
+     * @param epochMillis the time
+     * @return true if the time is inside the validity window
+     */
+    public boolean isValidAt(final long epochMillis) {
+        return !isNotStartedAt(epochMillis) && !isExpiredAt(epochMillis);
+    }
+
+    /**
+     * A scoped coupon applies to the basket lines of its SKUs and categories only, its minimum basket value
+     * is compared with the value of these lines.
+     * @return true if the coupon is limited to SKUs or categories
+     */
+    public boolean isScoped() {
+        return skus != null || categories != null;
+    }
+
+    /**
+     * @return the SKUs the coupon is limited to, empty if it is not limited to SKUs
+     */
+    public Set<String> getSkuSet() {
+        Set<String> set = skuSet;
+        if (set == null) {
+            set = split(skus);
+            skuSet = set;
+        }
+        return set;
+    }
+
+    /**
+     * @return the categories the coupon is limited to, empty if it is not limited to categories
+     */
+    public Set<String> getCategorySet() {
+        Set<String> set = categorySet;
+        if (set == null) {
+            set = split(categories);
+            categorySet = set;
+        }
+        return set;
+    }
+
+    /**
+     * @param entries normalized SKUs or categories, may be null
+     * @return the value of a scope column, null for no entries
+     */
+    public static String joinScope(final Collection<String> entries) {
+        return entries == null || entries.isEmpty() ? null : String.join(SCOPE_SEPARATOR, new TreeSet<>(entries));
+    }
+
+    private static Set<String> split(final String column) {
+        return column == null ? Collections.emptySet()
+                : Collections.unmodifiableSet(Arrays.stream(column.split(SCOPE_SEPARATOR)).collect(Collectors.toSet()));
+    }
+
 }
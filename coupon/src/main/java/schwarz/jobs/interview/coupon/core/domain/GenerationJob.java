@@ -0,0 +1,50 @@
+package schwarz.jobs.interview.coupon.core.domain;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A job generating {@code count} unique codes of {@code prefix} followed by {@code length}
+ * characters of {@code alphabet}, all with the same discount and minimum basket value.
+ * <p>
+ * The codes are the indices {@code 0 ... nextIndex} of a permutation of the code space
+ * keyed by {@code seed}, so a resumed job continues exactly where the last written batch ended.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class GenerationJob {
+
+	private Long id;
+
+	private String prefix;
+
+	private String alphabet;
+
+	private int length;
+
+	private long count;
+
+	private BigDecimal discount;
+
+	private BigDecimal minBasketValue;
+
+	private long seed;
+
+	private long nextIndex;
+
+	private long generated;
+
+	private GenerationStatus status;
+
+	private String message;
+
+}
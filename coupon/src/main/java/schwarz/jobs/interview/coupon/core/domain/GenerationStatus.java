@@ -0,0 +1,19 @@
+package schwarz.jobs.interview.coupon.core.domain;
+
+/**
+ * Status of a {@link GenerationJob}.
+ *
+ * @author manik sharma
+ */
+public enum GenerationStatus {
+
+	/** The job is generating codes, or was interrupted by a shutdown and is resumed on startup. */
+	RUNNING,
+
+	/** All codes were generated. */
+	COMPLETED,
+
+	/** The job stopped on an error and can be resumed. */
+	FAILED
+
+}
@@ -1,8 +1,14 @@
 package schwarz.jobs.interview.coupon.core.repository;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import schwarz.jobs.interview.coupon.core.domain.Coupon;
 
@@ -10,4 +16,11 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
 
     Optional<Coupon> findByCode(final String code);
 
+    List<Coupon> findByCodeIn(final Collection<String> codes);
+
+    @Query("SELECT c FROM Coupon c WHERE (c.minBasketValue <= :basketValue OR c.minBasketValue IS NULL)"
+            + " AND (c.validFrom <= :now OR c.validFrom IS NULL) AND (c.validUntil > :now OR c.validUntil IS NULL)"
+            + " AND c.skus IS NULL AND c.categories IS NULL")
+    List<Coupon> findEligible(final BigDecimal basketValue, final Instant now, final Pageable page);
+
 }
@@ -0,0 +1,58 @@
+package schwarz.jobs.interview.coupon.core.repository;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Verifies on startup that the coupons table has a unique index on the code column.
+ * <p>
+ * Coupon lookups by code rely on this index, so the application fails fast
+ * instead of silently falling back to table scans.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+@RequiredArgsConstructor
+public class CouponSchemaVerifier implements ApplicationRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponSchemaVerifier.class);
+
+	static final String TABLE_NAME = "COUPONS";
+	static final String CODE_COLUMN = "CODE";
+
+	private final DataSource dataSource;
+
+	@Override
+	public void run(final ApplicationArguments args) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			if (!hasUniqueCodeIndex(connection.getMetaData())) {
+				throw new IllegalStateException("Missing unique index on " + TABLE_NAME + "." + CODE_COLUMN);
+			}
+		}
+		log.info("Unique index on {}.{} verified.", TABLE_NAME, CODE_COLUMN);
+	}
+
+	private boolean hasUniqueCodeIndex(final DatabaseMetaData metaData) throws SQLException {
+		try (ResultSet indexes = metaData.getIndexInfo(null, null, TABLE_NAME, true, false)) {
+			while (indexes.next()) {
+				if (CODE_COLUMN.equalsIgnoreCase(indexes.getString("COLUMN_NAME"))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
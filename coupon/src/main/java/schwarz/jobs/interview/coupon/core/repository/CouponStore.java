@@ -0,0 +1,37 @@
+package schwarz.jobs.interview.coupon.core.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * Non-blocking persistence contract of the coupon service.
+ * <p>
+ * The implementation is selected with {@code coupon.execution.mode}: {@code reactive}
+ * (default) uses R2DBC, {@code jpa} runs the blocking JPA repository on a bounded scheduler.
+ * </p>
+ *
+ * @author manik sharma
+ */
+public interface CouponStore {
+
+	Mono<Coupon> findByCode(final String code);
+
+	Flux<Coupon> findByCodeIn(final Collection<String> codes);
+
+	Mono<Coupon> save(final Coupon coupon);
+
+	/**
+	 * @param basketValue basket value, coupons without a minimum basket value are always eligible
+	 * @param now         the time the coupons have to be valid at
+	 * @param limit       maximum number of coupons
+	 * @param bestFirst   largest discount first instead of ascending minimum basket value
+	 * @return the valid coupons whose minimum basket value is at most the basket value, without scoped coupons
+	 */
+	Flux<Coupon> findEligible(final BigDecimal basketValue, final Instant now, final int limit, final boolean bestFirst);
+
+}
@@ -0,0 +1,83 @@
+package schwarz.jobs.interview.coupon.core.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+import schwarz.jobs.interview.coupon.core.domain.GenerationJob;
+import schwarz.jobs.interview.coupon.core.domain.GenerationStatus;
+
+/**
+ * Blocking JDBC access to the generation_jobs table, call it on the blocking executor.
+ *
+ * @author manik sharma
+ */
+@Repository
+@RequiredArgsConstructor
+public class GenerationJobRepository {
+
+	private static final String COLUMNS = "id, prefix, alphabet, code_length, code_count, discount, min_basket_value, "
+			+ "seed, next_index, generated, status, message";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public GenerationJob insert(final GenerationJob job) {
+		final KeyHolder keyHolder = new GeneratedKeyHolder();
+		jdbcTemplate.update(connection -> {
+			final PreparedStatement statement = connection.prepareStatement(
+					"INSERT INTO generation_jobs (prefix, alphabet, code_length, code_count, discount, min_basket_value, "
+							+ "seed, next_index, generated, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+					Statement.RETURN_GENERATED_KEYS);
+			statement.setString(1, job.getPrefix());
+			statement.setString(2, job.getAlphabet());
+			statement.setInt(3, job.getLength());
+			statement.setLong(4, job.getCount());
+			statement.setBigDecimal(5, job.getDiscount());
+			statement.setBigDecimal(6, job.getMinBasketValue());
+			statement.setLong(7, job.getSeed());
+			statement.setLong(8, job.getNextIndex());
+			statement.setLong(9, job.getGenerated());
+			statement.setString(10, job.getStatus().name());
+			return statement;
+		}, keyHolder);
+		job.setId(keyHolder.getKey().longValue());
+		return job;
+	}
+
+	public Optional<GenerationJob> findById(final long id) {
+		return jdbcTemplate.query("SELECT " + COLUMNS + " FROM generation_jobs WHERE id = ?",
+				GenerationJobRepository::map, id).stream().findFirst();
+	}
+
+	public List<GenerationJob> findByStatus(final GenerationStatus status) {
+		return jdbcTemplate.query("SELECT " + COLUMNS + " FROM generation_jobs WHERE status = ?",
+				GenerationJobRepository::map, status.name());
+	}
+
+	/**
+	 * Stores the cursor and status of the job, run it in the transaction writing the batch of the cursor.
+	 */
+	public void updateProgress(final GenerationJob job) {
+		jdbcTemplate.update("UPDATE generation_jobs SET next_index = ?, generated = ?, status = ?, message = ? WHERE id = ?",
+				job.getNextIndex(), job.getGenerated(), job.getStatus().name(), job.getMessage(), job.getId());
+	}
+
+	private static GenerationJob map(final ResultSet resultSet, final int row) throws SQLException {
+		return GenerationJob.builder().id(resultSet.getLong("id")).prefix(resultSet.getString("prefix"))
+				.alphabet(resultSet.getString("alphabet")).length(resultSet.getInt("code_length"))
+				.count(resultSet.getLong("code_count")).discount(resultSet.getBigDecimal("discount"))
+				.minBasketValue(resultSet.getBigDecimal("min_basket_value")).seed(resultSet.getLong("seed"))
+				.nextIndex(resultSet.getLong("next_index")).generated(resultSet.getLong("generated"))
+				.status(GenerationStatus.valueOf(resultSet.getString("status"))).message(resultSet.getString("message"))
+				.build();
+	}
+}
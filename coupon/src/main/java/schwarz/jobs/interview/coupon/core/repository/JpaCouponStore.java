@@ -0,0 +1,58 @@
+package schwarz.jobs.interview.coupon.core.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+
+/**
+ * {@link CouponStore} backed by the blocking JPA {@link CouponRepository}.
+ * <p>
+ * Every repository call runs on the {@link BlockingExecutor}, never on the calling
+ * request or event-loop thread.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "coupon.execution.mode", havingValue = "jpa")
+public class JpaCouponStore implements CouponStore {
+
+	private final CouponRepository couponRepository;
+
+	private final BlockingExecutor blockingExecutor;
+
+	@Override
+	public Mono<Coupon> findByCode(final String code) {
+		return blockingExecutor.call(() -> couponRepository.findByCode(code).orElse(null));
+	}
+
+	@Override
+	public Flux<Coupon> findByCodeIn(final Collection<String> codes) {
+		return blockingExecutor.call(() -> couponRepository.findByCodeIn(codes)).flatMapIterable(coupons -> coupons);
+	}
+
+	@Override
+	public Mono<Coupon> save(final Coupon coupon) {
+		return blockingExecutor.call(() -> couponRepository.save(coupon));
+	}
+
+	@Override
+	public Flux<Coupon> findEligible(final BigDecimal basketValue, final Instant now, final int limit,
+			final boolean bestFirst) {
+		final Sort sort = bestFirst ? Sort.by(Sort.Direction.DESC, "discount") : Sort.by("minBasketValue");
+		return blockingExecutor.call(() -> couponRepository.findEligible(basketValue, now, PageRequest.of(0, limit, sort)))
+				.flatMapIterable(coupons -> coupons);
+	}
+}
@@ -0,0 +1,52 @@
+package schwarz.jobs.interview.coupon.core.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * {@link CouponStore} backed by the non-blocking {@link ReactiveCouponRepository}.
+ *
+ * @author manik sharma
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "coupon.execution.mode", havingValue = "reactive", matchIfMissing = true)
+public class R2dbcCouponStore implements CouponStore {
+
+	private final ReactiveCouponRepository couponRepository;
+
+	@Override
+	public Mono<Coupon> findByCode(final String code) {
+		return couponRepository.findByCode(code);
+	}
+
+	@Override
+	public Flux<Coupon> findByCodeIn(final Collection<String> codes) {
+		return couponRepository.findByCodeIn(codes);
+	}
+
+	@Override
+	public Mono<Coupon> save(final Coupon coupon) {
+		return couponRepository.save(coupon);
+	}
+
+	@Override
+	public Flux<Coupon> findEligible(final BigDecimal basketValue, final Instant now, final int limit,
+			final boolean bestFirst) {
+		// query parameters skip the converters of the entities, the driver binds no Instant
+		final LocalDateTime local = LocalDateTime.ofInstant(now, ZoneId.systemDefault());
+		return bestFirst ? couponRepository.findEligibleByDiscount(basketValue, local, limit)
+				: couponRepository.findEligibleByThreshold(basketValue, local, limit);
+	}
+}
@@ -0,0 +1,39 @@
+package schwarz.jobs.interview.coupon.core.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * Non-blocking R2DBC repository for {@link Coupon}s, used by the reactive request path.
+ *
+ * @author manik sharma
+ */
+public interface ReactiveCouponRepository extends R2dbcRepository<Coupon, Long> {
+
+    @Query("SELECT * FROM coupons WHERE code = :code")
+    Mono<Coupon> findByCode(final String code);
+
+    @Query("SELECT * FROM coupons WHERE code IN (:codes)")
+    Flux<Coupon> findByCodeIn(final Collection<String> codes);
+
+    @Query("SELECT * FROM coupons WHERE (min_basket_value <= :basketValue OR min_basket_value IS NULL)"
+            + " AND (valid_from <= :now OR valid_from IS NULL) AND (valid_until > :now OR valid_until IS NULL)"
+            + " AND skus IS NULL AND categories IS NULL"
+            + " ORDER BY min_basket_value LIMIT :limit")
+    Flux<Coupon> findEligibleByThreshold(final BigDecimal basketValue, final LocalDateTime now, final int limit);
+
+    @Query("SELECT * FROM coupons WHERE (min_basket_value <= :basketValue OR min_basket_value IS NULL)"
+            + " AND (valid_from <= :now OR valid_from IS NULL) AND (valid_until > :now OR valid_until IS NULL)"
+            + " AND skus IS NULL AND categories IS NULL"
+            + " ORDER BY discount DESC LIMIT :limit")
+    Flux<Coupon> findEligibleByDiscount(final BigDecimal basketValue, final LocalDateTime now, final int limit);
+
+}
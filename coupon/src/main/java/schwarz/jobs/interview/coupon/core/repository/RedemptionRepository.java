@@ -0,0 +1,59 @@
+package schwarz.jobs.interview.coupon.core.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+import schwarz.jobs.interview.coupon.util.Constants;
+
+/**
+ * Blocking JDBC access to the coupon_redemptions table, call it on the blocking executor.
+ *
+ * @author manik sharma
+ */
+@Repository
+@RequiredArgsConstructor
+public class RedemptionRepository {
+
+	private static final String ADD_REDEEMED = "MERGE INTO coupon_redemptions r"
+			+ " USING (SELECT CAST(? AS VARCHAR(250)) code, CAST(? AS BIGINT) delta) d ON (r.code = d.code)"
+			+ " WHEN MATCHED THEN UPDATE SET redeemed = r.redeemed + d.delta"
+			+ " WHEN NOT MATCHED THEN INSERT (code, redeemed) VALUES (d.code, d.delta)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/**
+	 * @param codes normalized coupon codes
+	 * @return the persisted redemptions keyed by code, codes without redemptions are missing
+	 */
+	public Map<String, Long> findRedeemed(final Collection<String> codes) {
+		final List<String> all = new ArrayList<>(codes);
+		final Map<String, Long> redeemed = new HashMap<>();
+		for (int from = 0; from < all.size(); from += Constants.MAX_IN_CLAUSE_PARAMETERS) {
+			final List<String> chunk = all.subList(from, Math.min(all.size(), from + Constants.MAX_IN_CLAUSE_PARAMETERS));
+			jdbcTemplate.query("SELECT code, redeemed FROM coupon_redemptions WHERE code IN ("
+					+ String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")", resultSet -> {
+						redeemed.put(resultSet.getString(1), resultSet.getLong(2));
+					}, chunk.toArray());
+		}
+		return redeemed;
+	}
+
+	/**
+	 * Adds the redemptions to the persisted ones in one batch.
+	 *
+	 * @param deltas new redemptions keyed by normalized code
+	 */
+	public void addRedeemed(final Map<String, Long> deltas) {
+		jdbcTemplate.batchUpdate(ADD_REDEEMED, deltas.entrySet().stream()
+				.map(delta -> new Object[] { delta.getKey(), delta.getValue() }).collect(Collectors.toList()));
+	}
+}
@@ -0,0 +1,318 @@
+package schwarz.jobs.interview.coupon.core.services;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.GenerationJob;
+import schwarz.jobs.interview.coupon.core.domain.GenerationStatus;
+import schwarz.jobs.interview.coupon.core.repository.GenerationJobRepository;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCodeFilter;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+import schwarz.jobs.interview.coupon.core.services.generation.CodePermutation;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponSnapshot;
+import schwarz.jobs.interview.coupon.util.Constants;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.GenerationJobDTO;
+import schwarz.jobs.interview.coupon.web.dto.GenerationRequestDTO;
+
+/**
+ * Implementation of {@link ICouponGenerationService} that generates the codes of a {@link GenerationJob}
+ * in batches of {@link Constants#GENERATION_BATCH_SIZE}.
+ * <p>
+ * Each batch takes the next indices of the {@link CodePermutation} of the job and renders them
+ * in parallel on all cores, so the codes of a job never collide with each other. Codes that already
+ * exist in the coupons table are skipped and replaced by further indices. The new coupons and the
+ * cursor of the job are written in one transaction on the {@link BlockingExecutor}, so a failed or
+ * interrupted job is resumed after its last written batch without duplicates or gaps.
+ * With the {@link CouponSnapshot} enabled the coupons of a batch are readable once it is committed.
+ * </p>
+ * 
+ * @author manik sharma
+ */
+@Service
+@RequiredArgsConstructor
+public class CouponGenerationService implements ICouponGenerationService {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponGenerationService.class);
+
+	private static final String INSERT_COUPON = "INSERT INTO coupons (code, discount, min_basket_value, max_redemptions) VALUES (?, ?, ?, 1)";
+
+	private static final int MAX_BATCH_ATTEMPTS = 3;
+
+	private final GenerationJobRepository jobRepository;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final BlockingExecutor blockingExecutor;
+
+	private final CouponCodeFilter couponCodeFilter;
+
+	private final CouponSnapshot couponSnapshot;
+
+	private final CatalogVersion catalogVersion;
+
+	private final SecureRandom random = new SecureRandom();
+
+	/**
+	 * Jobs running in this instance with the time and the generated count when they were started.
+	 */
+	private final Map<Long, long[]> runningJobs = new ConcurrentHashMap<>();
+
+    /**
+     * <p>This method validates the request, stores the job and starts it in the background.
+     * </p> 
+     * 
+     * @param {@link GenerationRequestDTO}
+     * @return Mono of {@link GenerationJobDTO} of the started job
+     * 
+     * @throws IllegalArgumentException if the request is invalid
+     * 
+     */
+	public Mono<GenerationJobDTO> startJob(final GenerationRequestDTO request) {
+
+		return Mono.defer(() -> {
+			final GenerationJob job = validate(request);
+			return blockingExecutor.call(() -> jobRepository.insert(job));
+		}).map(job -> {
+			launch(job);
+			return toDTO(job);
+		});
+	}
+
+    /**
+     * @param id of the job
+     * @return Mono of {@link GenerationJobDTO} with the progress of the job, empty if the job does not exist
+     */
+	public Mono<GenerationJobDTO> getJob(final long id) {
+
+		return blockingExecutor.call(() -> jobRepository.findById(id).orElse(null)).map(this::toDTO);
+	}
+
+    /**
+     * <p>This method continues a failed job after its last written batch.
+     *    Running and completed jobs are returned unchanged.
+     * </p> 
+     * 
+     * @param id of the job
+     * @return Mono of {@link GenerationJobDTO} of the job, empty if the job does not exist
+     * 
+     */
+	public Mono<GenerationJobDTO> resumeJob(final long id) {
+
+		return blockingExecutor.call(() -> jobRepository.findById(id).orElse(null)).map(job -> {
+			if(job.getStatus() != GenerationStatus.COMPLETED && !runningJobs.containsKey(job.getId())) {
+				job.setStatus(GenerationStatus.RUNNING);
+				job.setMessage(null);
+				launch(job);
+			}
+			return toDTO(job);
+		});
+	}
+
+	/**
+	 * Jobs still marked as running were interrupted by a shutdown, they continue on startup.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void resumeInterruptedJobs() {
+
+		blockingExecutor.call(() -> jobRepository.findByStatus(GenerationStatus.RUNNING))
+				.flatMapIterable(jobs -> jobs)
+				.doOnNext(job -> log.info("Resuming code generation job {} at {} of {} codes.", job.getId(),
+						job.getGenerated(), job.getCount()))
+				.subscribe(this::launch, error -> log.error("Resuming code generation jobs failed.", error));
+	}
+
+	private void launch(final GenerationJob job) {
+
+		if(runningJobs.putIfAbsent(job.getId(), new long[] { System.nanoTime(), job.getGenerated() }) != null) {
+			return;
+		}
+		final CodePermutation permutation = new CodePermutation(codeSpace(job.getAlphabet().length(), job.getLength()),
+				job.getSeed());
+		Mono.defer(() -> writeBatch(job, permutation))
+				.repeat(() -> job.getStatus() == GenerationStatus.RUNNING)
+				.doFinally(signal -> runningJobs.remove(job.getId()))
+				.subscribe(null, error -> fail(job, error),
+						() -> log.info("Code generation job {} finished with status {} after {} codes.", job.getId(),
+								job.getStatus(), job.getGenerated()));
+	}
+
+	private Mono<Void> writeBatch(final GenerationJob job, final CodePermutation permutation) {
+
+		final long from = job.getNextIndex();
+		final int size = (int) Math.min(Math.min(Constants.GENERATION_BATCH_SIZE, job.getCount() - job.getGenerated()),
+				permutation.size() - from);
+		final String[] codes = new String[size];
+		final char[] alphabet = job.getAlphabet().toCharArray();
+		return Flux.range(0, size)
+				.parallel()
+				.runOn(Schedulers.parallel())
+				.doOnNext(index -> codes[index] = code(job.getPrefix(), alphabet, job.getLength(),
+						permutation.apply(from + index)))
+				.then()
+				.then(blockingExecutor.call(() -> transactionTemplate.execute(status -> insert(job, codes, from + size)))
+						.retry(MAX_BATCH_ATTEMPTS - 1, DuplicateKeyException.class::isInstance))
+				.doOnNext(progress -> {
+					job.setNextIndex(progress.getNextIndex());
+					job.setGenerated(progress.getGenerated());
+					job.setStatus(progress.getStatus());
+					job.setMessage(progress.getMessage());
+				})
+				.then();
+	}
+
+	/**
+	 * Inserts the codes that do not exist yet and stores the cursor of the job after the batch.
+	 * A concurrent insert of one of the codes fails the transaction with a {@link DuplicateKeyException},
+	 * the retry then skips the code.
+	 * 
+	 * @return the job after the batch
+	 */
+	private GenerationJob insert(final GenerationJob job, final String[] codes, final long nextIndex) {
+
+		final Set<String> existing = new HashSet<>();
+		for(int from = 0; from < codes.length; from += Constants.MAX_IN_CLAUSE_PARAMETERS) {
+			final List<String> chunk = Arrays.asList(codes).subList(from,
+					Math.min(codes.length, from + Constants.MAX_IN_CLAUSE_PARAMETERS));
+			existing.addAll(jdbcTemplate.queryForList("SELECT code FROM coupons WHERE code IN ("
+					+ chunk.stream().map(code -> "?").collect(Collectors.joining(",")) + ")", String.class, chunk.toArray()));
+		}
+		final List<Object[]> batch = new ArrayList<>(codes.length);
+		for(final String code : codes) {
+			if(!existing.contains(code)) {
+				couponCodeFilter.add(code);
+				batch.add(new Object[] { code, job.getDiscount(), job.getMinBasketValue() });
+			}
+		}
+		jdbcTemplate.batchUpdate(INSERT_COUPON, batch);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				batch.forEach(row -> couponCodeFilter.add((String) row[0]));
+				if(couponSnapshot.isReady()) {
+					batch.forEach(row -> couponSnapshot.put(Coupon.builder().code((String) row[0])
+							.discount(job.getDiscount()).minBasketValue(job.getMinBasketValue()).maxRedemptions(1L).build()));
+				}
+				catalogVersion.bump(batch.stream().map(row -> (String) row[0]).collect(Collectors.toList()));
+			}
+		});
+
+		final GenerationJob progress = job.toBuilder().nextIndex(nextIndex).generated(job.getGenerated() + batch.size())
+				.build();
+		if(progress.getGenerated() >= progress.getCount()) {
+			progress.setStatus(GenerationStatus.COMPLETED);
+		}else if(nextIndex >= codeSpace(job.getAlphabet().length(), job.getLength())) {
+			progress.setStatus(GenerationStatus.FAILED);
+			progress.setMessage(Constants.CODE_SPACE_EXHAUSTED);
+		}
+		jobRepository.updateProgress(progress);
+		return progress;
+	}
+
+	private void fail(final GenerationJob job, final Throwable error) {
+
+		log.error("Code generation job {} failed after {} codes.", job.getId(), job.getGenerated(), error);
+		job.setStatus(GenerationStatus.FAILED);
+		job.setMessage(error.getMessage());
+		blockingExecutor.call(() -> {
+			jobRepository.updateProgress(job);
+			return job;
+		}).subscribe(null, updateError -> log.error("Storing the failure of code generation job {} failed.", job.getId(),
+				updateError));
+	}
+
+	private GenerationJob validate(final GenerationRequestDTO request) {
+
+		final String prefix = request.getPrefix() == null ? "" : CouponService.normalize(request.getPrefix());
+		final String alphabet = request.getAlphabet();
+		if(alphabet == null || alphabet.length() < 2 || alphabet.chars().distinct().count() != alphabet.length()
+				|| !alphabet.equals(CouponService.normalize(alphabet)) || alphabet.chars().anyMatch(Character::isWhitespace)) {
+			throw new IllegalArgumentException(Constants.INVALID_ALPHABET);
+		}
+		if(request.getLength() < 1 || prefix.length() + request.getLength() > Constants.MAX_COUPON_CODE_LENGTH) {
+			throw new IllegalArgumentException(Constants.INVALID_CODE_LENGTH);
+		}
+		if(request.getCount() < 1 || request.getCount() > codeSpace(alphabet.length(), request.getLength())) {
+			throw new IllegalArgumentException(Constants.INVALID_CODE_COUNT);
+		}
+		final char[] sample = new char[request.getLength()];
+		Arrays.fill(sample, alphabet.charAt(0));
+		final String error = CouponService.validationError(
+				new CouponDTO(request.getDiscount(), prefix + new String(sample), request.getMinBasketValue()));
+		if(error != null) {
+			throw new IllegalArgumentException(error);
+		}
+		return GenerationJob.builder().prefix(prefix).alphabet(alphabet).length(request.getLength())
+				.count(request.getCount()).discount(request.getDiscount()).minBasketValue(request.getMinBasketValue())
+				.seed(random.nextLong()).status(GenerationStatus.RUNNING).build();
+	}
+
+	private GenerationJobDTO toDTO(final GenerationJob job) {
+
+		final long[] run = runningJobs.get(job.getId());
+		double codesPerSecond = 0;
+		if(run != null) {
+			final double seconds = Math.max(System.nanoTime() - run[0], 1) / (double) TimeUnit.SECONDS.toNanos(1);
+			codesPerSecond = (job.getGenerated() - run[1]) / seconds;
+		}
+		return GenerationJobDTO.builder().id(job.getId()).status(job.getStatus()).count(job.getCount())
+				.generated(job.getGenerated()).progress(job.getGenerated() / (double) job.getCount())
+				.codesPerSecond(codesPerSecond).message(job.getMessage()).build();
+	}
+
+	/**
+	 * @return the number of codes of the alphabet and length, at most {@link CodePermutation#MAX_SIZE}
+	 */
+	static long codeSpace(final int alphabetSize, final int length) {
+
+		long size = 1;
+		for(int i = 0; i < length; i++) {
+			if(size > CodePermutation.MAX_SIZE / alphabetSize) {
+				return CodePermutation.MAX_SIZE;
+			}
+			size *= alphabetSize;
+		}
+		return size;
+	}
+
+	/**
+	 * Renders the number in base {@code alphabet.length}, left padded to {@code length} characters.
+	 */
+	static String code(final String prefix, final char[] alphabet, final int length, final long number) {
+
+		final char[] chars = new char[length];
+		long remaining = number;
+		for(int i = length - 1; i >= 0; i--) {
+			chars[i] = alphabet[(int) (remaining % alphabet.length)];
+			remaining /= alphabet.length;
+		}
+		return prefix.concat(new String(chars));
+	}
+}
@@ -0,0 +1,242 @@
+package schwarz.jobs.interview.coupon.core.services;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCodeFilter;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+import schwarz.jobs.interview.coupon.core.services.model.ImportFormat;
+import schwarz.jobs.interview.coupon.core.services.scope.CouponScopeIndex;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponSnapshot;
+import schwarz.jobs.interview.coupon.util.Constants;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.ImportRejectDTO;
+import schwarz.jobs.interview.coupon.web.dto.ImportReportDTO;
+
+/**
+ * Implementation of {@link ICouponImportService} that streams coupon definitions
+ * into the coupons table.
+ * <p>
+ * The lines are parsed and validated one by one with the rules of {@link CouponService#createCoupon(CouponDTO)}
+ * and the valid rows are merged by code in JDBC batches of {@link Constants#IMPORT_BATCH_SIZE}, one transaction
+ * per batch on the {@link BlockingExecutor}. The next batch is read only after the previous one is written,
+ * so at most one batch is held in memory. Like {@code createCoupon} an existing coupon with the same code is overwritten.
+ * </p>
+ * 
+ * @author manik sharma
+ */
+@Service
+@RequiredArgsConstructor
+public class CouponImportService implements ICouponImportService {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponImportService.class);
+
+	private static final String MERGE_COUPON = "MERGE INTO coupons (code, discount, min_basket_value, exclusive, max_redemptions, valid_from, valid_until, skus, categories) KEY (code) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final BlockingExecutor blockingExecutor;
+
+	private final CouponCache couponCache;
+
+	private final CouponCodeFilter couponCodeFilter;
+
+	private final CouponSnapshot couponSnapshot;
+
+	private final CouponScopeIndex couponScopeIndex;
+
+	private final CatalogVersion catalogVersion;
+
+	private final ObjectMapper objectMapper;
+
+    /**
+     * <p>This method imports the coupon definitions of the lines.
+     *    Blank lines are skipped, invalid rows are reported and never fail the import.
+     * </p> 
+     * 
+     * @param lines of the import, without line separators
+     * @param format of the lines
+     * @return Mono of {@link ImportReportDTO} once all lines are processed
+     * 
+     */
+	public Mono<ImportReportDTO> importCoupons(final Flux<String> lines, final ImportFormat format) {
+
+		return Mono.defer(() -> {
+			final long started = System.nanoTime();
+			return lines.index()
+					.filter(line -> !line.getT2().isBlank() && !isHeader(line, format))
+					.map(line -> parse(line.getT1() + 1, line.getT2().trim(), format))
+					.buffer(Constants.IMPORT_BATCH_SIZE)
+					.concatMap(this::write)
+					.reduce(new ImportTally(), ImportTally::add)
+					.map(tally -> tally.toReport(System.nanoTime() - started))
+					.doOnNext(report -> log.info("Imported {} coupons, rejected {} rows at {} rows/s.",
+							report.getImportedRows(), report.getRejectedRows(), Math.round(report.getRowsPerSecond())));
+		});
+	}
+
+	private Mono<List<ImportRow>> write(final List<ImportRow> rows) {
+
+		final List<Object[]> batch = rows.stream().filter(row -> row.reason == null)
+				.map(row -> new Object[] { row.code, row.discount, row.minBasketValue, row.exclusive, row.maxRedemptions,
+						timestamp(row.validFrom), timestamp(row.validUntil), row.skus, row.categories }).collect(Collectors.toList());
+		if(batch.isEmpty()) {
+			return Mono.just(rows);
+		}
+		batch.forEach(row -> couponCodeFilter.add((String) row[0]));
+		return blockingExecutor.call(() -> transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(MERGE_COUPON, batch)))
+				.doOnSuccess(counts -> rows.stream().filter(row -> row.reason == null).forEach(row -> {
+					couponCodeFilter.add(row.code);
+					couponCache.invalidate(row.code);
+					final Coupon coupon = Coupon.builder().code(row.code).discount(row.discount)
+							.minBasketValue(row.minBasketValue).exclusive(row.exclusive)
+							.maxRedemptions(row.maxRedemptions).validFrom(row.validFrom).validUntil(row.validUntil)
+							.skus(row.skus).categories(row.categories).build();
+					couponSnapshot.put(coupon);
+					couponScopeIndex.put(coupon);
+				}))
+				.doOnSuccess(counts -> catalogVersion.bump(batch.stream().map(row -> (String) row[0]).collect(Collectors.toList())))
+				.thenReturn(rows);
+	}
+
+	private ImportRow parse(final long line, final String text, final ImportFormat format) {
+
+		final CouponDTO coupon;
+		try {
+			coupon = format == ImportFormat.CSV ? parseCsv(text) : objectMapper.readValue(text, CouponDTO.class);
+		} catch (JsonProcessingException | IllegalArgumentException e) {
+			return ImportRow.rejected(line, null, Constants.MALFORMED_IMPORT_ROW);
+		}
+		if(coupon == null) {
+			return ImportRow.rejected(line, null, Constants.MALFORMED_IMPORT_ROW);
+		}
+		final String error = CouponService.validationError(coupon);
+		if(error != null) {
+			return ImportRow.rejected(line, coupon.getCode(), error);
+		}
+		return new ImportRow(line, CouponService.normalize(coupon.getCode()), coupon.getDiscount(),
+				coupon.getMinBasketValue(), coupon.isExclusive(), coupon.getMaxRedemptions(),
+				CouponService.millis(coupon.getValidFrom()), CouponService.millis(coupon.getValidUntil()),
+				CouponService.scope(coupon.getSkus()), CouponService.scope(coupon.getCategories()), null);
+	}
+
+	private static Timestamp timestamp(final Instant instant) {
+		return instant == null ? null : Timestamp.from(instant);
+	}
+
+	private static CouponDTO parseCsv(final String text) {
+
+		final String[] columns = text.split(",", -1);
+		if(columns.length != 3) {
+			throw new IllegalArgumentException(Constants.MALFORMED_IMPORT_ROW);
+		}
+		return new CouponDTO(new BigDecimal(columns[1].trim()), columns[0], new BigDecimal(columns[2].trim()));
+	}
+
+	private static boolean isHeader(final Tuple2<Long, String> line, final ImportFormat format) {
+		return format == ImportFormat.CSV && line.getT1() == 0 && line.getT2().trim().toLowerCase(Locale.ROOT).startsWith("code");
+	}
+
+	private static final class ImportRow {
+
+		private final long line;
+
+		private final String code;
+
+		private final BigDecimal discount;
+
+		private final BigDecimal minBasketValue;
+
+		private final boolean exclusive;
+
+		private final Long maxRedemptions;
+
+		private final Instant validFrom;
+
+		private final Instant validUntil;
+
+		private final String skus;
+
+		private final String categories;
+
+		private final String reason;
+
+		private ImportRow(final long line, final String code, final BigDecimal discount,
+				final BigDecimal minBasketValue, final boolean exclusive, final Long maxRedemptions,
+				final Instant validFrom, final Instant validUntil, final String skus, final String categories,
+				final String reason) {
+			this.line = line;
+			this.code = code;
+			this.discount = discount;
+			this.minBasketValue = minBasketValue;
+			this.exclusive = exclusive;
+			this.maxRedemptions = maxRedemptions;
+			this.validFrom = validFrom;
+			this.validUntil = validUntil;
+			this.skus = skus;
+			this.categories = categories;
+			this.reason = reason;
+		}
+
+		private static ImportRow rejected(final long line, final String code, final String reason) {
+			return new ImportRow(line, code, null, null, false, null, null, null, null, null, reason);
+		}
+	}
+
+	/**
+	 * Counts the rows of the written batches and keeps the first rejects.
+	 */
+	private static final class ImportTally {
+
+		private long imported;
+
+		private long rejected;
+
+		private final List<ImportRejectDTO> rejects = new ArrayList<>();
+
+		private ImportTally add(final List<ImportRow> rows) {
+			for(final ImportRow row : rows) {
+				if(row.reason == null) {
+					imported++;
+				}else {
+					rejected++;
+					if(rejects.size() < Constants.MAX_REPORTED_IMPORT_REJECTS) {
+						rejects.add(new ImportRejectDTO(row.line, row.code, row.reason));
+					}
+				}
+			}
+			return this;
+		}
+
+		private ImportReportDTO toReport(final long durationNanos) {
+			final double seconds = Math.max(durationNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+			return ImportReportDTO.builder().importedRows(imported).rejectedRows(rejected)
+					.durationMillis(TimeUnit.NANOSECONDS.toMillis(durationNanos))
+					.rowsPerSecond((imported + rejected) / seconds).rejects(rejects).build();
+		}
+	}
+}
@@ -1,26 +1,67 @@
 package schwarz.jobs.interview.coupon.core.services;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import schwarz.jobs.interview.coupon.configuration.CouponStackingProperties;
 import schwarz.jobs.interview.coupon.core.domain.Coupon;
-import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.CouponStore;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCodeFilter;
+import schwarz.jobs.interview.coupon.core.services.journal.ApplicationJournal;
+import schwarz.jobs.interview.coupon.core.services.metrics.CouponMetrics;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
 import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.redemption.RedemptionCounters;
+import schwarz.jobs.interview.coupon.core.services.redemption.RedemptionCounters.Reservation;
+import schwarz.jobs.interview.coupon.core.services.scope.BasketLines;
+import schwarz.jobs.interview.coupon.core.services.scope.CouponScopeIndex;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponSnapshot;
+import schwarz.jobs.interview.coupon.core.services.stacking.CombinationSearch;
+import schwarz.jobs.interview.coupon.core.services.stacking.CombinationSearch.Combination;
+import schwarz.jobs.interview.coupon.core.services.validity.CouponValidity;
 import schwarz.jobs.interview.coupon.exception.InvalidBasketException;
 import schwarz.jobs.interview.coupon.util.Constants;
+import schwarz.jobs.interview.coupon.util.Money;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationResultDTO;
+import schwarz.jobs.interview.coupon.web.dto.CacheStatsDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponContributionDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.MultiApplicationResultDTO;
 
 /**
  * Implementation of {@link ICouponService} that provides methods
- * to update basket and create coupons
+ * to update basket and create coupons. All methods are non-blocking
+ * and persist through the configured {@link CouponStore}.
+ * Latencies and outcomes are recorded with {@link CouponMetrics}.
+ * Redemptions of coupons with a limit are counted by the {@link RedemptionCounters},
+ * every application is appended to the {@link ApplicationJournal}.
+ * Coupons apply only inside their validity window, the windows of the loaded coupons are tracked by {@link CouponValidity}.
+ * A coupon limited to SKUs or categories applies to the value of the matching basket lines, the coupons
+ * eligible for the lines of a basket are found through the {@link CouponScopeIndex}.
  * 
  * @author manik sharma
  */
@@ -30,17 +71,47 @@ public class CouponService implements ICouponService{
 
 	private static final Logger log = LoggerFactory.getLogger(CouponService.class);
 
-    private final CouponRepository couponRepository;
+    private final CouponStore couponStore;
+
+    private final CouponCache couponCache;
+
+    private final CouponMetrics couponMetrics;
+
+    private final CouponCodeFilter couponCodeFilter;
+
+    private final CouponSnapshot couponSnapshot;
+
+    private final CouponStackingProperties stackingProperties;
+
+    private final RedemptionCounters redemptionCounters;
+
+    private final ApplicationJournal applicationJournal;
+
+    private final CatalogVersion catalogVersion;
+
+    private final CouponValidity couponValidity;
+
+    private final CouponScopeIndex couponScopeIndex;
     
     /**
-     * Finds the coupon object by code
+     * Finds the coupon object by code, served from the {@link CouponSnapshot} when it is
+     * enabled, else from the {@link CouponCache} and loaded from the store on a cache miss.
+     * Codes rejected by the {@link CouponCodeFilter} do not exist and are never looked up
      * 
      * @param coupon code
-     * @return Optional of {@link Coupon}
+     * @return Mono of {@link Coupon}, empty if the coupon does not exist
      * 
      */
-	public Optional<Coupon> getCoupon(final String code) {
-		return couponRepository.findByCode(code);
+	public Mono<Coupon> getCoupon(final String code) {
+		final String key = normalize(code);
+		if(!couponCodeFilter.mightContain(key)) {
+			return Mono.empty();
+		}
+		if(couponSnapshot.isReady()) {
+			return Mono.justOrEmpty(couponSnapshot.get(key));
+		}
+		return couponCache.get(key, missing -> couponMetrics.time(CouponMetrics.STORE, "findByCode",
+				() -> couponStore.findByCode(missing)).doOnNext(couponValidity::track));
 	} 
 
 	/**
@@ -50,66 +121,382 @@ public class CouponService implements ICouponService{
      * </p> 
      * 
      * @param {@link Basket} and coupon code
-     * @return Optional of {@link Basket}
+     * @return Mono of {@link Basket}, empty if the coupon does not exist
      * 
-     * @throws InvalidBasketException if the basket value is negative
+     * @throws InvalidBasketException if the basket value is negative or out of range or a basket line is invalid
      * 
      */
-    public Optional<Basket> apply(final Basket basket, final String code) {
+    public Mono<Basket> apply(final Basket basket, final String code) {
+
+    	return applyWithOutcome(basket, code).map(ApplicationResultDTO::getBasket);
+    }
 
-    	return getCoupon(code).map(coupon -> {
-    		if(basket.getValue().compareTo(BigDecimal.ZERO) < 0) {
-    			log.error(Constants.INVALID_BASKET_VALUE);
-    			throw new InvalidBasketException(Constants.INVALID_BASKET_VALUE);
-    		}else if(basket.getValue().compareTo(BigDecimal.ZERO) > 0) {
+    /**
+     * <p>This method applies the coupon like {@link #apply(Basket, String)} and
+     *    also reports why a valid basket was not discounted.
+     * </p> 
+     * 
+     * @param {@link Basket} and coupon code
+     * @return Mono of {@link ApplicationResultDTO} with the {@link ApplicationOutcome} and the basket,
+     * empty if the coupon does not exist
+     * 
+     * @throws InvalidBasketException if the basket value is negative or out of range or a basket line is invalid
+     * 
+     */
+    public Mono<ApplicationResultDTO> applyWithOutcome(final Basket basket, final String code) {
+
+    	return couponMetrics.time(CouponMetrics.APPLY, null, () -> getCoupon(code)
+    			.flatMap(coupon -> redemptionCounters.load(List.of(coupon)).thenReturn(coupon)).map(coupon -> {
+    		final ApplicationOutcome outcome = evaluate(basket, coupon);
+    		record(coupon.getCode(), basket, outcome == ApplicationOutcome.APPLIED ? Money.toCents(basket.getAppliedDiscount()) : 0, outcome);
+    		if(outcome == ApplicationOutcome.INVALID) {
+    			final String error = basketError(basket);
+    			log.error(error);
+    			throw new InvalidBasketException(error);
+    		}else if(outcome == ApplicationOutcome.APPLIED) {
     			log.info(Constants.COUPON_APPLIED_SUCCESS);
-    			basket.applyDiscount(coupon.getDiscount());
     		}
     		
-    		return basket;
-    	});
-//        return getCoupon(code).map(coupon -> {
-//
-//            if (basket.getValue().doubleValue() >= 0) {
-//
-//                if (basket.getValue().doubleValue() > 0) {
-//
-//                    basket.applyDiscount(coupon.getDiscount());
-//
-//                } else if (basket.getValue().doubleValue() == 0) {
-//                    return basket;
-//                }
-//
-//            } else {
-//                System.out.println("DEBUG: TRIED TO APPLY NEGATIVE DISCOUNT!");
-//                throw new RuntimeException("Can't apply negative discounts");
-//            }
-//
-//            return basket;
-//        });
+    		return new ApplicationResultDTO(coupon.getCode(), outcome, basket);
+    	}).switchIfEmpty(Mono.fromRunnable(() -> record(normalize(code), basket, 0, ApplicationOutcome.NOT_FOUND))));
     }
 
     /**
-     * <p>This method checks the basket value and 
-     *    if the basket value is > 0 then it applies the discount from the coupon
-     *    else it returns an exception of invalid basket value.
+     * <p>This method applies many coupon codes to their baskets at once.
+     *    All distinct codes are resolved with one lookup and the baskets are
+     *    evaluated in parallel. Invalid items are reported per item and
+     *    never fail the whole batch.
      * </p> 
      * 
-     * @param {@link Basket} and coupon code
-     * @return Optional of {@link Basket}
+     * @param List of {@link ApplicationRequestDTO}
+     * @return Flux of {@link ApplicationResultDTO} in the order of the requests
+     * 
+     */
+    public Flux<ApplicationResultDTO> applyAll(final List<ApplicationRequestDTO> requests) {
+
+    	final Set<String> codes = requests.stream().filter(CouponService::isComplete)
+    			.map(request -> normalize(request.getCode())).filter(couponCodeFilter::mightContain)
+    			.collect(Collectors.toSet());
+    	final ApplicationResultDTO[] results = new ApplicationResultDTO[requests.size()];
+    	return resolve(codes)
+    			.flatMap(coupons -> redemptionCounters.load(coupons.values()).thenReturn(coupons))
+    			.flatMapMany(coupons -> Flux.range(0, requests.size())
+    					.parallel()
+    					.runOn(Schedulers.parallel())
+    					.doOnNext(index -> results[index] = evaluate(requests.get(index), coupons))
+    					.then())
+    			.thenMany(Flux.defer(() -> Flux.fromArray(results)));
+    }
+
+    /**
+     * <p>This method applies a stream of coupon codes to their baskets incrementally.
+     *    The requests are consumed in batches of {@link Constants#STREAM_BATCH_SIZE},
+     *    each batch is evaluated like {@link #applyAll(List)} and its results are
+     *    emitted before the next batch is requested, so memory stays bounded
+     *    and the first results are available before the input completes.
+     * </p> 
+     * 
+     * @param Flux of {@link ApplicationRequestDTO}
+     * @return Flux of {@link ApplicationResultDTO} in the order of the requests
+     * 
+     */
+    public Flux<ApplicationResultDTO> applyStream(final Flux<ApplicationRequestDTO> requests) {
+
+    	return requests.buffer(Constants.STREAM_BATCH_SIZE).concatMap(this::applyAll);
+    }
+
+    /**
+     * <p>This method applies the best combination of several coupon codes to one basket.
+     *    All codes are resolved with one lookup, the codes that are found and whose minimum
+     *    basket value is reached are combined by {@link CombinationSearch} under the stacking
+     *    rules: at most {@code coupon.stacking.max-coupons} coupons, exclusive coupons alone,
+     *    and a total discount of at most the basket value. A chosen coupon that reached its
+     *    redemption limit is dropped and the combination searched again without it.
+     * </p> 
+     * 
+     * @param {@link Basket} and coupon codes, duplicates are dropped
+     * @return Mono of {@link MultiApplicationResultDTO} with the outcome and contribution per code
+     * 
+     * @throws InvalidBasketException if the basket value is null, negative or out of range or a basket line is invalid
+     * @throws IllegalArgumentException if more than {@link Constants#MAX_CODES_PER_BASKET} codes are given
+     * 
+     */
+    public Mono<MultiApplicationResultDTO> applyMulti(final Basket basket, final List<String> codes) {
+
+    	if(codes.size() > Constants.MAX_CODES_PER_BASKET) {
+    		return Mono.error(new IllegalArgumentException(Constants.TOO_MANY_CODES));
+    	}
+    	final long basketValueCents = basketValueCents(basket.getValue());
+    	if(basketValueCents < 0) {
+    		record(null, basket, 0, ApplicationOutcome.INVALID);
+    		return Mono.error(new InvalidBasketException(basketError(basket)));
+    	}
+    	final BasketLines lines = BasketLines.of(basket);
+    	if(lines == null) {
+    		record(null, basket, 0, ApplicationOutcome.INVALID);
+    		return Mono.error(new InvalidBasketException(Constants.INVALID_BASKET_LINES));
+    	}
+    	final Set<String> distinctCodes = codes.stream().filter(code -> code != null && !code.isBlank())
+    			.map(CouponService::normalize).collect(Collectors.toCollection(LinkedHashSet::new));
+    	final List<String> knownCodes = distinctCodes.stream().filter(couponCodeFilter::mightContain)
+    			.collect(Collectors.toList());
+    	return couponMetrics.time(CouponMetrics.APPLY_MULTI, null, () -> resolve(knownCodes)
+    			.flatMap(coupons -> redemptionCounters.load(coupons.values()).thenReturn(coupons))
+    			.map(coupons -> combine(basket, basketValueCents, lines, distinctCodes, coupons)));
+    }
+
+    private MultiApplicationResultDTO combine(final Basket basket, final long basketValueCents, final BasketLines lines,
+    		final Set<String> codes, final Map<String, Coupon> coupons) {
+
+    	final long now = System.currentTimeMillis();
+    	final List<Coupon> candidates = new ArrayList<>(codes.size());
+    	final Set<String> candidateCodes = new LinkedHashSet<>();
+    	for(final String code : codes) {
+    		final Coupon coupon = coupons.get(code);
+    		if(coupon != null && coupon.isValidAt(now) && applicable(valueCents(basketValueCents, lines, coupon), coupon)) {
+    			candidates.add(coupon);
+    			candidateCodes.add(code);
+    		}
+    	}
+    	final Set<String> exhausted = new LinkedHashSet<>();
+    	final Combination combination = reserveBest(basketValueCents, lines, candidates, exhausted);
+
+    	final List<CouponContributionDTO> results = new ArrayList<>(codes.size());
+    	final Set<String> applied = new LinkedHashSet<>();
+    	for(int i = 0; i < combination.getCoupons().size(); i++) {
+    		final String code = combination.getCoupons().get(i).getCode();
+    		applied.add(code);
+    		results.add(new CouponContributionDTO(code, ApplicationOutcome.APPLIED,
+    				Money.toBigDecimal(combination.getContributionCents(i))));
+    	}
+    	for(final String code : codes) {
+    		if(!applied.contains(code)) {
+    			results.add(new CouponContributionDTO(code, !coupons.containsKey(code) ? ApplicationOutcome.NOT_FOUND
+    					: basketValueCents == 0 ? ApplicationOutcome.EMPTY_BASKET
+    					: !coupons.get(code).isValidAt(now) ? windowOutcome(coupons.get(code), now)
+    					: outOfScope(lines, coupons.get(code)) ? ApplicationOutcome.NOT_IN_SCOPE
+    					: exhausted.contains(code) ? ApplicationOutcome.EXHAUSTED
+    					: candidateCodes.contains(code) ? ApplicationOutcome.NOT_COMBINED : ApplicationOutcome.BELOW_MINIMUM, null));
+    		}
+    	}
+    	results.forEach(result -> record(result.getCode(), basket, Money.toCentsOrZero(result.getDiscount()),
+    			result.getOutcome()));
+    	if(!applied.isEmpty()) {
+    		basket.applyDiscount(Money.toBigDecimal(combination.getTotalCents()));
+    	}
+    	return new MultiApplicationResultDTO(basket, results);
+    }
+
+    /**
+     * Searches the best combination and reserves a redemption of each of its coupons. A coupon that
+     * reached its limit is removed from the candidates, the reservations taken are released
+     * and the search runs again, until all coupons of the combination are reserved.
+     * @param basket value in cents, basket lines, candidates and the set collecting the exhausted codes
+     * @return the reserved {@link Combination}, its redemptions committed
+     */
+    private Combination reserveBest(final long basketValueCents, final BasketLines lines, final List<Coupon> candidates,
+    		final Set<String> exhausted) {
+
+    	while(true) {
+    		final Combination combination = CombinationSearch.best(basketValueCents, candidates,
+    				coupon -> discountCents(lines, coupon), stackingProperties.getMaxCoupons());
+    		final List<Reservation> reservations = new ArrayList<>(combination.getCoupons().size());
+    		for(final Coupon coupon : combination.getCoupons()) {
+    			final Reservation reservation = redemptionCounters.reserve(coupon);
+    			if(reservation == null) {
+    				reservations.forEach(Reservation::release);
+    				reservations.clear();
+    				exhausted.add(coupon.getCode());
+    				candidates.remove(coupon);
+    				break;
+    			}
+    			reservations.add(reservation);
+    		}
+    		if(reservations.size() == combination.getCoupons().size()) {
+    			reservations.forEach(Reservation::commit);
+    			return combination;
+    		}
+    	}
+    }
+
+    private ApplicationResultDTO evaluate(final ApplicationRequestDTO request, final Map<String, Coupon> coupons) {
+
+    	if(!isComplete(request)) {
+    		record(request == null ? null : request.getCode(), request == null ? null : request.getBasket(), 0,
+    				ApplicationOutcome.INVALID);
+    		return new ApplicationResultDTO(request == null ? null : request.getCode(), ApplicationOutcome.INVALID,
+    				request == null ? null : request.getBasket());
+    	}
+    	final String code = normalize(request.getCode());
+    	final Coupon coupon = coupons.get(code);
+    	final ApplicationOutcome outcome = coupon == null ? ApplicationOutcome.NOT_FOUND
+    			: evaluate(request.getBasket(), coupon);
+    	record(code, request.getBasket(), outcome == ApplicationOutcome.APPLIED ? Money.toCents(request.getBasket().getAppliedDiscount()) : 0, outcome);
+    	return new ApplicationResultDTO(request.getCode(), outcome, request.getBasket());
+    }
+
+    /**
+     * Applies the discount of the coupon if the basket value is > 0, the coupon is inside its validity window,
+     * the basket value reaches the minimum basket value of the coupon and a redemption is left under its limit.
+     * For a coupon limited to SKUs or categories the value of the matching basket lines takes the place of the
+     * basket value and caps the discount. The basket value is converted to cents once and all checks run on cents, see {@link Money},
+     * a value whose cents do not fit into a {@code long} is {@link ApplicationOutcome#INVALID}.
+     * @param {@link Basket} and {@link Coupon}
+     * @return the {@link ApplicationOutcome}
+     */
+    private ApplicationOutcome evaluate(final Basket basket, final Coupon coupon) {
+
+    	final long basketValueCents = basketValueCents(basket.getValue());
+    	if(basketValueCents < 0) {
+    		return ApplicationOutcome.INVALID;
+    	}
+    	final BasketLines lines = BasketLines.of(basket);
+    	if(lines == null) {
+    		return ApplicationOutcome.INVALID;
+    	}
+    	if(basketValueCents == 0) {
+    		return ApplicationOutcome.EMPTY_BASKET;
+    	}
+    	final long now = System.currentTimeMillis();
+    	if(!coupon.isValidAt(now)) {
+    		return windowOutcome(coupon, now);
+    	}
+    	if(outOfScope(lines, coupon)) {
+    		return ApplicationOutcome.NOT_IN_SCOPE;
+    	}
+    	if(!applicable(valueCents(basketValueCents, lines, coupon), coupon)) {
+    		return ApplicationOutcome.BELOW_MINIMUM;
+    	}
+    	final Reservation reservation = redemptionCounters.reserve(coupon);
+    	if(reservation == null) {
+    		return ApplicationOutcome.EXHAUSTED;
+    	}
+    	basket.applyDiscount(Money.toBigDecimal(discountCents(lines, coupon)));
+    	reservation.commit();
+    	return ApplicationOutcome.APPLIED;
+    }
+
+    /**
+     * Counts the outcome of one application and appends it to the {@link ApplicationJournal}.
+     * @param code, {@link Basket} (both may be null), applied discount in cents and the {@link ApplicationOutcome}
+     */
+    private void record(final String code, final Basket basket, final long discountCents,
+    		final ApplicationOutcome outcome) {
+
+    	couponMetrics.outcome(outcome);
+    	applicationJournal.append(code, valueCents(basket), discountCents, outcome);
+    }
+
+    private static long valueCents(final Basket basket) {
+    	if(basket == null || basket.getValue() == null) {
+    		return ApplicationJournal.NO_VALUE;
+    	}
+    	try {
+    		return Money.toCents(basket.getValue());
+    	} catch(ArithmeticException e) {
+    		// an invalid basket is journaled without its value
+    		return ApplicationJournal.NO_VALUE;
+    	}
+    }
+
+    /**
+     * @param basket value, may be null
+     * @return the basket value in cents, -1 if it is null, negative or its cents do not fit into a {@code long}
+     */
+    private static long basketValueCents(final BigDecimal value) {
+    	if(value == null || value.signum() < 0) {
+    		return -1;
+    	}
+    	try {
+    		return Money.toCents(value);
+    	} catch(ArithmeticException e) {
+    		return -1;
+    	}
+    }
+
+    /**
+     * @param a coupon outside its validity window at the time
+     * @return {@link ApplicationOutcome#NOT_STARTED} or {@link ApplicationOutcome#EXPIRED}
+     */
+    private static ApplicationOutcome windowOutcome(final Coupon coupon, final long now) {
+    	return coupon.isNotStartedAt(now) ? ApplicationOutcome.NOT_STARTED : ApplicationOutcome.EXPIRED;
+    }
+
+    private static boolean applicable(final long basketValueCents, final Coupon coupon) {
+    	return basketValueCents > 0 && basketValueCents >= coupon.getMinBasketValueCents();
+    }
+
+    /**
+     * @return the value the coupon applies to, the value of the matching lines for a scoped coupon
+     */
+    private static long valueCents(final long basketValueCents, final BasketLines lines, final Coupon coupon) {
+    	return coupon.isScoped() ? lines.matchingValueCents(coupon) : basketValueCents;
+    }
+
+    /**
+     * @return the discount of the coupon on the basket, for a scoped coupon at most the value of the matching lines
+     */
+    private static long discountCents(final BasketLines lines, final Coupon coupon) {
+    	return coupon.isScoped() ? Math.min(coupon.getDiscountCents(), lines.matchingValueCents(coupon))
+    			: coupon.getDiscountCents();
+    }
+
+    private static boolean outOfScope(final BasketLines lines, final Coupon coupon) {
+    	return coupon.isScoped() && lines.matchingValueCents(coupon) == 0;
+    }
+
+    /**
+     * @param a basket evaluated as {@link ApplicationOutcome#INVALID}
+     * @return the message of the rejected basket
+     */
+    private static String basketError(final Basket basket) {
+    	if(basket.getValue() == null || basket.getValue().signum() < 0) {
+    		return Constants.INVALID_BASKET_VALUE;
+    	}
+    	return basketValueCents(basket.getValue()) < 0 ? Constants.BASKET_VALUE_OUT_OF_RANGE
+    			: Constants.INVALID_BASKET_LINES;
+    }
+
+    private static boolean isComplete(final ApplicationRequestDTO request) {
+    	return request != null && request.getCode() != null && !request.getCode().isBlank()
+    			&& request.getBasket() != null;
+    }
+
+    /**
+     * <p>This method validates the input and saves the coupon under its normalized code.
+     *    An existing coupon with the same code is overwritten.
+     * </p> 
      * 
-     * @throws InvalidBasketException if the basket value is negative
+     * @param {@link CouponDTO}
+     * @return the saved {@link Coupon}
+     * 
+     * @throws IllegalArgumentException if the input is invalid
      * 
      */
-	public Coupon createCoupon(final CouponDTO couponDTO) {
+	public Mono<Coupon> createCoupon(final CouponDTO couponDTO) {
 
-		Coupon coupon = null;
-		log.info("Creating coupon...");
-		validateInputs(couponDTO);
-		coupon = Coupon.builder().code(couponDTO.getCode().toLowerCase()).discount(couponDTO.getDiscount())
-				.minBasketValue(couponDTO.getMinBasketValue()).build();
+		return couponMetrics.time(CouponMetrics.CREATE, null, () -> {
+			log.info("Creating coupon...");
+			validateInputs(couponDTO);
+			final String code = normalize(couponDTO.getCode());
+			final Coupon coupon = Coupon.builder().code(code).discount(couponDTO.getDiscount())
+					.minBasketValue(couponDTO.getMinBasketValue()).exclusive(couponDTO.isExclusive())
+					.maxRedemptions(couponDTO.getMaxRedemptions()).validFrom(millis(couponDTO.getValidFrom()))
+					.validUntil(millis(couponDTO.getValidUntil())).skus(scope(couponDTO.getSkus()))
+					.categories(scope(couponDTO.getCategories())).build();
 
-		return couponRepository.save(coupon);
+			couponCodeFilter.add(code);
+			return couponMetrics.time(CouponMetrics.STORE, "findByCode", () -> couponStore.findByCode(code))
+					.doOnNext(existing -> coupon.setId(existing.getId()))
+					.then(couponMetrics.time(CouponMetrics.STORE, "save", () -> couponStore.save(coupon)))
+					.doOnSuccess(savedCoupon -> {
+						couponCodeFilter.add(code);
+						couponCache.invalidate(code);
+						couponSnapshot.put(savedCoupon);
+						couponScopeIndex.put(savedCoupon);
+						catalogVersion.bump(List.of(code));
+					});
+		});
 	}
 
     /**
@@ -120,32 +507,270 @@ public class CouponService implements ICouponService{
      */
     private void validateInputs(CouponDTO couponDTO) {
     	
-    	if(couponDTO.getDiscount() == null || couponDTO.getDiscount().doubleValue() < 0) {
-    		log.error("Invalid Inputs: Discount Value cannot be null or negative.");
-    		throw new IllegalArgumentException(Constants.INVALID_DISCOUNT_VALUE);
+    	final String error = validationError(couponDTO);
+    	if(error != null) {
+    		log.error("Invalid Inputs: {}", error);
+    		throw new IllegalArgumentException(error);
+    	}
+    	
+    }
+
+    /**
+     * The validation rules of {@link #createCoupon(CouponDTO)}, shared with the bulk import.
+     * The code and the amounts also have to fit into the columns of the coupons table.
+     * 
+     * @param couponDTO
+     * @return the error message, null if the input is valid
+     */
+    static String validationError(final CouponDTO couponDTO) {
+    	
+    	if(couponDTO.getDiscount() == null || couponDTO.getDiscount().signum() < 0) {
+    		return Constants.INVALID_DISCOUNT_VALUE;
     	}
     	if(couponDTO.getCode() == null || couponDTO.getCode().isBlank()) {
-    		log.error("Invalid Inputs: Coupon code cannot be null or blank.");
-    		throw new IllegalArgumentException(Constants.INVALID_COUPON_CODE);
+    		return Constants.INVALID_COUPON_CODE;
     	}
-    	if(couponDTO.getMinBasketValue() == null || couponDTO.getMinBasketValue().doubleValue() < 0) {
-    		log.error("Invalid Inputs: Basket Value cannot be null or negative.");
-    		throw new IllegalArgumentException(Constants.INVALID_BASKET_VALUE);
+    	if(couponDTO.getMinBasketValue() == null || couponDTO.getMinBasketValue().signum() < 0) {
+    		return Constants.INVALID_BASKET_VALUE;
     	}
-    	
+    	if(couponDTO.getCode().trim().length() > Constants.MAX_COUPON_CODE_LENGTH) {
+    		return Constants.COUPON_CODE_TOO_LONG;
+    	}
+    	if(couponDTO.getMaxRedemptions() != null && couponDTO.getMaxRedemptions() < 1) {
+    		return Constants.INVALID_MAX_REDEMPTIONS;
+    	}
+    	if(couponDTO.getValidFrom() != null && couponDTO.getValidUntil() != null
+    			&& !millis(couponDTO.getValidUntil()).isAfter(millis(couponDTO.getValidFrom()))) {
+    		return Constants.INVALID_VALIDITY;
+    	}
+    	if(!validScope(couponDTO.getSkus()) || !validScope(couponDTO.getCategories())) {
+    		return Constants.INVALID_SCOPE;
+    	}
+    	if(couponDTO.getDiscount().compareTo(Constants.MAX_AMOUNT) > 0
+    			|| couponDTO.getMinBasketValue().compareTo(Constants.MAX_AMOUNT) > 0) {
+    		return Constants.AMOUNT_TOO_LARGE;
+    	}
+    	return null;
     }
 	
     /**
-     * This method returns the coupons based on codes from the database
+     * The bounds of the validity windows are kept in milliseconds, the resolution of the timers.
+     * @param instant, may be null
+     * @return the instant truncated to milliseconds
+     */
+    static Instant millis(final Instant instant) {
+    	return instant == null ? null : instant.truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private static boolean validScope(final Set<String> entries) {
+    	if(entries == null) {
+    		return true;
+    	}
+    	if(entries.size() > Constants.MAX_SCOPE_ENTRIES) {
+    		return false;
+    	}
+    	for(final String entry : entries) {
+    		if(entry == null || entry.isBlank() || entry.contains(Coupon.SCOPE_SEPARATOR)
+    				|| entry.trim().length() > Constants.MAX_SCOPE_ENTRY_LENGTH) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
+    /**
+     * SKUs and categories are stored and matched trimmed and in lower case, like coupon codes.
+     * @param validated SKUs or categories, may be null
+     * @return the value of the scope column, null if the coupon is not limited
+     */
+    static String scope(final Set<String> entries) {
+    	return entries == null ? null
+    			: Coupon.joinScope(entries.stream().map(CouponService::normalize).collect(Collectors.toSet()));
+    }
+	
+    /**
+     * This method returns the coupons based on codes from the database.
+     * Duplicate codes are dropped, the order of the requested codes is kept
+     * and all codes missing in the cache are loaded with bulk queries.
+     * Coupons outside their validity window are not returned.
      * @param List of coupon codes
      * @return {@link Optional of CouponDTO}
      */
-	public List<CouponDTO> getCoupons(List<String> couponCodes) {
+	public Flux<CouponDTO> getCoupons(List<String> couponCodes) {
 
-		final ArrayList<Coupon> foundCoupons = new ArrayList<>();
-		couponCodes.forEach(code -> getCoupon(code.toLowerCase()).ifPresent(foundCoupons::add));
-		return foundCoupons.stream().map(coupon -> new CouponDTO(coupon.getDiscount(), coupon.getCode(), coupon.getMinBasketValue())).collect(Collectors.toList());
+		couponMetrics.requestedCodes(couponCodes.size());
+		final Set<String> codes = couponCodes.stream().map(CouponService::normalize)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+		final List<String> knownCodes = codes.stream().filter(couponCodeFilter::mightContain).collect(Collectors.toList());
+		return couponMetrics.time(CouponMetrics.GET, () -> resolve(knownCodes)
+				.flatMapIterable(foundCoupons -> {
+					final long now = System.currentTimeMillis();
+					return codes.stream().map(foundCoupons::get).filter(coupon -> coupon != null && coupon.isValidAt(now))
+						.map(CouponService::toDto)
+						.collect(Collectors.toList());
+				}));
 		
 	} 
 
+    /**
+     * This method returns the coupons valid now that can be applied to a basket of the given value.
+     * The {@link CouponSnapshot} answers from its index sorted by minimum basket value when it is enabled,
+     * else the store reads the coupons by the minimum basket value index.
+     * @param basketValue the basket value
+     * @param limit maximum number of coupons, at most {@link Constants#MAX_ELIGIBLE_COUPONS}
+     * @param bestFirst largest discount first instead of ascending minimum basket value
+     * @return Flux of the eligible {@link CouponDTO}s
+     * 
+     * @throws IllegalArgumentException if the basket value is negative or out of range or the limit out of range
+     */
+	public Flux<CouponDTO> getEligibleCoupons(final BigDecimal basketValue, final int limit, final boolean bestFirst) {
+
+		if(basketValue == null || basketValue.signum() < 0) {
+			return Flux.error(new IllegalArgumentException(Constants.INVALID_BASKET_VALUE));
+		}
+		if(basketValueCents(basketValue) < 0) {
+			return Flux.error(new IllegalArgumentException(Constants.BASKET_VALUE_OUT_OF_RANGE));
+		}
+		if(limit < 1 || limit > Constants.MAX_ELIGIBLE_COUPONS) {
+			return Flux.error(new IllegalArgumentException(Constants.INVALID_LIMIT));
+		}
+		return couponMetrics.time(CouponMetrics.ELIGIBLE, () -> eligibleByValue(basketValue, limit, bestFirst)
+				.flatMapIterable(eligible -> eligible)
+				.map(CouponService::toDto));
+	}
+
+    /**
+     * This method returns the coupons valid now that can be applied to the basket: those eligible by the basket
+     * value like {@link #getEligibleCoupons(BigDecimal, int, boolean)} and those limited to SKUs or categories
+     * whose matching lines reach their minimum basket value. The scoped candidates are looked up in the
+     * {@link CouponScopeIndex} by the SKUs and categories of the lines, the rest of the catalog is never checked.
+     * @param basket the basket with its lines
+     * @param limit maximum number of coupons, at most {@link Constants#MAX_ELIGIBLE_COUPONS}
+     * @param bestFirst largest discount first instead of ascending minimum basket value
+     * @return Flux of the eligible {@link CouponDTO}s
+     * 
+     * @throws IllegalArgumentException if the basket value is negative or out of range, a basket line is invalid
+     * or the limit out of range
+     */
+	public Flux<CouponDTO> getEligibleCoupons(final Basket basket, final int limit, final boolean bestFirst) {
+
+		if(basket == null || basket.getValue() == null || basket.getValue().signum() < 0) {
+			return Flux.error(new IllegalArgumentException(Constants.INVALID_BASKET_VALUE));
+		}
+		if(basketValueCents(basket.getValue()) < 0) {
+			return Flux.error(new IllegalArgumentException(Constants.BASKET_VALUE_OUT_OF_RANGE));
+		}
+		if(limit < 1 || limit > Constants.MAX_ELIGIBLE_COUPONS) {
+			return Flux.error(new IllegalArgumentException(Constants.INVALID_LIMIT));
+		}
+		final BasketLines lines = BasketLines.of(basket);
+		if(lines == null) {
+			return Flux.error(new IllegalArgumentException(Constants.INVALID_BASKET_LINES));
+		}
+		final Comparator<Coupon> order = bestFirst ? Comparator.comparingLong(Coupon::getDiscountCents).reversed()
+				: Comparator.comparingLong(Coupon::getMinBasketValueCents);
+		return couponMetrics.time(CouponMetrics.ELIGIBLE, () -> eligibleByValue(basket.getValue(), limit, bestFirst)
+				.zipWith(eligibleByLines(lines), (byValue, byLines) -> {
+					if(byLines.isEmpty()) {
+						return byValue;
+					}
+					final List<Coupon> merged = new ArrayList<>(byValue.size() + byLines.size());
+					merged.addAll(byValue);
+					merged.addAll(byLines);
+					merged.sort(order);
+					return merged.size() > limit ? merged.subList(0, limit) : merged;
+				})
+				.flatMapIterable(eligible -> eligible)
+				.map(CouponService::toDto));
+	}
+
+    /**
+     * @return Mono of the coupons without scope eligible by the basket value, from the {@link CouponSnapshot}
+     * when it is enabled, else read by the minimum basket value index of the store
+     */
+	private Mono<List<Coupon>> eligibleByValue(final BigDecimal basketValue, final int limit, final boolean bestFirst) {
+
+		return couponSnapshot.isReady()
+				? Mono.fromSupplier(() -> couponSnapshot.eligible(Money.toCents(basketValue), limit, bestFirst))
+				: couponMetrics.time(CouponMetrics.STORE, "findEligible",
+						() -> couponStore.findEligible(basketValue, Instant.now(), limit, bestFirst).collectList());
+	}
+
+    /**
+     * @return Mono of the scoped coupons valid now whose matching lines reach their minimum basket value
+     */
+	private Mono<List<Coupon>> eligibleByLines(final BasketLines lines) {
+
+		final Set<String> candidates = lines.isEmpty() ? Set.of() : couponScopeIndex.candidates(lines);
+		if(candidates.isEmpty()) {
+			return Mono.just(List.of());
+		}
+		couponMetrics.scopeCandidates(candidates.size());
+		return resolve(candidates).map(coupons -> {
+			final long now = System.currentTimeMillis();
+			return coupons.values().stream().filter(coupon -> coupon.isScoped() && coupon.isValidAt(now)
+					&& applicable(lines.matchingValueCents(coupon), coupon)).collect(Collectors.toList());
+		});
+	}
+
+    /**
+     * Looks the coupons up in the {@link CouponSnapshot} when it is enabled,
+     * else in the {@link CouponCache} loading the missing ones from the store
+     * @param normalized coupon codes
+     * @return Mono of the found coupons keyed by code
+     */
+	private Mono<Map<String, Coupon>> resolve(final Collection<String> codes) {
+
+		if(couponSnapshot.isReady()) {
+			return Mono.fromSupplier(() -> couponSnapshot.getAll(codes));
+		}
+		return couponCache.getAll(codes, this::findCoupons);
+	}
+
+    /**
+     * Loads the coupons with IN-clause queries of at most
+     * {@link Constants#MAX_IN_CLAUSE_PARAMETERS} codes each and tracks their validity windows
+     * @param normalized coupon codes
+     * @return Mono of the found coupons keyed by code
+     */
+	private Mono<Map<String, Coupon>> findCoupons(final Iterable<? extends String> codes) {
+
+		return Flux.<String>fromIterable(codes)
+				.buffer(Constants.MAX_IN_CLAUSE_PARAMETERS)
+				.concatMap(chunk -> couponMetrics.time(CouponMetrics.STORE, "findByCodeIn",
+						() -> couponStore.findByCodeIn(chunk).collectList()))
+				.flatMapIterable(coupons -> coupons)
+				.doOnNext(couponValidity::track)
+				.collectMap(Coupon::getCode);
+	}
+
+    /**
+     * This method returns the hit, miss and eviction counters of the coupon cache
+     * and the lookups saved by the {@link CouponCodeFilter}
+     * @return {@link CacheStatsDTO}
+     */
+	public CacheStatsDTO getCacheStats() {
+
+		final CacheStats stats = couponCache.stats();
+		return CacheStatsDTO.builder().size(couponCache.size()).hitCount(stats.hitCount())
+				.missCount(stats.missCount()).evictionCount(stats.evictionCount()).hitRate(stats.hitRate())
+				.filterRejections(couponCodeFilter.getRejections()).build();
+	}
+
+	private static CouponDTO toDto(final Coupon coupon) {
+		return new CouponDTO(coupon.getDiscount(), coupon.getCode(), coupon.getMinBasketValue(), coupon.isExclusive(),
+				coupon.getMaxRedemptions(), coupon.getValidFrom(), coupon.getValidUntil(),
+				coupon.getSkus() == null ? null : new TreeSet<>(coupon.getSkuSet()),
+				coupon.getCategories() == null ? null : new TreeSet<>(coupon.getCategorySet()));
+	}
+
+    /**
+     * Coupon codes are stored, indexed and cached trimmed and in lower case
+     * @param coupon code
+     * @return normalized coupon code
+     */
+	public static String normalize(final String code) {
+		return code.trim().toLowerCase(Locale.ROOT);
+	}
+
 }
@@ -0,0 +1,21 @@
+package schwarz.jobs.interview.coupon.core.services;
+
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.web.dto.GenerationJobDTO;
+import schwarz.jobs.interview.coupon.web.dto.GenerationRequestDTO;
+
+/**
+ * A service interface that provides methods
+ * to generate many unique single-use coupon codes in the background
+ * 
+ * @author manik sharma
+ */
+public interface ICouponGenerationService {
+
+	 public Mono<GenerationJobDTO> startJob(final GenerationRequestDTO request);
+	 
+	 public Mono<GenerationJobDTO> getJob(final long id);
+	 
+	 public Mono<GenerationJobDTO> resumeJob(final long id);
+	 
+}
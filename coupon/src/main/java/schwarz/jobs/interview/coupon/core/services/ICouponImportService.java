@@ -0,0 +1,18 @@
+package schwarz.jobs.interview.coupon.core.services;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.core.services.model.ImportFormat;
+import schwarz.jobs.interview.coupon.web.dto.ImportReportDTO;
+
+/**
+ * A service interface that provides a method
+ * to import many coupon definitions at once
+ * 
+ * @author manik sharma
+ */
+public interface ICouponImportService {
+
+	 public Mono<ImportReportDTO> importCoupons(final Flux<String> lines, final ImportFormat format);
+	 
+}
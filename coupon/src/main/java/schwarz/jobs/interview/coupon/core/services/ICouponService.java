@@ -1,11 +1,17 @@
 package schwarz.jobs.interview.coupon.core.services;
 
+import java.math.BigDecimal;
 import java.util.List;
-import java.util.Optional;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import schwarz.jobs.interview.coupon.core.domain.Coupon;
 import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationResultDTO;
+import schwarz.jobs.interview.coupon.web.dto.CacheStatsDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.MultiApplicationResultDTO;
 
 /**
  * A service interface that provides methods
@@ -15,10 +21,24 @@ import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
  */
 public interface ICouponService {
 
-	 public Optional<Basket> apply(final Basket basket, final String code);
+	 public Mono<Basket> apply(final Basket basket, final String code);
+
+	 public Mono<ApplicationResultDTO> applyWithOutcome(final Basket basket, final String code);
+	 
+	 public Flux<ApplicationResultDTO> applyAll(final List<ApplicationRequestDTO> requests);
+	 
+	 public Flux<ApplicationResultDTO> applyStream(final Flux<ApplicationRequestDTO> requests);
+
+	 public Mono<MultiApplicationResultDTO> applyMulti(final Basket basket, final List<String> codes);
 	 
-	 public Coupon createCoupon(final CouponDTO couponDTO);
+	 public Mono<Coupon> createCoupon(final CouponDTO couponDTO);
 	 
-	 public List<CouponDTO> getCoupons(List<String> couponCodes);
+	 public Flux<CouponDTO> getCoupons(List<String> couponCodes);
+
+	 public Flux<CouponDTO> getEligibleCoupons(final BigDecimal basketValue, final int limit, final boolean bestFirst);
+
+	 public Flux<CouponDTO> getEligibleCoupons(final Basket basket, final int limit, final boolean bestFirst);
+
+	 public CacheStatsDTO getCacheStats();
 	 
 }
@@ -0,0 +1,101 @@
+package schwarz.jobs.interview.coupon.core.services.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of strings.
+ * <p>
+ * {@link #mightContain(String)} never returns false for a string that was {@link #put(String) put},
+ * it returns true for other strings with about the configured false positive rate.
+ * The bit positions are derived from one 64-bit hash with double hashing.
+ * </p>
+ *
+ * @author manik sharma
+ */
+class BloomFilter {
+
+	private static final double LN2 = Math.log(2);
+
+	private final AtomicLongArray words;
+
+	private final long bits;
+
+	private final int hashFunctions;
+
+	private final AtomicLong insertions = new AtomicLong();
+
+	/**
+	 * @param expectedInsertions number of strings the filter is sized for
+	 * @param falsePositiveRate  false positive rate at the expected insertions
+	 * @param maxBits            upper bound of the size
+	 */
+	BloomFilter(final long expectedInsertions, final double falsePositiveRate, final long maxBits) {
+		final long insertionCount = Math.max(1, expectedInsertions);
+		final long optimalBits = (long) Math.ceil(-insertionCount * Math.log(falsePositiveRate) / (LN2 * LN2));
+		final long words = Math.max(1, (Math.min(optimalBits, Math.max(64, maxBits)) + 63) / 64);
+		if (words > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Bloom filter cannot be larger than 16 GB.");
+		}
+		this.words = new AtomicLongArray((int) words);
+		this.bits = words * 64;
+		this.hashFunctions = Math.max(1, (int) Math.round((double) bits / insertionCount * LN2));
+	}
+
+	void put(final String value) {
+		final long hash = hash(value);
+		final long step = mix(hash) | 1;
+		for (int i = 0; i < hashFunctions; i++) {
+			final long bit = Math.floorMod(hash + i * step, bits);
+			final int word = (int) (bit >>> 6);
+			final long mask = 1L << bit;
+			if ((words.get(word) & mask) == 0) {
+				words.getAndAccumulate(word, mask, (current, update) -> current | update);
+			}
+		}
+		insertions.incrementAndGet();
+	}
+
+	boolean mightContain(final String value) {
+		final long hash = hash(value);
+		final long step = mix(hash) | 1;
+		for (int i = 0; i < hashFunctions; i++) {
+			final long bit = Math.floorMod(hash + i * step, bits);
+			if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	long bitSize() {
+		return bits;
+	}
+
+	/**
+	 * @return the false positive rate at the current number of insertions
+	 */
+	double expectedFalsePositiveRate() {
+		return Math.pow(1 - Math.exp(-hashFunctions * (double) insertions.get() / bits), hashFunctions);
+	}
+
+	/**
+	 * FNV-1a over the characters, finished with {@link #mix(long)}.
+	 */
+	private static long hash(final String value) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+		}
+		return mix(hash);
+	}
+
+	/**
+	 * The SplitMix64 finalizer.
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+}
@@ -0,0 +1,143 @@
+package schwarz.jobs.interview.coupon.core.services.cache;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.configuration.CouponCatalogProperties;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+import schwarz.jobs.interview.coupon.web.dto.CouponChangeDTO;
+
+/**
+ * Version of the coupon catalog as seen by this instance, the basis of the ETags of the lookup endpoint.
+ * <p>
+ * Every writer of coupons {@link #bump(Collection) bumps} the version with the written codes once its write is
+ * committed. Writes of other instances are detected every {@code pollInterval} by the number of coupons and
+ * their latest {@code updated_at}, their codes are unknown. Versions are only comparable within one instance,
+ * {@link #getInstance()} tells instances and restarts apart.
+ * </p>
+ * <p>
+ * Every bump is published to the subscribers of {@link #changes()}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class CatalogVersion implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogVersion.class);
+
+	private final CouponCatalogProperties properties;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final BlockingExecutor blockingExecutor;
+
+	private final long instance = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+
+	private final AtomicLong version = new AtomicLong();
+
+	private final DirectProcessor<CouponChangeDTO> changeProcessor = DirectProcessor.create();
+
+	private final FluxSink<CouponChangeDTO> changes = changeProcessor.sink();
+
+	/** Number of coupons and latest update seen by the last poll. */
+	private volatile String tableState;
+
+	private Disposable polls;
+
+	public CatalogVersion(final CouponCatalogProperties properties, final JdbcTemplate jdbcTemplate,
+			final BlockingExecutor blockingExecutor) {
+		this.properties = properties;
+		this.jdbcTemplate = jdbcTemplate;
+		this.blockingExecutor = blockingExecutor;
+	}
+
+	/**
+	 * @return the current version, changed by every write of the catalog
+	 */
+	public long get() {
+		return version.get();
+	}
+
+	/**
+	 * @return random identifier of this instance
+	 */
+	public long getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Marks a committed write of coupons.
+	 *
+	 * @param codes the normalized codes written, empty if they are unknown
+	 */
+	public void bump(final Collection<String> codes) {
+		final long next = version.incrementAndGet();
+		changes.next(new CouponChangeDTO(instance, next, List.copyOf(codes)));
+	}
+
+	/**
+	 * A subscriber that falls behind skips to the latest change, it sees a gap in the versions.
+	 *
+	 * @return Flux of the changes committed after the subscription
+	 */
+	public Flux<CouponChangeDTO> changes() {
+		return changeProcessor.onBackpressureLatest();
+	}
+
+	/**
+	 * Bumps the version if the coupons table changed since the last poll.
+	 *
+	 * @return Mono completing after the check
+	 */
+	public Mono<Void> poll() {
+		return blockingExecutor.call(() -> jdbcTemplate.queryForObject(
+				"SELECT COUNT(*), MAX(updated_at) FROM coupons", (resultSet, row) -> {
+					final Timestamp latest = resultSet.getTimestamp(2);
+					return resultSet.getLong(1) + "@" + (latest == null ? "" : latest.toInstant());
+				}))
+				.doOnNext(state -> {
+					if (tableState != null && !tableState.equals(state)) {
+						bump(List.of());
+					}
+					tableState = state;
+				})
+				.then();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		polls = Flux.interval(Duration.ZERO, properties.getPollInterval())
+				.onBackpressureDrop()
+				.concatMap(tick -> poll().onErrorResume(error -> {
+					log.error("Polling the coupon catalog version failed.", error);
+					return Mono.empty();
+				}))
+				.subscribe();
+	}
+
+	@Override
+	public void destroy() {
+		if (polls != null) {
+			polls.dispose();
+		}
+		changes.complete();
+	}
+}
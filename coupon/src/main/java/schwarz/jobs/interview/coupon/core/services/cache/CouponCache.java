@@ -0,0 +1,138 @@
+package schwarz.jobs.interview.coupon.core.services.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.configuration.CouponCacheProperties;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * Read-through cache of coupons keyed by their normalized code.
+ * <p>
+ * The cache is bounded by size and entries expire after a configurable time.
+ * Only existing coupons are cached, unknown codes always go to the loader.
+ * Loads are non-blocking, the cache holds the pending result of the loader.
+ * </p>
+ * <p>
+ * Concurrent lookups of a code that is not cached share one pending load (single flight): the first
+ * caller starts the loader, all others wait for its result, so a burst of lookups of a fresh code issues
+ * one query. This holds in the reactive and the JPA execution mode, the loader is only started here.
+ * The callers served per load are recorded as {@code coupon.cache.load.callers}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class CouponCache {
+
+	/** Callers of a load that already completed, late joiners are served by the completed result. */
+	private static final int COMPLETED = -1;
+
+	private final AsyncCache<String, Coupon> cache;
+
+	private final Map<String, PendingLoad> pendingLoads = new ConcurrentHashMap<>();
+
+	private final DistributionSummary loadCallers;
+
+	public CouponCache(final CouponCacheProperties properties, final MeterRegistry meterRegistry) {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(properties.getMaximumSize())
+				.expireAfterWrite(properties.getExpireAfterWrite())
+				.recordStats()
+				.buildAsync();
+		this.loadCallers = DistributionSummary.builder("coupon.cache.load.callers")
+				.description("Concurrent lookups served by one coupon load").register(meterRegistry);
+	}
+
+	/**
+	 * Returns the cached coupon for the code or loads it with the given loader.
+	 *
+	 * @param code   normalized coupon code
+	 * @param loader function loading the coupon on a cache miss
+	 * @return Mono of {@link Coupon}, empty if the coupon does not exist
+	 */
+	public Mono<Coupon> get(final String code, final Function<String, Mono<Coupon>> loader) {
+		return Mono.fromFuture(() -> {
+			final boolean[] started = { false };
+			final CompletableFuture<Coupon> future = cache.get(code, (key, executor) -> {
+				started[0] = true;
+				return load(key, loader);
+			});
+			if (!started[0] && !future.isDone()) {
+				final PendingLoad pending = pendingLoads.get(code);
+				if (pending != null && pending.future == future) {
+					pending.callers.updateAndGet(callers -> callers == COMPLETED ? COMPLETED : callers + 1);
+				}
+			}
+			return future;
+		});
+	}
+
+	/**
+	 * Returns the cached coupons for the codes and loads all missing codes
+	 * with a single call of the given bulk loader.
+	 *
+	 * @param codes  normalized coupon codes
+	 * @param loader function loading the missing coupons keyed by code
+	 * @return Mono of the found coupons keyed by code, unknown codes are absent
+	 */
+	public Mono<Map<String, Coupon>> getAll(final Iterable<String> codes,
+			final Function<Iterable<? extends String>, Mono<Map<String, Coupon>>> loader) {
+		return Mono.fromFuture(() -> cache.getAll(codes, (keys, executor) -> loader.apply(keys).toFuture()));
+	}
+
+	private CompletableFuture<Coupon> load(final String code, final Function<String, Mono<Coupon>> loader) {
+		final PendingLoad pending = new PendingLoad();
+		pendingLoads.put(code, pending);
+		pending.future = loader.apply(code).toFuture().whenComplete((coupon, error) -> {
+			pendingLoads.remove(code, pending);
+			loadCallers.record(pending.callers.getAndSet(COMPLETED));
+		});
+		return pending.future;
+	}
+
+	/**
+	 * Removes the coupon for the code so the next lookup reloads it.
+	 *
+	 * @param code normalized coupon code
+	 */
+	public void invalidate(final String code) {
+		cache.synchronous().invalidate(code);
+	}
+
+	/**
+	 * @return the hit, miss and eviction counters of the cache
+	 */
+	public CacheStats stats() {
+		return cache.synchronous().stats();
+	}
+
+	/**
+	 * @return the approximate number of cached coupons
+	 */
+	public long size() {
+		return cache.synchronous().estimatedSize();
+	}
+
+	/**
+	 * A load in flight and the number of callers waiting for it.
+	 */
+	private static final class PendingLoad {
+
+		private final AtomicInteger callers = new AtomicInteger(1);
+
+		private volatile CompletableFuture<Coupon> future;
+	}
+}
@@ -0,0 +1,187 @@
+package schwarz.jobs.interview.coupon.core.services.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.configuration.CouponFilterProperties;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+
+/**
+ * Bloom filter over all known coupon codes, which rejects definitely unknown codes
+ * before the {@link CouponCache} and the store are asked.
+ * <p>
+ * The filter is built from the coupons table on startup and rebuilt every {@code rebuildInterval}.
+ * Every writer of coupons adds the code before the write, so a lookup right after the commit passes, and
+ * once more after the commit, so a rebuild whose read of the table missed the uncommitted write still gets
+ * the code. Codes added during a rebuild go into both the current and the new filter. Codes are never
+ * removed, a rebuild drops codes deleted from the table. Until the first build and when disabled all codes pass.
+ * Rejected lookups are counted as {@code coupon.filter.rejected}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class CouponCodeFilter implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponCodeFilter.class);
+
+	private final CouponFilterProperties properties;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final BlockingExecutor blockingExecutor;
+
+	private final Counter rejected;
+
+	private volatile BloomFilter current;
+
+	private volatile BloomFilter building;
+
+	private Disposable rebuilds;
+
+	public CouponCodeFilter(final CouponFilterProperties properties, final JdbcTemplate jdbcTemplate,
+			final BlockingExecutor blockingExecutor, final MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.jdbcTemplate = jdbcTemplate;
+		this.blockingExecutor = blockingExecutor;
+		this.rejected = Counter.builder("coupon.filter.rejected")
+				.description("Lookups of unknown codes rejected by the Bloom filter").register(meterRegistry);
+		Gauge.builder("coupon.filter.size", this, filter -> filter.current == null ? 0 : filter.current.bitSize() / 8)
+				.baseUnit("bytes").description("Size of the Bloom filter").register(meterRegistry);
+		Gauge.builder("coupon.filter.false.positive.rate", this,
+				filter -> filter.current == null ? 1 : filter.current.expectedFalsePositiveRate())
+				.description("Expected false positive rate of the Bloom filter").register(meterRegistry);
+	}
+
+	/**
+	 * @param code normalized coupon code
+	 * @return false if the code definitely does not exist
+	 */
+	public boolean mightContain(final String code) {
+		final BloomFilter filter = current;
+		if (filter == null || filter.mightContain(code)) {
+			return true;
+		}
+		rejected.increment();
+		return false;
+	}
+
+	/**
+	 * Adds the code of a coupon that is about to be written, and again once it is committed.
+	 * <p>
+	 * A rebuild publishes the new filter before it stops building it, so a code either goes into the
+	 * filter being built or the current filter changed during the call and the code goes into the new one.
+	 * </p>
+	 *
+	 * @param code normalized coupon code
+	 */
+	public void add(final String code) {
+		BloomFilter filter = current;
+		while (true) {
+			if (filter != null) {
+				filter.put(code);
+			}
+			final BloomFilter next = building;
+			if (next != null) {
+				next.put(code);
+			}
+			final BloomFilter now = current;
+			if (now == filter) {
+				return;
+			}
+			filter = now;
+		}
+	}
+
+	/**
+	 * @return the number of lookups rejected by the filter
+	 */
+	public long getRejections() {
+		return (long) rejected.count();
+	}
+
+	/**
+	 * Builds a new filter from the codes of the coupons table and replaces the current one.
+	 * <p>
+	 * The codes added from the moment the new filter exists go into it directly. The codes of writes that
+	 * were not committed yet when the table is read are added again by their writers after the commit.
+	 * </p>
+	 *
+	 * @return Mono completing once the new filter is in use
+	 */
+	public Mono<Void> rebuild() {
+		return blockingExecutor.call(() -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupons", Long.class))
+				.map(this::startBuilding)
+				.flatMap(next -> blockingExecutor.call(() -> {
+					jdbcTemplate.query("SELECT code FROM coupons", resultSet -> {
+						next.put(resultSet.getString(1));
+					});
+					return next;
+				}))
+				.doOnNext(this::finishBuilding)
+				.doOnError(error -> building = null)
+				.then();
+	}
+
+	/**
+	 * Builds a new filter from the given codes and replaces the current one.
+	 *
+	 * @param codes all known normalized coupon codes
+	 */
+	public void rebuild(final Collection<String> codes) {
+		final BloomFilter next = startBuilding(codes.size());
+		codes.forEach(next::put);
+		finishBuilding(next);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		rebuilds = Flux.interval(Duration.ZERO, properties.getRebuildInterval())
+				.onBackpressureDrop()
+				.concatMap(tick -> rebuild().onErrorResume(error -> {
+					log.error("Rebuilding the coupon code filter failed.", error);
+					return Mono.empty();
+				}))
+				.subscribe();
+	}
+
+	@Override
+	public void destroy() {
+		if (rebuilds != null) {
+			rebuilds.dispose();
+		}
+	}
+
+	private BloomFilter startBuilding(final long count) {
+		// room for the codes created until the next rebuild
+		final long expectedCodes = Math.max(properties.getExpectedCodes(), count * 2);
+		final long maxBits = properties.getMaxMemory().toBytes() * 8;
+		final BloomFilter next = new BloomFilter(expectedCodes, properties.getFalsePositiveRate(), maxBits);
+		building = next;
+		return next;
+	}
+
+	private void finishBuilding(final BloomFilter next) {
+		current = next;
+		building = null;
+		log.info("Coupon code filter rebuilt in {} KB, expected false positive rate {}.", next.bitSize() / 8 / 1024,
+				String.format("%.5f", next.expectedFalsePositiveRate()));
+	}
+}
@@ -0,0 +1,166 @@
+package schwarz.jobs.interview.coupon.core.services.execution;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import schwarz.jobs.interview.coupon.configuration.ExecutionProperties;
+import schwarz.jobs.interview.coupon.exception.ServiceOverloadedException;
+import schwarz.jobs.interview.coupon.util.Constants;
+
+/**
+ * Runs blocking calls, e.g. JPA or JDBC, off the request and event-loop threads.
+ * <p>
+ * Calls run on virtual threads when the JDK provides them and on a dedicated
+ * fixed thread pool otherwise. In both cases at most {@code maxConcurrency} calls
+ * run at once, which defaults to the Hikari pool size so that callers wait here
+ * instead of starving on database connections. When more than {@code queueCapacity}
+ * calls are waiting, new calls fail with {@link ServiceOverloadedException}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class BlockingExecutor implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(BlockingExecutor.class);
+
+	private static final int DEFAULT_POOL_SIZE = 10;
+
+	private final int maxConcurrency;
+
+	private final int queueCapacity;
+
+	private final Semaphore permits;
+
+	private final AtomicInteger queueDepth = new AtomicInteger();
+
+	private final ExecutorService executorService;
+
+	private final Scheduler scheduler;
+
+	private final Timer waitTimer;
+
+	public BlockingExecutor(final ExecutionProperties properties, final DataSource dataSource,
+			final MeterRegistry meterRegistry) {
+		this.maxConcurrency = properties.getMaxConcurrency() > 0 ? properties.getMaxConcurrency()
+				: connectionPoolSize(dataSource);
+		this.queueCapacity = properties.getQueueCapacity();
+		this.permits = new Semaphore(maxConcurrency);
+
+		final ExecutorService virtualThreadExecutor = properties.isVirtualThreads() ? virtualThreadExecutor() : null;
+		this.executorService = virtualThreadExecutor != null ? virtualThreadExecutor : platformThreadExecutor(maxConcurrency);
+		this.scheduler = Schedulers.fromExecutorService(executorService, "coupon-blocking");
+		log.info("Blocking calls run on {} threads with max concurrency {} and queue capacity {}.",
+				virtualThreadExecutor != null ? "virtual" : "platform", maxConcurrency, queueCapacity);
+
+		Gauge.builder("coupon.blocking.queue.depth", queueDepth, AtomicInteger::get)
+				.description("Blocking calls waiting for execution").register(meterRegistry);
+		Gauge.builder("coupon.blocking.active", permits, semaphore -> maxConcurrency - semaphore.availablePermits())
+				.description("Blocking calls currently running").register(meterRegistry);
+		this.waitTimer = Timer.builder("coupon.blocking.wait")
+				.description("Time blocking calls waited before running").register(meterRegistry);
+	}
+
+	/**
+	 * Runs the blocking task on the blocking executor.
+	 *
+	 * @param task blocking task, may return null
+	 * @return Mono of the task result, empty if the task returned null
+	 */
+	public <T> Mono<T> call(final Callable<T> task) {
+		return Mono.defer(() -> {
+			if (queueDepth.incrementAndGet() > queueCapacity) {
+				queueDepth.decrementAndGet();
+				return Mono.error(new ServiceOverloadedException(Constants.SERVICE_OVERLOADED));
+			}
+			final long enqueued = System.nanoTime();
+			final AtomicBoolean dequeued = new AtomicBoolean();
+			return Mono.fromCallable(() -> {
+				permits.acquire();
+				try {
+					dequeue(dequeued);
+					waitTimer.record(System.nanoTime() - enqueued, TimeUnit.NANOSECONDS);
+					return task.call();
+				} finally {
+					permits.release();
+				}
+			}).subscribeOn(scheduler).doFinally(signal -> dequeue(dequeued));
+		});
+	}
+
+	/**
+	 * @return the number of blocking calls waiting for execution
+	 */
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	/**
+	 * @return the maximum number of blocking calls running at once
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	@Override
+	public void destroy() {
+		scheduler.dispose();
+		executorService.shutdown();
+	}
+
+	private void dequeue(final AtomicBoolean dequeued) {
+		if (dequeued.compareAndSet(false, true)) {
+			queueDepth.decrementAndGet();
+		}
+	}
+
+	private static int connectionPoolSize(final DataSource dataSource) {
+		return dataSource instanceof HikariDataSource ? ((HikariDataSource) dataSource).getMaximumPoolSize()
+				: DEFAULT_POOL_SIZE;
+	}
+
+	/**
+	 * Looked up reflectively, virtual threads are only available from JDK 21 on.
+	 */
+	private static ExecutorService virtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	private static ExecutorService platformThreadExecutor(final int threads) {
+		final AtomicInteger counter = new AtomicInteger();
+		final ThreadFactory threadFactory = runnable -> {
+			final Thread thread = new Thread(runnable, "coupon-blocking-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				threadFactory);
+	}
+}
@@ -0,0 +1,85 @@
+package schwarz.jobs.interview.coupon.core.services.generation;
+
+/**
+ * Pseudo-random permutation of the code space {@code [0, size)}, keyed by a seed.
+ * <p>
+ * A balanced Feistel network permutes the smallest even power of two covering the code space,
+ * values outside the code space are encrypted again until they fall into it (cycle walking).
+ * As a bijection, distinct indices always map to distinct codes, so a job never generates
+ * the same code twice and needs no state besides the next index to continue.
+ * The codes are hard to guess from each other but not cryptographically secure.
+ * </p>
+ *
+ * @author manik sharma
+ */
+public class CodePermutation {
+
+	private static final int ROUNDS = 4;
+
+	/**
+	 * Largest supported code space, larger spaces only use their first {@code MAX_SIZE} codes.
+	 */
+	public static final long MAX_SIZE = 1L << 62;
+
+	private final long size;
+
+	private final int halfBits;
+
+	private final long halfMask;
+
+	private final long[] roundKeys = new long[ROUNDS];
+
+	public CodePermutation(final long size, final long seed) {
+		if (size < 1 || size > MAX_SIZE) {
+			throw new IllegalArgumentException("Code space must contain 1 to 2^62 codes.");
+		}
+		this.size = size;
+		final int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(size - 1));
+		this.halfBits = (bits + 1) / 2;
+		this.halfMask = (1L << halfBits) - 1;
+		long key = seed;
+		for (int round = 0; round < ROUNDS; round++) {
+			key = mix(key + 0x9E3779B97F4A7C15L);
+			roundKeys[round] = key;
+		}
+	}
+
+	/**
+	 * @param index in {@code [0, size)}
+	 * @return the code number of the index, in {@code [0, size)}
+	 */
+	public long apply(final long index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is outside of the code space " + size);
+		}
+		long value = index;
+		do {
+			value = encrypt(value);
+		} while (value >= size);
+		return value;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	private long encrypt(final long value) {
+		long left = value >>> halfBits;
+		long right = value & halfMask;
+		for (final long roundKey : roundKeys) {
+			final long next = left ^ (mix(right ^ roundKey) & halfMask);
+			left = right;
+			right = next;
+		}
+		return (left << halfBits) | right;
+	}
+
+	/**
+	 * The SplitMix64 finalizer.
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+}
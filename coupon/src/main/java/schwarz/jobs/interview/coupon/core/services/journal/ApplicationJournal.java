@@ -0,0 +1,218 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import schwarz.jobs.interview.coupon.configuration.CouponJournalProperties;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+
+/**
+ * Binary append-only journal of all coupon applications, for audit and replay with {@link ApplicationJournalReader}.
+ * <p>
+ * Records are copied into a memory-mapped {@link JournalSegment} under a short lock, an append costs no system
+ * call and no allocation beyond the encoded code. Written to the mapping, a record survives a crash of the
+ * process. Every {@code commitInterval} all records appended since are forced to disk at once (group commit),
+ * so an operating system crash loses at most one interval. A full segment is forced and a new one started with
+ * the next sequence number; on startup the journal continues after the last complete record of the newest
+ * segment. The directory is locked against a second instance. Appends are counted as
+ * {@code coupon.journal.records}, commits timed as {@code coupon.journal.commit}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class ApplicationJournal implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(ApplicationJournal.class);
+
+	/** Basket value of a basket without value. */
+	public static final long NO_VALUE = Long.MIN_VALUE;
+
+	/** Room for the header and the largest record. */
+	private static final long MIN_SEGMENT_SIZE = 2048;
+
+	private final CouponJournalProperties properties;
+
+	private final Counter records;
+
+	private final Timer commitTimer;
+
+	private Path directory;
+
+	private FileChannel lockChannel;
+
+	private FileLock lock;
+
+	/** Guarded by this. */
+	private JournalSegment segment;
+
+	/** Guarded by this. */
+	private long lastTimestamp;
+
+	/** Guarded by this. */
+	private int committedSize;
+
+	private Scheduler committer;
+
+	private Disposable commits;
+
+	public ApplicationJournal(final CouponJournalProperties properties, final MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.records = Counter.builder("coupon.journal.records")
+				.description("Coupon applications appended to the journal").register(meterRegistry);
+		this.commitTimer = Timer.builder("coupon.journal.commit")
+				.description("Time to force the appended records to disk").register(meterRegistry);
+		if (properties.isEnabled()) {
+			open();
+		}
+	}
+
+	private void open() {
+		if (properties.getSegmentSize().toBytes() > Integer.MAX_VALUE
+				|| properties.getSegmentSize().toBytes() < MIN_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("The journal segment size must be between 2 KB and 2 GB.");
+		}
+		try {
+			directory = Paths.get(properties.getDirectory());
+			Files.createDirectories(directory);
+			lockChannel = FileChannel.open(directory.resolve("journal.lock"), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+			try {
+				lock = lockChannel.tryLock();
+			} catch (OverlappingFileLockException e) {
+				lock = null;
+			}
+			if (lock == null) {
+				throw new IllegalStateException("The journal " + directory + " is used by another instance.");
+			}
+			final List<Path> files = JournalSegment.list(directory);
+			if (files.isEmpty()) {
+				segment = JournalSegment.create(directory, 1, (int) properties.getSegmentSize().toBytes(),
+						System.currentTimeMillis());
+			} else {
+				segment = JournalSegment.open(files.get(files.size() - 1), true);
+			}
+			lastTimestamp = segment.getLastTimestamp();
+			committedSize = segment.size();
+			log.info("Journaling coupon applications to {} from segment {} at byte {}.", directory.toAbsolutePath(),
+					segment.getSequence(), segment.size());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Opening the journal " + properties.getDirectory() + " failed.", e);
+		}
+	}
+
+	/**
+	 * Appends one coupon application, a no-op if the journal is disabled.
+	 * A failing append is logged and never fails the application.
+	 *
+	 * @param code             the requested code
+	 * @param basketValueCents basket value in cents, {@link #NO_VALUE} if there is none
+	 * @param discountCents    applied discount in cents
+	 * @param outcome          the {@link ApplicationOutcome}
+	 */
+	public void append(final String code, final long basketValueCents, final long discountCents,
+			final ApplicationOutcome outcome) {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		synchronized (this) {
+			if (segment == null) {
+				return;
+			}
+			// never backwards, so a segment is sorted by time and starts no later than its first record
+			lastTimestamp = Math.max(lastTimestamp, System.currentTimeMillis());
+			try {
+				if (!segment.append(lastTimestamp, code, basketValueCents, discountCents, outcome)) {
+					roll();
+					segment.append(lastTimestamp, code, basketValueCents, discountCents, outcome);
+				}
+			} catch (IOException | RuntimeException e) {
+				log.error("Journaling the application of {} failed.", code, e);
+				return;
+			}
+		}
+		records.increment();
+	}
+
+	/** Guarded by this. */
+	private void roll() throws IOException {
+		segment.force();
+		segment.close();
+		final long sequence = segment.getSequence() + 1;
+		segment = JournalSegment.create(directory, sequence, (int) properties.getSegmentSize().toBytes(), lastTimestamp);
+		committedSize = segment.size();
+	}
+
+	/**
+	 * Forces the records appended since the last commit to disk.
+	 */
+	public void commit() {
+		final JournalSegment current;
+		synchronized (this) {
+			if (segment == null || segment.size() == committedSize) {
+				return;
+			}
+			current = segment;
+			committedSize = segment.size();
+		}
+		// outside of the lock, appends continue while the pages are written
+		commitTimer.record(current::force);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		committer = Schedulers.newSingle("coupon-journal");
+		commits = Flux.interval(properties.getCommitInterval(), committer)
+				.onBackpressureDrop()
+				.concatMap(tick -> Mono.fromRunnable(this::commit).onErrorResume(error -> {
+					log.error("Committing the journal failed.", error);
+					return Mono.empty();
+				}))
+				.subscribe();
+	}
+
+	@Override
+	public void destroy() throws IOException {
+		if (commits != null) {
+			commits.dispose();
+			committer.dispose();
+		}
+		synchronized (this) {
+			if (segment != null) {
+				segment.force();
+				segment.close();
+				segment = null;
+			}
+		}
+		if (lock != null) {
+			lock.release();
+			lockChannel.close();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import schwarz.jobs.interview.coupon.util.Money;
+
+/**
+ * Reads the segments of an {@link ApplicationJournal} and replays the coupon applications of a time range.
+ * <p>
+ * Segments created after the range are not opened, segments followed by one created before the range are
+ * skipped, since no record of a segment is newer than the creation of the next one. The journal may be read
+ * while the application appends to it. As a tool it prints the range as CSV:
+ * </p>
+ * <pre>
+ * java -cp coupon.jar -Dloader.main=schwarz.jobs.interview.coupon.core.services.journal.ApplicationJournalReader \
+ *     org.springframework.boot.loader.PropertiesLauncher journal 2024-05-01T00:00:00Z 2024-05-02T00:00:00Z
+ * </pre>
+ *
+ * @author manik sharma
+ */
+public final class ApplicationJournalReader {
+
+	private ApplicationJournalReader() {
+	}
+
+	/**
+	 * Replays the applications with a timestamp in {@code [from, to)} in the order they were appended.
+	 *
+	 * @param directory the journal directory
+	 * @param from      start of the range, inclusive
+	 * @param to        end of the range, exclusive
+	 * @param consumer  receives the entries
+	 * @return the number of replayed entries
+	 */
+	public static long replay(final Path directory, final Instant from, final Instant to,
+			final Consumer<JournalEntry> consumer) throws IOException {
+		final long fromMillis = from.toEpochMilli();
+		final long toMillis = to.toEpochMilli();
+		final List<Path> files = JournalSegment.list(directory);
+		final long[] replayed = new long[1];
+		for (int index = 0; index < files.size(); index++) {
+			if (index + 1 < files.size() && JournalSegment.created(files.get(index + 1)) < fromMillis) {
+				continue;
+			}
+			try (JournalSegment segment = JournalSegment.open(files.get(index), false)) {
+				if (segment.getCreated() >= toMillis) {
+					break;
+				}
+				segment.forEach(entry -> {
+					if (entry.getTimestamp() >= fromMillis && entry.getTimestamp() < toMillis) {
+						consumer.accept(entry);
+						replayed[0]++;
+					}
+				});
+			}
+		}
+		return replayed[0];
+	}
+
+	/**
+	 * Prints the applications of a time range as CSV.
+	 *
+	 * @param args the journal directory, optionally the start and the end of the range as ISO-8601 instants
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 1 || args.length > 3) {
+			System.err.println("Usage: ApplicationJournalReader <directory> [from] [to]");
+			System.exit(2);
+		}
+		final Instant from = args.length > 1 ? Instant.parse(args[1]) : Instant.EPOCH;
+		final Instant to = args.length > 2 ? Instant.parse(args[2]) : Instant.ofEpochMilli(Long.MAX_VALUE);
+		final PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+		out.println("timestamp,code,basketValue,discount,outcome");
+		try {
+			replay(Paths.get(args[0]), from, to, entry -> out.printf("%s,%s,%s,%s,%s%n",
+					Instant.ofEpochMilli(entry.getTimestamp()), csv(entry.getCode()),
+					entry.getBasketValueCents() == ApplicationJournal.NO_VALUE ? ""
+							: Money.toBigDecimal(entry.getBasketValueCents()),
+					Money.toBigDecimal(entry.getDiscountCents()), entry.getOutcome()));
+		} finally {
+			out.flush();
+		}
+	}
+
+	private static String csv(final String value) {
+		return value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 ? value
+				: '"' + value.replace("\"", "\"\"") + '"';
+	}
+}
@@ -0,0 +1,28 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import lombok.Data;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+
+/**
+ * One coupon application read from the {@link ApplicationJournal}.
+ *
+ * @author manik sharma
+ */
+@Data
+public class JournalEntry {
+
+	/** Time of the application in milliseconds since the epoch. */
+	private final long timestamp;
+
+	/** The code as requested, normalized if it was valid. */
+	private final String code;
+
+	/** Basket value in cents, {@link ApplicationJournal#NO_VALUE} if the basket had none. */
+	private final long basketValueCents;
+
+	/** Discount applied in cents, 0 unless the coupon was applied. */
+	private final long discountCents;
+
+	private final ApplicationOutcome outcome;
+
+}
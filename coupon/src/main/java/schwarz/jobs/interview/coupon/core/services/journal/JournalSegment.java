@@ -0,0 +1,256 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+
+/**
+ * One memory-mapped file of the {@link ApplicationJournal}.
+ * <p>
+ * A segment starts with a header of {@link #HEADER} bytes, the magic number, a version and the time the segment
+ * was created, followed by the records. A record is its payload length and the CRC32 of the payload, both
+ * {@code int}, and the payload: timestamp, basket value and discount as {@code long}, the outcome name and the
+ * code as length prefixed UTF-8. The length is written last, so a length of 0 ends the segment, and a torn
+ * record fails its checksum. The unused rest of a segment is zero.
+ * </p>
+ *
+ * @author manik sharma
+ */
+final class JournalSegment implements Closeable {
+
+	static final int MAGIC = 0x43504a31;
+
+	static final int VERSION = 1;
+
+	static final int HEADER = 16;
+
+	/** Length and checksum in front of every payload. */
+	private static final int RECORD_HEADER = 8;
+
+	/** Longer codes, which cannot exist, are journaled truncated. */
+	static final int MAX_CODE_BYTES = 1024;
+
+	static final int MAX_RECORD = RECORD_HEADER + 3 * 8 + 1 + 32 + 2 + MAX_CODE_BYTES;
+
+	private static final String PREFIX = "applications-";
+
+	private static final String SUFFIX = ".journal";
+
+	private static final Map<ApplicationOutcome, byte[]> OUTCOMES = new EnumMap<>(ApplicationOutcome.class);
+
+	static {
+		for (final ApplicationOutcome outcome : ApplicationOutcome.values()) {
+			OUTCOMES.put(outcome, outcome.name().getBytes(StandardCharsets.US_ASCII));
+		}
+	}
+
+	private final long sequence;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer buffer;
+
+	private final long created;
+
+	/** Timestamp of the last record read or appended. */
+	private long lastTimestamp;
+
+	private final CRC32 crc = new CRC32();
+
+	private JournalSegment(final long sequence, final FileChannel channel, final MappedByteBuffer buffer) {
+		this.sequence = sequence;
+		this.channel = channel;
+		this.buffer = buffer;
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IllegalStateException("Segment " + sequence + " is not a version " + VERSION + " journal.");
+		}
+		this.created = buffer.getLong(8);
+		this.lastTimestamp = created;
+		buffer.position(HEADER);
+	}
+
+	/**
+	 * Creates a new empty segment.
+	 */
+	static JournalSegment create(final Path directory, final long sequence, final int size, final long created)
+			throws IOException {
+		final FileChannel channel = FileChannel.open(file(directory, sequence), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		final MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, size);
+		buffer.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, created);
+		return new JournalSegment(sequence, channel, buffer);
+	}
+
+	/**
+	 * Opens an existing segment positioned after its last complete record.
+	 *
+	 * @param writable map the segment for appending, which clears a torn record at its end
+	 */
+	static JournalSegment open(final Path file, final boolean writable) throws IOException {
+		final FileChannel channel = writable
+				? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+				: FileChannel.open(file, StandardOpenOption.READ);
+		final MappedByteBuffer buffer = channel.map(writable ? MapMode.READ_WRITE : MapMode.READ_ONLY, 0, channel.size());
+		final JournalSegment segment = new JournalSegment(sequence(file), channel, buffer);
+		if (writable) {
+			segment.forEach(entry -> { });
+			final int end = Math.min(buffer.capacity(), buffer.position() + MAX_RECORD);
+			for (int index = buffer.position(); index < end; index++) {
+				buffer.put(index, (byte) 0);
+			}
+		}
+		return segment;
+	}
+
+	/**
+	 * @return the segment files of the directory in the order they were written
+	 */
+	static List<Path> list(final Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return List.of();
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().startsWith(PREFIX)
+					&& file.getFileName().toString().endsWith(SUFFIX)).sorted().collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * @return the creation time from the header of the segment file, without mapping it
+	 */
+	static long created(final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// read the whole header
+			}
+			return header.getLong(8);
+		}
+	}
+
+	static long sequence(final Path file) {
+		final String name = file.getFileName().toString();
+		return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+	}
+
+	private static Path file(final Path directory, final long sequence) {
+		return directory.resolve(String.format("%s%016d%s", PREFIX, sequence, SUFFIX));
+	}
+
+	/**
+	 * Appends one record.
+	 *
+	 * @return false if the record does not fit into the rest of the segment
+	 */
+	boolean append(final long timestamp, final String code, final long basketValueCents, final long discountCents,
+			final ApplicationOutcome outcome) {
+		final byte[] name = OUTCOMES.get(outcome);
+		byte[] codeBytes = code == null ? new byte[0] : code.getBytes(StandardCharsets.UTF_8);
+		if (codeBytes.length > MAX_CODE_BYTES) {
+			codeBytes = Arrays.copyOf(codeBytes, MAX_CODE_BYTES);
+		}
+		final int start = buffer.position();
+		final int length = 3 * 8 + 1 + name.length + 2 + codeBytes.length;
+		if (buffer.remaining() < RECORD_HEADER + length) {
+			return false;
+		}
+		buffer.position(start + RECORD_HEADER);
+		buffer.putLong(timestamp).putLong(basketValueCents).putLong(discountCents);
+		buffer.put((byte) name.length).put(name);
+		buffer.putShort((short) codeBytes.length).put(codeBytes);
+		final int end = buffer.position();
+		buffer.putInt(start + 4, checksum(start + RECORD_HEADER, end));
+		buffer.putInt(start, length);
+		lastTimestamp = timestamp;
+		return true;
+	}
+
+	/**
+	 * Reads the records from the current position up to the first incomplete one.
+	 */
+	void forEach(final Consumer<JournalEntry> consumer) {
+		while (buffer.remaining() >= RECORD_HEADER) {
+			final int start = buffer.position();
+			final int length = buffer.getInt(start);
+			if (length <= 0 || length > buffer.remaining() - RECORD_HEADER
+					|| checksum(start + RECORD_HEADER, start + RECORD_HEADER + length) != buffer.getInt(start + 4)) {
+				return;
+			}
+			final ByteBuffer record = buffer.duplicate();
+			record.position(start + RECORD_HEADER);
+			final long timestamp = record.getLong();
+			final long basketValueCents = record.getLong();
+			final long discountCents = record.getLong();
+			final byte[] name = new byte[record.get()];
+			record.get(name);
+			final byte[] code = new byte[record.getShort()];
+			record.get(code);
+			buffer.position(start + RECORD_HEADER + length);
+			lastTimestamp = timestamp;
+			consumer.accept(new JournalEntry(timestamp, new String(code, StandardCharsets.UTF_8), basketValueCents,
+					discountCents, ApplicationOutcome.valueOf(new String(name, StandardCharsets.US_ASCII))));
+		}
+	}
+
+	private int checksum(final int from, final int to) {
+		final ByteBuffer payload = buffer.duplicate();
+		payload.position(from).limit(to);
+		crc.reset();
+		crc.update(payload);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Forces the appended records to disk.
+	 */
+	void force() {
+		buffer.force();
+	}
+
+	long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return the time the segment was created, no record of the segment is older
+	 */
+	long getCreated() {
+		return created;
+	}
+
+	/**
+	 * @return the timestamp of the last record read or appended, the creation time before
+	 */
+	long getLastTimestamp() {
+		return lastTimestamp;
+	}
+
+	/**
+	 * @return the bytes used by the header and the records
+	 */
+	int size() {
+		return buffer.position();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
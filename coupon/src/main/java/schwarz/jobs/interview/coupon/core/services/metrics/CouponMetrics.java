@@ -0,0 +1,130 @@
+package schwarz.jobs.interview.coupon.core.services.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+
+/**
+ * Meters of the coupon service.
+ * <ul>
+ * <li>{@code coupon.apply}, {@code coupon.apply.multi}, {@code coupon.create}, {@code coupon.get}, {@code coupon.eligible}:
+ * latency of the service operations</li>
+ * <li>{@code coupon.store}: latency of the store lookups, tagged by {@code operation}</li>
+ * <li>{@code coupon.apply.outcome}: applied coupons, tagged by {@link ApplicationOutcome}</li>
+ * <li>{@code coupon.get.codes}: number of codes per {@code getCoupons} request</li>
+ * <li>{@code coupon.eligible.candidates}: scoped coupons checked per basket, found by the SKUs and categories of its lines</li>
+ * </ul>
+ * The timers are tagged with {@code result} success or error, the percentile histograms are enabled in the configuration.
+ *
+ * @author manik sharma
+ */
+@Component
+public class CouponMetrics {
+
+	public static final String APPLY = "coupon.apply";
+
+	public static final String APPLY_MULTI = "coupon.apply.multi";
+
+	public static final String CREATE = "coupon.create";
+
+	public static final String GET = "coupon.get";
+
+	public static final String ELIGIBLE = "coupon.eligible";
+
+	public static final String STORE = "coupon.store";
+
+	private final MeterRegistry meterRegistry;
+
+	private final Map<ApplicationOutcome, Counter> outcomes = new EnumMap<>(ApplicationOutcome.class);
+
+	private final DistributionSummary requestedCodes;
+
+	private final DistributionSummary scopeCandidates;
+
+	public CouponMetrics(final MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+		for (final ApplicationOutcome outcome : ApplicationOutcome.values()) {
+			outcomes.put(outcome, Counter.builder("coupon.apply.outcome")
+					.tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+					.description("Coupons applied to baskets by outcome").register(meterRegistry));
+		}
+		this.requestedCodes = DistributionSummary.builder("coupon.get.codes")
+				.description("Codes requested per coupon lookup").register(meterRegistry);
+		this.scopeCandidates = DistributionSummary.builder("coupon.eligible.candidates")
+				.description("Scoped coupons checked per basket").register(meterRegistry);
+	}
+
+	/**
+	 * Times the subscription of the Mono until it completes, fails or is cancelled.
+	 *
+	 * @param name      timer name
+	 * @param operation value of the {@code operation} tag, may be null
+	 * @param mono      supplier of the timed Mono, called on subscription
+	 * @return the timed Mono
+	 */
+	public <T> Mono<T> time(final String name, final String operation, final Supplier<Mono<T>> mono) {
+		return Mono.defer(() -> {
+			final Timer.Sample sample = Timer.start(meterRegistry);
+			return mono.get().doOnSuccess(value -> stop(sample, name, operation, "success"))
+					.doOnError(error -> stop(sample, name, operation, "error"));
+		});
+	}
+
+	/**
+	 * Times the subscription of the Flux until it completes or fails.
+	 *
+	 * @param name timer name
+	 * @param flux supplier of the timed Flux, called on subscription
+	 * @return the timed Flux
+	 */
+	public <T> Flux<T> time(final String name, final Supplier<Flux<T>> flux) {
+		return Flux.defer(() -> {
+			final Timer.Sample sample = Timer.start(meterRegistry);
+			return flux.get().doOnComplete(() -> stop(sample, name, null, "success"))
+					.doOnError(error -> stop(sample, name, null, "error"));
+		});
+	}
+
+	/**
+	 * Counts the outcome of applying a coupon to a basket.
+	 *
+	 * @param outcome the {@link ApplicationOutcome}
+	 */
+	public void outcome(final ApplicationOutcome outcome) {
+		outcomes.get(outcome).increment();
+	}
+
+	/**
+	 * Records the number of codes of a coupon lookup.
+	 *
+	 * @param count number of codes
+	 */
+	public void requestedCodes(final int count) {
+		requestedCodes.record(count);
+	}
+
+	/**
+	 * Records the number of scoped coupons checked for the lines of a basket.
+	 *
+	 * @param count number of candidates
+	 */
+	public void scopeCandidates(final int count) {
+		scopeCandidates.record(count);
+	}
+
+	private void stop(final Timer.Sample sample, final String name, final String operation, final String result) {
+		final Timer.Builder timer = Timer.builder(name).tag("result", result);
+		sample.stop((operation == null ? timer : timer.tag("operation", operation)).register(meterRegistry));
+	}
+}
@@ -0,0 +1,40 @@
+package schwarz.jobs.interview.coupon.core.services.model;
+
+/**
+ * Outcome of applying a coupon code to a basket.
+ *
+ * @author manik sharma
+ */
+public enum ApplicationOutcome {
+
+	/** The discount of the coupon was applied to the basket. */
+	APPLIED,
+
+	/** No coupon exists for the code. */
+	NOT_FOUND,
+
+	/** The basket value is 0, no discount is applied to an empty basket. */
+	EMPTY_BASKET,
+
+	/** The basket value does not reach the value the coupon requires. */
+	BELOW_MINIMUM,
+
+	/** The coupon is limited to SKUs or categories of which the basket has no lines of any value. */
+	NOT_IN_SCOPE,
+
+	/** The coupon is valid but not part of the best combination of several coupons. */
+	NOT_COMBINED,
+
+	/** The coupon reached its redemption limit. */
+	EXHAUSTED,
+
+	/** The validity window of the coupon has not started yet. */
+	NOT_STARTED,
+
+	/** The validity window of the coupon has ended. */
+	EXPIRED,
+
+	/** The request is incomplete, the basket value is negative or a basket line is invalid. */
+	INVALID
+
+}
@@ -1,6 +1,7 @@
 package schwarz.jobs.interview.coupon.core.services.model;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import javax.validation.constraints.NotNull;
 
@@ -14,6 +15,12 @@ public class Basket {
     @NotNull
     private BigDecimal value;
 
+    /**
+     * The products of the basket, only needed for coupons limited to SKUs or categories, may be null.
+     * The value stays the total the coupons without such a limit are applied to.
+     */
+    private List<BasketLine> lines;
+
     private BigDecimal appliedDiscount;
 
     private boolean applicationSuccessful;
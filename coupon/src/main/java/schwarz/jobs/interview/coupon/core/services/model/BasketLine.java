@@ -0,0 +1,33 @@
+package schwarz.jobs.interview.coupon.core.services.model;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One product in a {@link Basket}, matched by SKU or category against the scope of a coupon.
+ *
+ * @author manik sharma
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BasketLine {
+
+    /** Stock keeping unit of the product, may be null. */
+    private String sku;
+
+    /** Category of the product, may be null. */
+    private String category;
+
+    /** Price of one unit, not negative. */
+    private BigDecimal price;
+
+    /** Number of units, positive. */
+    private int quantity;
+
+}
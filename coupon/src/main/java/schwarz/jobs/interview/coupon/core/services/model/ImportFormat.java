@@ -0,0 +1,16 @@
+package schwarz.jobs.interview.coupon.core.services.model;
+
+/**
+ * Line format of a coupon import.
+ *
+ * @author manik sharma
+ */
+public enum ImportFormat {
+
+	/** {@code code,discount,minBasketValue} per line, an optional header line starting with {@code code}. */
+	CSV,
+
+	/** One JSON coupon definition per line. */
+	NDJSON
+
+}
@@ -0,0 +1,194 @@
+package schwarz.jobs.interview.coupon.core.services.redemption;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Striped redemption counter of one coupon.
+ * <p>
+ * The units still available under the limit are spread over stripes, each on its own cache line. A thread
+ * reserves from the stripe its probe points to and moves to another stripe when a compare-and-set fails, like
+ * {@link java.util.concurrent.atomic.LongAdder}; an empty stripe makes it take a unit from the other stripes, so
+ * a reservation fails only if all stripes were empty when visited. The stripes never hand out more units than
+ * the limit allows. Committed redemptions are counted in the stripe of the committing thread until a flush
+ * drains them. Changing the limit drains the stripes under the lock of the counter and spreads the new number
+ * of available units; units taken beyond a lowered limit are a deficit paid back by the next releases.
+ * </p>
+ *
+ * @author manik sharma
+ */
+final class RedemptionCounter {
+
+	static final long UNLIMITED = -1;
+
+	/** Longs per stripe, two cache lines so that adjacent line prefetching does not share them either. */
+	private static final int PADDING = 16;
+
+	/** Offset of the committed redemptions in a stripe, the available units are at offset 0. */
+	private static final int COMMITTED = 1;
+
+	/** Probe of the current thread selecting its stripe, never 0. */
+	private static final ThreadLocal<int[]> PROBE = ThreadLocal
+			.withInitial(() -> new int[] { ThreadLocalRandom.current().nextInt() | 1 });
+
+	private final AtomicLongArray cells;
+
+	private final int stride;
+
+	private final int mask;
+
+	private volatile long limit = UNLIMITED;
+
+	/** Units taken beyond the current limit, guarded by this. */
+	private long deficit;
+
+	private volatile boolean inDeficit;
+
+	/** Flushes without committed redemptions in a row, guarded by the flush lock of {@link RedemptionCounters}. */
+	int idleFlushes;
+
+	/**
+	 * @param stripes number of stripes, a power of two
+	 */
+	RedemptionCounter(final int stripes) {
+		// a single stripe has no neighbour to share its cache line with
+		this.stride = stripes == 1 ? 2 : PADDING;
+		this.cells = new AtomicLongArray(stripes * stride);
+		this.mask = stripes - 1;
+	}
+
+	/**
+	 * @return the limit the available units are counted for, {@link #UNLIMITED} before the first limit
+	 */
+	long limit() {
+		return limit;
+	}
+
+	/**
+	 * Sets the first limit of the counter.
+	 *
+	 * @param newLimit  maximum number of redemptions
+	 * @param persisted redemptions persisted before, without the ones still pending in this counter
+	 */
+	synchronized void initialize(final long newLimit, final long persisted) {
+		if (limit != UNLIMITED) {
+			resize(newLimit);
+			return;
+		}
+		limit = newLimit;
+		spread(newLimit - persisted - pending());
+	}
+
+	/**
+	 * Sets a new limit, {@link #UNLIMITED} to stop counting reservations.
+	 */
+	synchronized void resize(final long newLimit) {
+		if (newLimit == limit) {
+			return;
+		}
+		long available = -deficit;
+		for (int stripe = 0; stripe <= mask; stripe++) {
+			available += cells.getAndSet(stripe * stride, 0);
+		}
+		if (limit != UNLIMITED && newLimit != UNLIMITED) {
+			available += newLimit - limit;
+		}
+		limit = newLimit;
+		spread(newLimit == UNLIMITED ? 0 : available);
+	}
+
+	/**
+	 * @return true if a unit was reserved, false if the limit is reached
+	 */
+	boolean tryReserve() {
+		if (limit == UNLIMITED) {
+			return true;
+		}
+		final int[] probe = PROBE.get();
+		final int start = probe[0];
+		for (int offset = 0; offset <= mask; offset++) {
+			final int index = ((start + offset) & mask) * stride;
+			long available;
+			while ((available = cells.get(index)) > 0) {
+				if (cells.compareAndSet(index, available, available - 1)) {
+					return true;
+				}
+				// contended, the next reservation of this thread starts at another stripe
+				probe[0] = advance(probe[0]);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a reserved unit.
+	 */
+	void release() {
+		if (limit == UNLIMITED) {
+			return;
+		}
+		if (inDeficit) {
+			synchronized (this) {
+				if (deficit > 0) {
+					inDeficit = --deficit > 0;
+					return;
+				}
+			}
+		}
+		cells.getAndIncrement((PROBE.get()[0] & mask) * stride);
+	}
+
+	/**
+	 * Counts a reserved unit as redeemed.
+	 */
+	void commit() {
+		cells.getAndIncrement((PROBE.get()[0] & mask) * stride + COMMITTED);
+	}
+
+	/**
+	 * @return the committed redemptions not drained yet
+	 */
+	long pending() {
+		long pending = 0;
+		for (int stripe = 0; stripe <= mask; stripe++) {
+			pending += cells.get(stripe * stride + COMMITTED);
+		}
+		return pending;
+	}
+
+	/**
+	 * @return the committed redemptions since the last drain, reset to 0
+	 */
+	long drainCommitted() {
+		long committed = 0;
+		for (int stripe = 0; stripe <= mask; stripe++) {
+			committed += cells.getAndSet(stripe * stride + COMMITTED, 0);
+		}
+		return committed;
+	}
+
+	/**
+	 * Adds drained redemptions back after a failed flush.
+	 */
+	void restoreCommitted(final long committed) {
+		cells.getAndAdd(COMMITTED, committed);
+	}
+
+	/** Guarded by this. */
+	private void spread(final long available) {
+		deficit = Math.max(0, -available);
+		inDeficit = deficit > 0;
+		final long units = Math.max(0, available);
+		final int stripes = mask + 1;
+		for (int stripe = 0; stripe < stripes; stripe++) {
+			cells.getAndAdd(stripe * stride, units / stripes + (stripe < units % stripes ? 1 : 0));
+		}
+	}
+
+	private static int advance(final int probe) {
+		// xorshift, as the probe of LongAdder
+		int next = probe ^ (probe << 13);
+		next ^= next >>> 17;
+		return next ^ (next << 5);
+	}
+}
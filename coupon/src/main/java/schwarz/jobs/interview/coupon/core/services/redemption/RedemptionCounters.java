@@ -0,0 +1,305 @@
+package schwarz.jobs.interview.coupon.core.services.redemption;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.configuration.CouponRedemptionProperties;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.repository.RedemptionRepository;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+
+/**
+ * In-memory redemption counters of the coupons with a redemption limit, written behind to the database.
+ * <p>
+ * An apply {@link #reserve(Coupon) reserves} a redemption before it changes the basket and
+ * {@link Reservation#commit() commits} or {@link Reservation#release() releases} it afterwards. The
+ * {@link RedemptionCounter} of a coupon is striped, so concurrent applies of a hot coupon neither lock nor
+ * contend on one row or one cache line, and a limit is never oversold by this instance. The counter of a
+ * coupon starts from the persisted redemptions, {@link #load(Collection) loaded} on its first apply.
+ * Committed redemptions are added to the coupon_redemptions table in one batch every {@code flushInterval},
+ * which is the most a crash loses; a failed batch is retried with the next one. Redemptions of coupons without
+ * a limit are not counted, so a limit that is removed and set again counts the redemptions made under the
+ * earlier limits only. A counter is only ever changed by the limit of a coupon that has one, a stale cached
+ * coupon without limit leaves it alone. The counter of a coupon without committed redemptions for
+ * {@code idleTimeout}, whose limit was removed or that is rarely applied, is dropped and loaded again on its
+ * next apply; the counters of purged coupons are dropped at once.
+ * Flushes are timed as {@code coupon.redemption.flush}, the redemptions not written yet are published as
+ * {@code coupon.redemption.pending}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class RedemptionCounters implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(RedemptionCounters.class);
+
+	/** Minimum available units per stripe, a single-use code has one stripe. */
+	private static final long UNITS_PER_STRIPE = 16;
+
+	private final CouponRedemptionProperties properties;
+
+	private final RedemptionRepository redemptionRepository;
+
+	private final BlockingExecutor blockingExecutor;
+
+	private final Timer flushTimer;
+
+	private final int maxStripes;
+
+	private final Map<String, RedemptionCounter> counters = new ConcurrentHashMap<>();
+
+	/** Orders loading persisted redemptions and flushing, so that a load sees a redemption persisted or pending. */
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	/** Flushes without committed redemptions after which a counter is dropped. */
+	private final long maxIdleFlushes;
+
+	private Disposable flushes;
+
+	public RedemptionCounters(final CouponRedemptionProperties properties,
+			final RedemptionRepository redemptionRepository, final BlockingExecutor blockingExecutor,
+			final MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.redemptionRepository = redemptionRepository;
+		this.blockingExecutor = blockingExecutor;
+		this.maxStripes = Integer.highestOneBit(properties.getMaxStripes() > 0 ? properties.getMaxStripes()
+				: Runtime.getRuntime().availableProcessors());
+		this.maxIdleFlushes = Math.max(2, properties.getIdleTimeout().toMillis() / properties.getFlushInterval().toMillis());
+		this.flushTimer = Timer.builder("coupon.redemption.flush")
+				.description("Time to write the new redemptions in one batch").register(meterRegistry);
+		Gauge.builder("coupon.redemption.pending", this, RedemptionCounters::pending)
+				.description("Redemptions not written to the database yet").register(meterRegistry);
+	}
+
+	/**
+	 * Loads the persisted redemptions of the limited coupons that are not counted yet.
+	 *
+	 * @param coupons coupons about to be reserved
+	 * @return Mono completing once all limited coupons can be reserved
+	 */
+	public Mono<Void> load(final Collection<Coupon> coupons) {
+		final Map<String, Long> limits = new HashMap<>();
+		for (final Coupon coupon : coupons) {
+			if (coupon.getMaxRedemptions() != null) {
+				final RedemptionCounter counter = counters.get(coupon.getCode());
+				if (counter == null || counter.limit() == RedemptionCounter.UNLIMITED) {
+					limits.put(coupon.getCode(), coupon.getMaxRedemptions());
+				}
+			}
+		}
+		if (limits.isEmpty()) {
+			return Mono.empty();
+		}
+		return blockingExecutor.call(() -> {
+			initialize(limits);
+			return null;
+		}).then();
+	}
+
+	/**
+	 * Reserves one redemption of the coupon, {@link #load(Collection) loaded} before if it is limited.
+	 * <p>
+	 * A counter dropped between the load and the reservation is loaded again here, blocking the caller.
+	 * </p>
+	 *
+	 * @param coupon the coupon to redeem
+	 * @return the reservation, null if the coupon reached its limit
+	 */
+	public Reservation reserve(final Coupon coupon) {
+		final Long maxRedemptions = coupon.getMaxRedemptions();
+		if (maxRedemptions == null) {
+			return Reservation.UNCOUNTED;
+		}
+		RedemptionCounter counter = counters.get(coupon.getCode());
+		if (counter == null || counter.limit() == RedemptionCounter.UNLIMITED) {
+			counter = initialize(Map.of(coupon.getCode(), maxRedemptions)).get(coupon.getCode());
+		}
+		if (counter.limit() != maxRedemptions) {
+			counter.resize(maxRedemptions);
+		}
+		return counter.tryReserve() ? new Reservation(counter) : null;
+	}
+
+	/**
+	 * Adds the redemptions committed since the last flush to the database in one batch.
+	 *
+	 * @return Mono completing once the batch is written
+	 */
+	public Mono<Void> flush() {
+		return blockingExecutor.call(() -> {
+			flushTimer.record(this::write);
+			return null;
+		}).then();
+	}
+
+	/**
+	 * Drops the counters of purged coupons, together with their redemptions not written yet.
+	 *
+	 * @param codes codes of coupons that no longer exist
+	 */
+	public void forget(final Collection<String> codes) {
+		flushLock.lock();
+		try {
+			codes.forEach(counters::remove);
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of coupons counted
+	 */
+	int size() {
+		return counters.size();
+	}
+
+	/**
+	 * @return the committed redemptions not written to the database yet
+	 */
+	public long pending() {
+		return counters.values().stream().mapToLong(RedemptionCounter::pending).sum();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		flushes = Flux.interval(properties.getFlushInterval())
+				.onBackpressureDrop()
+				.concatMap(tick -> flush().onErrorResume(error -> {
+					log.error("Writing the coupon redemptions failed, retrying with the next batch.", error);
+					return Mono.empty();
+				}))
+				.subscribe();
+	}
+
+	@Override
+	public void destroy() {
+		if (flushes != null) {
+			flushes.dispose();
+		}
+		try {
+			write();
+		} catch (RuntimeException e) {
+			log.error("Writing the last {} coupon redemptions failed.", pending(), e);
+		}
+	}
+
+	/**
+	 * Starts the counters that are missing or not started yet from the persisted redemptions.
+	 *
+	 * @param limits limits by code
+	 * @return the started counters by code
+	 */
+	private Map<String, RedemptionCounter> initialize(final Map<String, Long> limits) {
+		flushLock.lock();
+		try {
+			final Map<String, Long> missing = new HashMap<>();
+			final Map<String, RedemptionCounter> started = new HashMap<>();
+			limits.forEach((code, limit) -> {
+				final RedemptionCounter counter = counters.get(code);
+				if (counter == null || counter.limit() == RedemptionCounter.UNLIMITED) {
+					missing.put(code, limit);
+				} else {
+					started.put(code, counter);
+				}
+			});
+			if (!missing.isEmpty()) {
+				final Map<String, Long> persisted = redemptionRepository.findRedeemed(missing.keySet());
+				missing.forEach((code, limit) -> {
+					final RedemptionCounter counter = counter(code, limit);
+					counter.initialize(limit, persisted.getOrDefault(code, 0L));
+					started.put(code, counter);
+				});
+			}
+			return started;
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private void write() {
+		flushLock.lock();
+		try {
+			final Map<String, Long> deltas = new HashMap<>();
+			counters.forEach((code, counter) -> {
+				final long committed = counter.drainCommitted();
+				if (committed > 0) {
+					deltas.put(code, committed);
+					counter.idleFlushes = 0;
+				} else {
+					counter.idleFlushes++;
+				}
+			});
+			if (!deltas.isEmpty()) {
+				try {
+					redemptionRepository.addRedeemed(deltas);
+				} catch (RuntimeException e) {
+					deltas.forEach((code, committed) -> counters.get(code).restoreCommitted(committed));
+					throw e;
+				}
+			}
+			prune();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Drops the counters without committed redemptions for {@code idleTimeout}. Guarded by the flush lock.
+	 */
+	private void prune() {
+		counters.forEach((code, counter) -> {
+			if (counter.idleFlushes >= maxIdleFlushes && counter.pending() == 0) {
+				counters.remove(code, counter);
+			}
+		});
+	}
+
+	private RedemptionCounter counter(final String code, final long limit) {
+		return counters.computeIfAbsent(code, missing -> new RedemptionCounter(
+				(int) Math.min(maxStripes, Long.highestOneBit(Math.max(1, limit / UNITS_PER_STRIPE)))));
+	}
+
+	/**
+	 * One reserved redemption, committed once the discount is applied or released if it is not.
+	 */
+	public static final class Reservation {
+
+		/** Reservation of a coupon without limit. */
+		static final Reservation UNCOUNTED = new Reservation(null);
+
+		private final RedemptionCounter counter;
+
+		private Reservation(final RedemptionCounter counter) {
+			this.counter = counter;
+		}
+
+		public void commit() {
+			if (counter != null) {
+				counter.commit();
+			}
+		}
+
+		public void release() {
+			if (counter != null) {
+				counter.release();
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package schwarz.jobs.interview.coupon.core.services.scope;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.BasketLine;
+import schwarz.jobs.interview.coupon.util.Constants;
+import schwarz.jobs.interview.coupon.util.Money;
+
+/**
+ * The lines of a {@link Basket} prepared once for matching coupons limited to SKUs or categories: SKUs and
+ * categories normalized like coupon codes, the value of every line in cents.
+ *
+ * @author manik sharma
+ */
+public final class BasketLines {
+
+	private static final BasketLines NONE = new BasketLines(new String[0], new String[0], new long[0]);
+
+	private final String[] skus;
+
+	private final String[] categories;
+
+	private final long[] values;
+
+	private BasketLines(final String[] skus, final String[] categories, final long[] values) {
+		this.skus = skus;
+		this.categories = categories;
+		this.values = values;
+	}
+
+	/**
+	 * @param basket a basket, its lines may be null
+	 * @return the lines, empty for a basket without lines, null if the basket has more than
+	 *         {@link Constants#MAX_BASKET_LINES} lines, a line without price, with a negative price or without
+	 *         a positive quantity, or lines whose value in cents does not fit into a {@code long}
+	 */
+	public static BasketLines of(final Basket basket) {
+		final List<BasketLine> lines = basket.getLines();
+		if (lines == null || lines.isEmpty()) {
+			return NONE;
+		}
+		if (lines.size() > Constants.MAX_BASKET_LINES) {
+			return null;
+		}
+		final String[] skus = new String[lines.size()];
+		final String[] categories = new String[lines.size()];
+		final long[] values = new long[lines.size()];
+		long total = 0;
+		for (int i = 0; i < values.length; i++) {
+			final BasketLine line = lines.get(i);
+			if (line == null || line.getPrice() == null || line.getPrice().signum() < 0 || line.getQuantity() < 1) {
+				return null;
+			}
+			try {
+				values[i] = Math.multiplyExact(Money.toCents(line.getPrice()), line.getQuantity());
+				// bounds every sum of matching lines
+				total = Math.addExact(total, values[i]);
+			} catch (ArithmeticException e) {
+				return null;
+			}
+			skus[i] = normalize(line.getSku());
+			categories[i] = normalize(line.getCategory());
+		}
+		return new BasketLines(skus, categories, values);
+	}
+
+	/**
+	 * @return true if the basket has no lines
+	 */
+	public boolean isEmpty() {
+		return values.length == 0;
+	}
+
+	/**
+	 * @return the distinct SKUs of the lines
+	 */
+	public Set<String> skus() {
+		return distinct(skus);
+	}
+
+	/**
+	 * @return the distinct categories of the lines
+	 */
+	public Set<String> categories() {
+		return distinct(categories);
+	}
+
+	/**
+	 * @param coupon a coupon limited to SKUs or categories
+	 * @return the value in cents of the lines whose SKU or category the coupon is limited to
+	 */
+	public long matchingValueCents(final Coupon coupon) {
+		final Set<String> skuScope = coupon.getSkuSet();
+		final Set<String> categoryScope = coupon.getCategorySet();
+		long value = 0;
+		for (int i = 0; i < values.length; i++) {
+			if ((skus[i] != null && skuScope.contains(skus[i]))
+					|| (categories[i] != null && categoryScope.contains(categories[i]))) {
+				value += values[i];
+			}
+		}
+		return value;
+	}
+
+	private static Set<String> distinct(final String[] keys) {
+		final Set<String> distinct = new HashSet<>();
+		for (final String key : keys) {
+			if (key != null) {
+				distinct.add(key);
+			}
+		}
+		return distinct;
+	}
+
+	private static String normalize(final String key) {
+		return key == null || key.isBlank() ? null : CouponService.normalize(key);
+	}
+}
@@ -0,0 +1,217 @@
+package schwarz.jobs.interview.coupon.core.services.scope;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.configuration.CouponScopeProperties;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+
+/**
+ * Inverted index from SKU and from category to the codes of the coupons limited to them.
+ * <p>
+ * The coupons that can apply to the lines of a basket are found by looking up the SKUs and categories of its
+ * lines, so a basket only ever checks the coupons that could match it instead of the whole catalog.
+ * The index is built from the scoped coupons of the coupons table on startup and rebuilt every
+ * {@code rebuildInterval}. Every writer of coupons puts the coupon once its write is committed, writes during
+ * a rebuild go into both the current and the new index and win over the rows the rebuild reads. Puts and the
+ * swap of the indexes hold the lock of the index, so that no put lands in the replaced index only. A code may stay
+ * indexed after its coupon lost its scope or was deleted until the next rebuild, so the candidates are
+ * always checked against the coupons they resolve to. The indexed coupons are published as {@code coupon.scope.coupons}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class CouponScopeIndex implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponScopeIndex.class);
+
+	private static final String SELECT_SCOPED = "SELECT code, skus, categories FROM coupons WHERE skus IS NOT NULL OR categories IS NOT NULL";
+
+	private final CouponScopeProperties properties;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final BlockingExecutor blockingExecutor;
+
+	private volatile Index current = new Index(false);
+
+	private volatile Index building;
+
+	private Disposable rebuilds;
+
+	public CouponScopeIndex(final CouponScopeProperties properties, final JdbcTemplate jdbcTemplate,
+			final BlockingExecutor blockingExecutor, final MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.jdbcTemplate = jdbcTemplate;
+		this.blockingExecutor = blockingExecutor;
+		Gauge.builder("coupon.scope.coupons", this, CouponScopeIndex::size)
+				.description("Coupons limited to SKUs or categories in the scope index").register(meterRegistry);
+	}
+
+	/**
+	 * Indexes a written coupon under its SKUs and categories, a coupon without scope is removed.
+	 *
+	 * @param coupon the saved coupon
+	 */
+	public synchronized void put(final Coupon coupon) {
+		current.write(coupon);
+		final Index next = building;
+		if (next != null) {
+			next.write(coupon);
+		}
+	}
+
+	/**
+	 * @param lines the lines of a basket
+	 * @return the codes of the coupons limited to a SKU or category of the lines
+	 */
+	public Set<String> candidates(final BasketLines lines) {
+		final Index index = current;
+		final Set<String> codes = new HashSet<>();
+		lines.skus().forEach(sku -> codes.addAll(index.bySku.getOrDefault(sku, Set.of())));
+		lines.categories().forEach(category -> codes.addAll(index.byCategory.getOrDefault(category, Set.of())));
+		return codes;
+	}
+
+	/**
+	 * @return the number of indexed coupons
+	 */
+	public int size() {
+		return current.size();
+	}
+
+	/**
+	 * Builds a new index from the scoped coupons of the coupons table and replaces the current one.
+	 *
+	 * @return Mono completing once the new index is in use
+	 */
+	public Mono<Void> rebuild() {
+		return Mono.fromSupplier(this::startBuilding).flatMap(next -> blockingExecutor.call(() -> {
+			jdbcTemplate.query(SELECT_SCOPED, resultSet -> {
+				next.load(Coupon.builder().code(resultSet.getString("code")).skus(resultSet.getString("skus"))
+						.categories(resultSet.getString("categories")).build());
+			});
+			return next;
+		})).doOnNext(this::finishBuilding).doOnError(error -> stopBuilding()).then();
+	}
+
+	private synchronized Index startBuilding() {
+		building = new Index(true);
+		return building;
+	}
+
+	private synchronized void finishBuilding(final Index next) {
+		next.finish();
+		current = next;
+		building = null;
+		log.info("Coupon scope index rebuilt with {} coupons.", next.size());
+	}
+
+	private synchronized void stopBuilding() {
+		building = null;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		rebuilds = Flux.interval(Duration.ZERO, properties.getRebuildInterval())
+				.onBackpressureDrop()
+				.concatMap(tick -> rebuild().onErrorResume(error -> {
+					log.error("Rebuilding the coupon scope index failed.", error);
+					return Mono.empty();
+				}))
+				.subscribe();
+	}
+
+	@Override
+	public void destroy() {
+		if (rebuilds != null) {
+			rebuilds.dispose();
+		}
+	}
+
+	/**
+	 * The codes per SKU and per category, read without locking, and the indexed scope per code, which the
+	 * writers need to unlink a code from its previous SKUs and categories.
+	 */
+	private static final class Index {
+
+		private final Map<String, Set<String>> bySku = new ConcurrentHashMap<>();
+
+		private final Map<String, Set<String>> byCategory = new ConcurrentHashMap<>();
+
+		/** Guarded by this. */
+		private final Map<String, Coupon> scopes = new HashMap<>();
+
+		/** The codes written while the index is built, null once it is in use. Guarded by this. */
+		private Set<String> written;
+
+		private Index(final boolean building) {
+			this.written = building ? new HashSet<>() : null;
+		}
+
+		private synchronized void write(final Coupon coupon) {
+			if (written != null) {
+				written.add(coupon.getCode());
+			}
+			index(coupon);
+		}
+
+		private synchronized void load(final Coupon coupon) {
+			if (!written.contains(coupon.getCode())) {
+				index(coupon);
+			}
+		}
+
+		private synchronized void finish() {
+			written = null;
+		}
+
+		private synchronized int size() {
+			return scopes.size();
+		}
+
+		private void index(final Coupon coupon) {
+			final String code = coupon.getCode();
+			final Coupon previous = coupon.isScoped() ? scopes.put(code, scope(coupon)) : scopes.remove(code);
+			if (previous != null) {
+				previous.getSkuSet().forEach(sku -> unlink(bySku, sku, code));
+				previous.getCategorySet().forEach(category -> unlink(byCategory, category, code));
+			}
+			coupon.getSkuSet().forEach(sku -> bySku.computeIfAbsent(sku, key -> ConcurrentHashMap.newKeySet()).add(code));
+			coupon.getCategorySet().forEach(category -> byCategory.computeIfAbsent(category, key -> ConcurrentHashMap.newKeySet()).add(code));
+		}
+
+		private static void unlink(final Map<String, Set<String>> index, final String key, final String code) {
+			index.computeIfPresent(key, (unused, codes) -> {
+				codes.remove(code);
+				return codes.isEmpty() ? null : codes;
+			});
+		}
+
+		/**
+		 * @return a coupon holding the scope only, the index does not retain the written coupon
+		 */
+		private static Coupon scope(final Coupon coupon) {
+			return Coupon.builder().code(coupon.getCode()).skus(coupon.getSkus()).categories(coupon.getCategories()).build();
+		}
+	}
+}
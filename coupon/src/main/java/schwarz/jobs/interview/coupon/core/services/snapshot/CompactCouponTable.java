@@ -0,0 +1,434 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.util.Money;
+
+/**
+ * {@link CouponTable} keeping all coupons in a few primitive arrays instead of one object graph per coupon.
+ * <p>
+ * The codes are stored as UTF-8 bytes one after the other in one array, the ids, the amounts in cents and the
+ * bounds of the validity windows in epoch milliseconds in {@code long} arrays indexed by entry. The scopes of the few
+ * coupons limited to SKUs or categories are kept as their column strings, null for all others. An open addressing
+ * table of entry numbers, at most three quarters full,
+ * finds the entry by the hash of the code; the cached {@link String#hashCode()} of the looked up code is
+ * compared first, the bytes only on equal hashes. A lookup allocates the returned {@link Coupon} only, the GC
+ * sees fifteen arrays and the scope strings regardless of the number of coupons. The code bytes of one table are limited to 2 GB.
+ * The threshold index packs minimum basket value and entry of every coupon into one sorted {@code long}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+final class CompactCouponTable implements CouponTable {
+
+	/** Marks a missing id, minimum basket value or bound of the validity window. */
+	private static final long NONE = Long.MIN_VALUE;
+
+	private static final int MAX_CODE_BYTES = Integer.MAX_VALUE - 8;
+
+	/** Bits of the entry in a threshold key, the minimum basket value takes the other 34. */
+	private static final int ENTRY_BITS = 30;
+
+	/** Larger minimum basket values and basket values are treated as this one. */
+	private static final long MAX_THRESHOLD = (1L << (Long.SIZE - ENTRY_BITS)) - 1;
+
+	private static final int MAX_ENTRIES = 1 << ENTRY_BITS;
+
+	private final int size;
+
+	/** Entry number + 1 per slot, 0 for a free slot. */
+	private final int[] slots;
+
+	private final int[] hashes;
+
+	/** Start of the code of entry i in {@link #codes}, the code ends at the start of entry i + 1. */
+	private final int[] offsets;
+
+	private final byte[] codes;
+
+	private final long[] ids;
+
+	private final long[] discounts;
+
+	private final long[] minBasketValues;
+
+	private final BitSet exclusive;
+
+	private final long[] maxRedemptions;
+
+	private final long[] validFrom;
+
+	private final long[] validUntil;
+
+	private final String[] skus;
+
+	private final String[] categories;
+
+	/** Threshold keys of all entries in ascending order of minimum basket value, see {@link #key(long, int)}. */
+	private final long[] byThreshold;
+
+	private CompactCouponTable(final Builder builder) {
+		this.size = builder.size;
+		this.slots = builder.slots;
+		this.hashes = Arrays.copyOf(builder.hashes, size);
+		this.offsets = Arrays.copyOf(builder.offsets, size + 1);
+		this.codes = Arrays.copyOf(builder.codes, builder.offsets[size]);
+		this.ids = Arrays.copyOf(builder.ids, size);
+		this.discounts = Arrays.copyOf(builder.discounts, size);
+		this.minBasketValues = Arrays.copyOf(builder.minBasketValues, size);
+		this.exclusive = (BitSet) builder.exclusive.clone();
+		this.maxRedemptions = Arrays.copyOf(builder.maxRedemptions, size);
+		this.validFrom = Arrays.copyOf(builder.validFrom, size);
+		this.validUntil = Arrays.copyOf(builder.validUntil, size);
+		this.skus = Arrays.copyOf(builder.skus, size);
+		this.categories = Arrays.copyOf(builder.categories, size);
+		this.byThreshold = builder.byThreshold();
+	}
+
+	@Override
+	public Coupon get(final String code) {
+		final int entry = find(slots, hashes, offsets, codes, code, code.hashCode());
+		return entry < 0 ? null : coupon(entry, code);
+	}
+
+	@Override
+	public List<Coupon> eligible(final long basketValueCents, final long now, final int limit, final boolean bestFirst) {
+		final int found = Arrays.binarySearch(byThreshold, key(basketValueCents, MAX_ENTRIES - 1));
+		return Eligibility.select(found >= 0 ? found + 1 : -found - 1, limit, bestFirst,
+				position -> isEligibleAt(entry(byThreshold[position]), now), position -> discounts[entry(byThreshold[position])], position -> {
+					final int entry = entry(byThreshold[position]);
+					return coupon(entry, new String(codes, offsets[entry], offsets[entry + 1] - offsets[entry],
+							StandardCharsets.UTF_8));
+				});
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the exact size of the arrays, the scope strings and of this object with compressed oops
+	 */
+	@Override
+	public long estimatedBytes() {
+		long scopes = 0;
+		for (int entry = 0; entry < size; entry++) {
+			scopes += CouponFootprint.string(skus[entry]) + CouponFootprint.string(categories[entry]);
+		}
+		return 72 + array(slots.length, 4) + array(size, 4) + array(size + 1, 4) + array(codes.length, 1)
+				+ 7 * array(size, 8) + 2 * array(size, 4) + 24 + array((size + 63) / 64, 8) + scopes;
+	}
+
+	@Override
+	public CouponTable with(final Collection<Coupon> changed) {
+		final Builder builder = new Builder(this, changed.size());
+		changed.forEach(builder::add);
+		return builder.build();
+	}
+
+	@Override
+	public CouponTable without(final Collection<String> removed) {
+		final BitSet dropped = new BitSet();
+		for (final String code : removed) {
+			final int entry = find(slots, hashes, offsets, codes, code, code.hashCode());
+			if (entry >= 0) {
+				dropped.set(entry);
+			}
+		}
+		if (dropped.isEmpty()) {
+			return this;
+		}
+		// entries are never removed from the open addressing table, the kept ones are added to a new one
+		final Builder builder = new Builder(size - dropped.cardinality());
+		for (int entry = dropped.nextClearBit(0); entry < size; entry = dropped.nextClearBit(entry + 1)) {
+			builder.add(coupon(entry, new String(codes, offsets[entry], offsets[entry + 1] - offsets[entry],
+					StandardCharsets.UTF_8)));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * A coupon limited to SKUs or categories is eligible by the lines of a basket only, never by its value.
+	 */
+	private boolean isEligibleAt(final int entry, final long now) {
+		return skus[entry] == null && categories[entry] == null && isValidAt(entry, now);
+	}
+
+	private boolean isValidAt(final int entry, final long now) {
+		return (validFrom[entry] == NONE || validFrom[entry] <= now) && (validUntil[entry] == NONE || now < validUntil[entry]);
+	}
+
+	private Coupon coupon(final int entry, final String code) {
+		return Coupon.builder().id(ids[entry] == NONE ? null : ids[entry]).code(code)
+				.discount(Money.toBigDecimal(discounts[entry]))
+				.minBasketValue(minBasketValues[entry] == NONE ? null : Money.toBigDecimal(minBasketValues[entry]))
+				.exclusive(exclusive.get(entry))
+				.maxRedemptions(maxRedemptions[entry] == NONE ? null : maxRedemptions[entry])
+				.validFrom(validFrom[entry] == NONE ? null : Instant.ofEpochMilli(validFrom[entry]))
+				.validUntil(validUntil[entry] == NONE ? null : Instant.ofEpochMilli(validUntil[entry]))
+				.skus(skus[entry]).categories(categories[entry]).build();
+	}
+
+	/**
+	 * The sign bit is flipped so that the signed order of the keys is the unsigned order of threshold and entry.
+	 */
+	private static long key(final long threshold, final int entry) {
+		return ((Math.min(threshold, MAX_THRESHOLD) << ENTRY_BITS) | entry) ^ Long.MIN_VALUE;
+	}
+
+	private static int entry(final long key) {
+		return (int) (key & (MAX_ENTRIES - 1));
+	}
+
+	private static long array(final long length, final int elementBytes) {
+		return (16 + length * elementBytes + 7) & ~7L;
+	}
+
+	private static int slot(final int hash, final int mask) {
+		final int mixed = hash * 0x9E3779B9;
+		return (mixed ^ (mixed >>> 16)) & mask;
+	}
+
+	/**
+	 * @return the entry of the code, or -(free slot + 1) if the code is not in the table
+	 */
+	private static int find(final int[] slots, final int[] hashes, final int[] offsets, final byte[] codes,
+			final String code, final int hash) {
+		final int mask = slots.length - 1;
+		for (int slot = slot(hash, mask);; slot = (slot + 1) & mask) {
+			final int entry = slots[slot] - 1;
+			if (entry < 0) {
+				return -slot - 1;
+			}
+			if (hashes[entry] == hash && matches(codes, offsets[entry], offsets[entry + 1], code)) {
+				return entry;
+			}
+		}
+	}
+
+	/**
+	 * ASCII codes, the usual case, are compared char by char without encoding them.
+	 */
+	private static boolean matches(final byte[] codes, final int from, final int to, final String code) {
+		final int length = to - from;
+		if (length == code.length()) {
+			// a multi-byte character in either code makes the bytes longer than the chars or a byte negative
+			for (int i = 0; i < length; i++) {
+				if (codes[from + i] != code.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (length < code.length()) {
+			return false;
+		}
+		final byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+		return Arrays.equals(codes, from, to, bytes, 0, bytes.length);
+	}
+
+	static final class Builder implements CouponTable.Builder {
+
+		private int size;
+
+		private int[] slots;
+
+		private int[] hashes;
+
+		private int[] offsets;
+
+		private byte[] codes;
+
+		private long[] ids;
+
+		private long[] discounts;
+
+		private long[] minBasketValues;
+
+		private BitSet exclusive;
+
+		private long[] maxRedemptions;
+
+		private long[] validFrom;
+
+		private long[] validUntil;
+
+		private String[] skus;
+
+		private String[] categories;
+
+		/** The index of the table this builder copies and the entries added or replaced since, null for a new table. */
+		private long[] base;
+
+		private BitSet changed;
+
+		Builder(final int expectedSize) {
+			final int capacity = Math.max(16, expectedSize);
+			this.slots = new int[slotCount(capacity)];
+			this.hashes = new int[capacity];
+			this.offsets = new int[capacity + 1];
+			this.codes = new byte[(int) Math.min(MAX_CODE_BYTES, capacity * 16L)];
+			this.ids = new long[capacity];
+			this.discounts = new long[capacity];
+			this.minBasketValues = new long[capacity];
+			this.exclusive = new BitSet();
+			this.maxRedemptions = new long[capacity];
+			this.validFrom = new long[capacity];
+			this.validUntil = new long[capacity];
+			this.skus = new String[capacity];
+			this.categories = new String[capacity];
+		}
+
+		private Builder(final CompactCouponTable table, final int additions) {
+			final int capacity = Math.max(16, table.size + additions);
+			this.size = table.size;
+			this.slots = table.slots.length >= slotCount(capacity) ? table.slots.clone() : null;
+			this.hashes = Arrays.copyOf(table.hashes, capacity);
+			this.offsets = Arrays.copyOf(table.offsets, capacity + 1);
+			this.codes = table.codes.clone();
+			this.ids = Arrays.copyOf(table.ids, capacity);
+			this.discounts = Arrays.copyOf(table.discounts, capacity);
+			this.minBasketValues = Arrays.copyOf(table.minBasketValues, capacity);
+			this.exclusive = (BitSet) table.exclusive.clone();
+			this.maxRedemptions = Arrays.copyOf(table.maxRedemptions, capacity);
+			this.validFrom = Arrays.copyOf(table.validFrom, capacity);
+			this.validUntil = Arrays.copyOf(table.validUntil, capacity);
+			this.skus = Arrays.copyOf(table.skus, capacity);
+			this.categories = Arrays.copyOf(table.categories, capacity);
+			this.base = table.byThreshold;
+			this.changed = new BitSet();
+			if (slots == null) {
+				rehash(slotCount(capacity));
+			}
+		}
+
+		@Override
+		public Builder add(final Coupon coupon) {
+			final String code = coupon.getCode();
+			final int hash = code.hashCode();
+			if (size == hashes.length) {
+				if (size == MAX_ENTRIES) {
+					throw new IllegalStateException("A compact coupon table holds at most " + MAX_ENTRIES + " coupons.");
+				}
+				grow((int) Math.min(MAX_ENTRIES, size * 2L));
+			}
+			int entry = find(slots, hashes, offsets, codes, code, hash);
+			if (entry < 0) {
+				final int slot = -entry - 1;
+				entry = size++;
+				final byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+				final long end = (long) offsets[entry] + bytes.length;
+				if (end > MAX_CODE_BYTES) {
+					throw new IllegalStateException("The coupon codes exceed the 2 GB of a compact coupon table.");
+				}
+				if (end > codes.length) {
+					codes = Arrays.copyOf(codes, (int) Math.min(MAX_CODE_BYTES, Math.max(end, codes.length * 2L)));
+				}
+				System.arraycopy(bytes, 0, codes, offsets[entry], bytes.length);
+				offsets[entry + 1] = (int) end;
+				hashes[entry] = hash;
+				slots[slot] = entry + 1;
+			}
+			ids[entry] = coupon.getId() == null ? NONE : coupon.getId();
+			discounts[entry] = Money.toCents(coupon.getDiscount());
+			minBasketValues[entry] = coupon.getMinBasketValue() == null ? NONE : Money.toCents(coupon.getMinBasketValue());
+			exclusive.set(entry, coupon.isExclusive());
+			maxRedemptions[entry] = coupon.getMaxRedemptions() == null ? NONE : coupon.getMaxRedemptions();
+			validFrom[entry] = coupon.getValidFrom() == null ? NONE : coupon.getValidFrom().toEpochMilli();
+			validUntil[entry] = coupon.getValidUntil() == null ? NONE : coupon.getValidUntil().toEpochMilli();
+			skus[entry] = coupon.getSkus();
+			categories[entry] = coupon.getCategories();
+			if (changed != null) {
+				changed.set(entry);
+			}
+			return this;
+		}
+
+		@Override
+		public CouponTable build() {
+			return new CompactCouponTable(this);
+		}
+
+		/**
+		 * Sorts the keys of a new table, or merges the still sorted keys of the copied table
+		 * with the sorted keys of the changed entries.
+		 */
+		private long[] byThreshold() {
+			if (base == null) {
+				final long[] keys = new long[size];
+				for (int entry = 0; entry < size; entry++) {
+					keys[entry] = key(threshold(entry), entry);
+				}
+				Arrays.sort(keys);
+				return keys;
+			}
+			final long[] added = new long[changed.cardinality()];
+			for (int entry = changed.nextSetBit(0), i = 0; entry >= 0; entry = changed.nextSetBit(entry + 1)) {
+				added[i++] = key(threshold(entry), entry);
+			}
+			Arrays.sort(added);
+			final long[] keys = new long[size];
+			int kept = 0;
+			int next = 0;
+			for (final long key : base) {
+				if (changed.get(entry(key))) {
+					continue;
+				}
+				while (next < added.length && added[next] < key) {
+					keys[kept++] = added[next++];
+				}
+				keys[kept++] = key;
+			}
+			while (next < added.length) {
+				keys[kept++] = added[next++];
+			}
+			return keys;
+		}
+
+		private long threshold(final int entry) {
+			return minBasketValues[entry] == NONE ? 0 : minBasketValues[entry];
+		}
+
+		private void grow(final int capacity) {
+			hashes = Arrays.copyOf(hashes, capacity);
+			offsets = Arrays.copyOf(offsets, capacity + 1);
+			ids = Arrays.copyOf(ids, capacity);
+			discounts = Arrays.copyOf(discounts, capacity);
+			minBasketValues = Arrays.copyOf(minBasketValues, capacity);
+			maxRedemptions = Arrays.copyOf(maxRedemptions, capacity);
+			validFrom = Arrays.copyOf(validFrom, capacity);
+			validUntil = Arrays.copyOf(validUntil, capacity);
+			skus = Arrays.copyOf(skus, capacity);
+			categories = Arrays.copyOf(categories, capacity);
+			if (slots.length < slotCount(capacity)) {
+				rehash(slotCount(capacity));
+			}
+		}
+
+		private void rehash(final int slotCount) {
+			slots = new int[slotCount];
+			final int mask = slotCount - 1;
+			for (int entry = 0; entry < size; entry++) {
+				int slot = slot(hashes[entry], mask);
+				while (slots[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = entry + 1;
+			}
+		}
+
+		/**
+		 * @return the power of two keeping the table at most three quarters full
+		 */
+		private static int slotCount(final int capacity) {
+			return Integer.highestOneBit(Math.max(2, capacity * 4 / 3 + 1) - 1) << 1;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import java.math.BigDecimal;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * Estimates the heap retained by a coupon in the {@link CouponSnapshot}.
+ * <p>
+ * The model assumes a 64-bit JVM with compressed oops and class pointers (heaps below 32 GB),
+ * 12 byte object headers, 8 byte alignment and Latin-1 compact strings. It counts the coupon, its id,
+ * code, amounts, limit, validity window and scope strings and its slots in the map and the threshold index of the table. Every
+ * amount is counted on its own, so the estimate is an upper bound when the driver returns shared instances for repeated amounts.
+ * The SKU and category sets a scoped coupon parses on its first application are not counted.
+ * The JMH {@code CouponSnapshotBenchmark} compares it with the layout measured by JOL.
+ * </p>
+ *
+ * @author manik sharma
+ */
+final class CouponFootprint {
+
+	private static final int HEADER = 12;
+
+	private static final int REFERENCE = 4;
+
+	/**
+	 * id, code, discount, minBasketValue, maxRedemptions, validFrom, validUntil, skus, categories and the two
+	 * parsed scope references, discountCents, minBasketValueCents and exclusive.
+	 */
+	private static final long COUPON = align(HEADER + 11 * REFERENCE + 2 * 8 + 1);
+
+	private static final long LONG = align(HEADER + 8);
+
+	/** seconds and nanos. */
+	private static final long INSTANT = align(HEADER + 8 + 4);
+
+	/** value, hash and coder, from JDK 13 on also hashIsZero. */
+	private static final long STRING = align(HEADER + REFERENCE + 1 + 4 + 1);
+
+	/** intVal and stringCache references, scale, precision and intCompact. */
+	private static final long BIG_DECIMAL = align(HEADER + 2 * REFERENCE + 2 * 4 + 8);
+
+	/** Four slots of the immutable map, the reference and the threshold of the threshold index. */
+	private static final long TABLE_SLOTS = 4 * REFERENCE + REFERENCE + 8;
+
+	private CouponFootprint() {
+	}
+
+	static long estimate(final Coupon coupon) {
+		long bytes = COUPON + TABLE_SLOTS;
+		if (coupon.getId() != null) {
+			bytes += LONG;
+		}
+		if (coupon.getMaxRedemptions() != null) {
+			bytes += LONG;
+		}
+		if (coupon.getValidFrom() != null) {
+			bytes += INSTANT;
+		}
+		if (coupon.getValidUntil() != null) {
+			bytes += INSTANT;
+		}
+		return bytes + string(coupon.getCode()) + string(coupon.getSkus()) + string(coupon.getCategories())
+				+ estimate(coupon.getDiscount()) + estimate(coupon.getMinBasketValue());
+	}
+
+	/**
+	 * @param value a Latin-1 string, may be null
+	 * @return the size of the string with its array
+	 */
+	static long string(final String value) {
+		return value == null ? 0 : STRING + align(HEADER + 4 + value.length());
+	}
+
+	private static long estimate(final BigDecimal value) {
+		if (value == null) {
+			return 0;
+		}
+		final int bits = value.unscaledValue().bitLength();
+		if (bits < 64) {
+			return BIG_DECIMAL;
+		}
+		// a BigInteger with its int[] magnitude
+		return BIG_DECIMAL + align(HEADER + REFERENCE + 4 * 4) + align(HEADER + 4 + 4 * ((bits + 31) / 32));
+	}
+
+	private static long align(final long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+}
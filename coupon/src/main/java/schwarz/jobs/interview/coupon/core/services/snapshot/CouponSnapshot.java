@@ -0,0 +1,356 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.configuration.CouponSnapshotProperties;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+import schwarz.jobs.interview.coupon.core.services.validity.CouponValidity;
+import schwarz.jobs.interview.coupon.util.Money;
+
+/**
+ * Immutable in-memory snapshot of all coupons keyed by code, replacing the per request lookups when enabled.
+ * <p>
+ * Readers take the current snapshot from a volatile reference and never lock or wait. A refresher reads
+ * the rows whose {@code updated_at} is newer than the last refresh (minus {@code refreshOverlap}),
+ * copies the snapshot with these rows into a new immutable {@link CouponTable} and swaps the reference.
+ * Coupons written by this instance are visible at once through a small overlay until the refresh
+ * includes them, coupons written by other instances after the next refresh.
+ * The heap retained by the table is published as {@code coupon.snapshot.bytes}.
+ * </p>
+ * <p>
+ * The windows of the coupons read are tracked by {@link CouponValidity}. The eligible coupons are those valid at
+ * the time of the request, a coupon reaching its purge horizon is dropped from the table with the next refresh,
+ * like the purge drops its row. Coupons beyond that horizon are never loaded.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class CouponSnapshot implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponSnapshot.class);
+
+	private static final String SELECT_ALL = "SELECT id, code, discount, min_basket_value, exclusive, max_redemptions, valid_from, valid_until, skus, categories, updated_at FROM coupons";
+
+	private static final String SELECT_CHANGED = SELECT_ALL + " WHERE updated_at > ?";
+
+	private final CouponSnapshotProperties properties;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final BlockingExecutor blockingExecutor;
+
+	private final CouponValidity couponValidity;
+
+	private final Timer refreshTimer;
+
+	private final Map<String, Coupon> overlay = new ConcurrentHashMap<>();
+
+	/** Codes reaching their purge horizon since the last refresh. */
+	private final Set<String> removals = ConcurrentHashMap.newKeySet();
+
+	private volatile Snapshot snapshot;
+
+	private Disposable refreshes;
+
+	public CouponSnapshot(final CouponSnapshotProperties properties, final JdbcTemplate jdbcTemplate,
+			final BlockingExecutor blockingExecutor, final CouponValidity couponValidity, final MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.jdbcTemplate = jdbcTemplate;
+		this.blockingExecutor = blockingExecutor;
+		this.couponValidity = couponValidity;
+		couponValidity.onPurgeable(codes -> {
+			if (isReady()) {
+				removals.addAll(codes);
+			}
+		});
+		this.refreshTimer = Timer.builder("coupon.snapshot.refresh")
+				.description("Time to read the changed coupons and swap the snapshot").register(meterRegistry);
+		Gauge.builder("coupon.snapshot.coupons", this, CouponSnapshot::size)
+				.description("Coupons in the snapshot").register(meterRegistry);
+		Gauge.builder("coupon.snapshot.bytes", this, CouponSnapshot::estimatedBytes)
+				.baseUnit("bytes").description("Estimated heap retained by the snapshot").register(meterRegistry);
+	}
+
+	/**
+	 * @return true once the first snapshot is loaded, reads go to the cache and the store before
+	 */
+	public boolean isReady() {
+		return snapshot != null;
+	}
+
+	/**
+	 * @param code normalized coupon code
+	 * @return the coupon, null if it does not exist
+	 */
+	public Coupon get(final String code) {
+		final Coupon written = overlay.isEmpty() ? null : overlay.get(code);
+		return written != null ? written : snapshot.table.get(code);
+	}
+
+	/**
+	 * @param codes normalized coupon codes
+	 * @return the found coupons keyed by code, unknown codes are absent
+	 */
+	public Map<String, Coupon> getAll(final Collection<String> codes) {
+		final Map<String, Coupon> coupons = new HashMap<>();
+		for (final String code : codes) {
+			final Coupon coupon = get(code);
+			if (coupon != null) {
+				coupons.put(code, coupon);
+			}
+		}
+		return coupons;
+	}
+
+	/**
+	 * The coupons of the overlay replace those of the table with the same code, the table is asked for as many
+	 * more coupons as the overlay holds so that the result is complete after dropping the replaced ones.
+	 *
+	 * @param basketValueCents basket value in cents
+	 * @param limit            maximum number of coupons
+	 * @param bestFirst        largest discount first instead of ascending minimum basket value
+	 * @return the coupons valid now whose minimum basket value is at most the basket value, without scoped coupons
+	 */
+	public List<Coupon> eligible(final long basketValueCents, final int limit, final boolean bestFirst) {
+		final long now = System.currentTimeMillis();
+		final List<Coupon> written = overlay.isEmpty() ? List.of() : List.copyOf(overlay.values());
+		final List<Coupon> coupons = snapshot.table.eligible(basketValueCents, now, limit + written.size(), bestFirst);
+		if (written.isEmpty()) {
+			return coupons.size() > limit ? coupons.subList(0, limit) : coupons;
+		}
+		final Map<String, Coupon> replaced = written.stream().collect(Collectors.toMap(Coupon::getCode, c -> c, (a, b) -> b));
+		final List<Coupon> merged = new ArrayList<>(coupons.size() + written.size());
+		coupons.stream().filter(coupon -> !replaced.containsKey(coupon.getCode())).forEach(merged::add);
+		replaced.values().stream().filter(coupon -> coupon.getMinBasketValueCents() <= basketValueCents
+				&& !coupon.isScoped() && coupon.isValidAt(now)).forEach(merged::add);
+		merged.sort(bestFirst ? Comparator.comparingLong(Coupon::getDiscountCents).reversed()
+				: Comparator.comparingLong(Coupon::getMinBasketValueCents));
+		return merged.size() > limit ? merged.subList(0, limit) : merged;
+	}
+
+	/**
+	 * Makes a coupon written by this instance visible before the next refresh,
+	 * to be called once the write is committed.
+	 *
+	 * @param coupon the saved coupon
+	 */
+	public void put(final Coupon coupon) {
+		if (!isReady()) {
+			return;
+		}
+		if (couponValidity.isPurgeable(coupon, System.currentTimeMillis())) {
+			// written already past its purge horizon, kept out like by the load
+			overlay.remove(coupon.getCode());
+			removals.add(coupon.getCode());
+			return;
+		}
+		couponValidity.track(coupon);
+		overlay.put(coupon.getCode(), coupon);
+	}
+
+	/**
+	 * @return the number of coupons in the snapshot
+	 */
+	public long size() {
+		final Snapshot current = snapshot;
+		return current == null ? 0 : current.table.size();
+	}
+
+	/**
+	 * @return the estimated heap retained by the coupons of the snapshot
+	 */
+	public long estimatedBytes() {
+		final Snapshot current = snapshot;
+		return current == null ? 0 : current.table.estimatedBytes();
+	}
+
+	/**
+	 * Reads the rows changed since the last refresh, all rows on the first one,
+	 * and swaps in a new snapshot if any row changed.
+	 *
+	 * @return Mono completing once the snapshot is up to date
+	 */
+	public Mono<Void> refresh() {
+		return blockingExecutor.call(() -> {
+			final long started = System.nanoTime();
+			final Snapshot current = snapshot;
+			if (current == null) {
+				load();
+			} else {
+				update(current);
+			}
+			refreshTimer.record(Duration.ofNanos(System.nanoTime() - started));
+			return started;
+		}).then();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		refreshes = Flux.interval(Duration.ZERO, properties.getRefreshInterval())
+				.onBackpressureDrop()
+				.concatMap(tick -> refresh().onErrorResume(error -> {
+					log.error("Refreshing the coupon snapshot failed.", error);
+					return Mono.empty();
+				}))
+				.subscribe();
+	}
+
+	@Override
+	public void destroy() {
+		if (refreshes != null) {
+			refreshes.dispose();
+		}
+	}
+
+	/**
+	 * Streams all rows into a new table, so that no more than one row is held as {@link Coupon} at a time
+	 * with the {@link CouponTable#COMPACT} layout.
+	 */
+	private void load() {
+		final Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupons", Integer.class);
+		final CouponTable.Builder builder = CouponTable.builder(properties.getLayout(), count == null ? 0 : count);
+		final Timestamp[] version = { new Timestamp(0) };
+		final long now = System.currentTimeMillis();
+		jdbcTemplate.query(SELECT_ALL, (RowCallbackHandler) resultSet -> {
+			final Coupon coupon = coupon(resultSet, version);
+			if (!couponValidity.isPurgeable(coupon, now)) {
+				couponValidity.track(coupon);
+				builder.add(coupon);
+			}
+		});
+		removals.clear();
+		final CouponTable table = builder.build();
+		snapshot = new Snapshot(table, version[0]);
+		log.info("Coupon snapshot loaded with {} coupons in the {} layout, about {} bytes per coupon.", table.size(),
+				properties.getLayout(), table.size() == 0 ? 0 : table.estimatedBytes() / table.size());
+	}
+
+	private void update(final Snapshot current) {
+		final Timestamp since = new Timestamp(current.version.getTime() - properties.getRefreshOverlap().toMillis());
+		final Timestamp[] version = { current.version };
+		final List<Coupon> read = jdbcTemplate.query(SELECT_CHANGED,
+				(resultSet, row) -> coupon(resultSet, version), since);
+		final long now = System.currentTimeMillis();
+		final Set<String> removed = new HashSet<>();
+		for (final String code : removals) {
+			removals.remove(code);
+			removed.add(code);
+		}
+		read.stream().filter(coupon -> couponValidity.isPurgeable(coupon, now)).map(Coupon::getCode).forEach(removed::add);
+		// the overlap reads recent rows again, only rows that differ from the snapshot need a copy
+		final List<Coupon> changed = read.stream().filter(coupon -> !couponValidity.isPurgeable(coupon, now)
+				&& !same(coupon, current.table.get(coupon.getCode()))).collect(Collectors.toList());
+		changed.forEach(couponValidity::track);
+		final CouponTable kept = removed.isEmpty() ? current.table : current.table.without(removed);
+		final CouponTable table = changed.isEmpty() ? kept : kept.with(changed);
+		if (table != current.table) {
+			snapshot = new Snapshot(table, version[0]);
+			log.info("Coupon snapshot swapped with {} changed, {} removed and {} total coupons, about {} bytes per coupon.",
+					changed.size(), current.table.size() - kept.size(), table.size(),
+					table.size() == 0 ? 0 : table.estimatedBytes() / table.size());
+		} else if (version[0].after(current.version)) {
+			snapshot = new Snapshot(current.table, version[0]);
+		}
+		removed.forEach(code -> overlay.computeIfPresent(code,
+				(key, written) -> couponValidity.isPurgeable(written, now) ? null : written));
+		settle(read);
+	}
+
+	/**
+	 * @param version the newest {@code updated_at} read so far, raised to the one of the row
+	 */
+	private static Coupon coupon(final ResultSet resultSet, final Timestamp[] version) throws SQLException {
+		final Timestamp updatedAt = resultSet.getTimestamp("updated_at");
+		if (updatedAt.after(version[0])) {
+			version[0] = updatedAt;
+		}
+		return Coupon.builder().id(resultSet.getLong("id")).code(resultSet.getString("code"))
+				.discount(resultSet.getBigDecimal("discount"))
+				.minBasketValue(resultSet.getBigDecimal("min_basket_value"))
+				.exclusive(resultSet.getBoolean("exclusive"))
+				.maxRedemptions(resultSet.getObject("max_redemptions", Long.class))
+				.validFrom(instant(resultSet.getTimestamp("valid_from")))
+				.validUntil(instant(resultSet.getTimestamp("valid_until")))
+				.skus(resultSet.getString("skus")).categories(resultSet.getString("categories")).build();
+	}
+
+	private static Instant instant(final Timestamp timestamp) {
+		return timestamp == null ? null : timestamp.toInstant();
+	}
+
+	/**
+	 * Drops the written coupons the snapshot now contains, only after the swap and only if they
+	 * were not written again, so that readers never miss a coupon written by this instance.
+	 */
+	private void settle(final List<Coupon> read) {
+		read.forEach(coupon -> overlay.computeIfPresent(coupon.getCode(),
+				(code, written) -> same(written, coupon) ? null : written));
+	}
+
+	/**
+	 * Compares what reads return, imported and generated coupons are written without their id.
+	 * The amounts are compared numerically, a saved coupon keeps the scale of the request while the column has scale 2.
+	 */
+	private static boolean same(final Coupon coupon, final Coupon other) {
+		return other != null && Objects.equals(coupon.getCode(), other.getCode())
+				&& Money.toCentsOrZero(coupon.getDiscount()) == Money.toCentsOrZero(other.getDiscount())
+				&& Money.toCentsOrZero(coupon.getMinBasketValue()) == Money.toCentsOrZero(other.getMinBasketValue())
+				&& (coupon.getMinBasketValue() == null) == (other.getMinBasketValue() == null)
+				&& coupon.isExclusive() == other.isExclusive()
+				&& Objects.equals(coupon.getMaxRedemptions(), other.getMaxRedemptions())
+				&& Objects.equals(coupon.getValidFrom(), other.getValidFrom())
+				&& Objects.equals(coupon.getValidUntil(), other.getValidUntil())
+				&& Objects.equals(coupon.getSkus(), other.getSkus())
+				&& Objects.equals(coupon.getCategories(), other.getCategories());
+	}
+
+	/**
+	 * The coupons and the newest {@code updated_at} they contain.
+	 */
+	private static final class Snapshot {
+
+		private final CouponTable table;
+
+		private final Timestamp version;
+
+		private Snapshot(final CouponTable table, final Timestamp version) {
+			this.table = table;
+			this.version = version;
+		}
+	}
+}
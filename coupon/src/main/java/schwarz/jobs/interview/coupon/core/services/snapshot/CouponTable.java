@@ -0,0 +1,87 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import java.util.Collection;
+import java.util.List;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * Immutable lookup table of coupons by normalized code, the storage of a {@link CouponSnapshot}.
+ * <ul>
+ * <li>{@link #OBJECTS}: one {@link Coupon} per code in an immutable map, fastest lookups</li>
+ * <li>{@link #COMPACT}: codes as bytes and amounts as cents in primitive arrays, for catalogs of millions of codes</li>
+ * </ul>
+ *
+ * @author manik sharma
+ */
+public interface CouponTable {
+
+	String OBJECTS = "objects";
+
+	String COMPACT = "compact";
+
+	/**
+	 * @param code normalized coupon code
+	 * @return the coupon, null if it does not exist
+	 */
+	Coupon get(String code);
+
+	/**
+	 * Answers from an index sorted by minimum basket value in {@code O(log n + k)} for {@code k} eligible coupons.
+	 *
+	 * @param basketValueCents basket value in cents
+	 * @param now              the time the coupons have to be valid at, in epoch milliseconds
+	 * @param limit            maximum number of coupons
+	 * @param bestFirst        largest discount first instead of ascending minimum basket value
+	 * @return the valid coupons whose minimum basket value is at most the basket value, without the coupons
+	 *         limited to SKUs or categories
+	 */
+	List<Coupon> eligible(long basketValueCents, long now, int limit, boolean bestFirst);
+
+	/**
+	 * @return the number of coupons
+	 */
+	int size();
+
+	/**
+	 * @return the heap retained by the table
+	 */
+	long estimatedBytes();
+
+	/**
+	 * @param changed coupons to add or replace
+	 * @return a new table with the changed coupons, this table is not modified
+	 */
+	CouponTable with(Collection<Coupon> changed);
+
+	/**
+	 * @param removed normalized codes to remove, codes not in the table are ignored
+	 * @return a new table without the coupons of the codes, this table is not modified
+	 */
+	CouponTable without(Collection<String> removed);
+
+	/**
+	 * @param layout {@link #OBJECTS} or {@link #COMPACT}
+	 * @param expectedSize number of coupons that will be added
+	 * @return a builder for a table of the layout
+	 */
+	static Builder builder(final String layout, final int expectedSize) {
+		if (OBJECTS.equals(layout)) {
+			return new ObjectCouponTable.Builder(expectedSize);
+		}
+		if (COMPACT.equals(layout)) {
+			return new CompactCouponTable.Builder(expectedSize);
+		}
+		throw new IllegalArgumentException("Unknown coupon table layout: " + layout);
+	}
+
+	/**
+	 * Collects the coupons of a new table, a later coupon replaces an earlier one with the same code.
+	 */
+	interface Builder {
+
+		Builder add(Coupon coupon);
+
+		CouponTable build();
+	}
+}
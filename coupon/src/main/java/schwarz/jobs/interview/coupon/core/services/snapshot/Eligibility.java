@@ -0,0 +1,101 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * Selects the eligible coupons from the positions of a threshold index.
+ * <p>
+ * The positions {@code 0 .. count - 1} hold the coupons whose minimum basket value is at most the
+ * basket value, in ascending order of that value. Positions of coupons outside their validity window are skipped.
+ * Without {@code bestFirst} the first {@code limit} valid positions are returned, with it the {@code limit}
+ * largest discounts are kept in a heap, {@code O(count log limit)}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+final class Eligibility {
+
+	private Eligibility() {
+	}
+
+	static List<Coupon> select(final int count, final int limit, final boolean bestFirst, final IntPredicate validAt,
+			final IntToLongFunction discountAt, final IntFunction<Coupon> couponAt) {
+		final int size = Math.min(count, limit);
+		final List<Coupon> coupons = new ArrayList<>(size);
+		if (!bestFirst) {
+			for (int position = 0; position < count && coupons.size() < size; position++) {
+				if (validAt.test(position)) {
+					coupons.add(couponAt.apply(position));
+				}
+			}
+			return coupons;
+		}
+		// min-heap of the positions with the largest discounts seen so far
+		final int[] heap = new int[size];
+		int heapSize = 0;
+		for (int position = 0; position < count && size > 0; position++) {
+			if (!validAt.test(position)) {
+				continue;
+			}
+			if (heapSize < size) {
+				heap[heapSize] = position;
+				siftUp(heap, heapSize++, discountAt);
+			} else if (discountAt.applyAsLong(position) > discountAt.applyAsLong(heap[0])) {
+				heap[0] = position;
+				siftDown(heap, heapSize, discountAt);
+			}
+		}
+		final int[] best = new int[heapSize];
+		for (int i = heapSize - 1; i >= 0; i--) {
+			best[i] = heap[0];
+			heap[0] = heap[i];
+			siftDown(heap, i, discountAt);
+		}
+		for (final int position : best) {
+			coupons.add(couponAt.apply(position));
+		}
+		return coupons;
+	}
+
+	private static void siftUp(final int[] heap, final int index, final IntToLongFunction discountAt) {
+		int child = index;
+		while (child > 0) {
+			final int parent = (child - 1) / 2;
+			if (discountAt.applyAsLong(heap[parent]) <= discountAt.applyAsLong(heap[child])) {
+				return;
+			}
+			swap(heap, parent, child);
+			child = parent;
+		}
+	}
+
+	private static void siftDown(final int[] heap, final int size, final IntToLongFunction discountAt) {
+		int parent = 0;
+		while (true) {
+			final int left = 2 * parent + 1;
+			if (left >= size) {
+				return;
+			}
+			final int right = left + 1;
+			final int smaller = right < size && discountAt.applyAsLong(heap[right]) < discountAt.applyAsLong(heap[left])
+					? right : left;
+			if (discountAt.applyAsLong(heap[parent]) <= discountAt.applyAsLong(heap[smaller])) {
+				return;
+			}
+			swap(heap, parent, smaller);
+			parent = smaller;
+		}
+	}
+
+	private static void swap(final int[] heap, final int i, final int j) {
+		final int value = heap[i];
+		heap[i] = heap[j];
+		heap[j] = value;
+	}
+}
@@ -0,0 +1,164 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * {@link CouponTable} keeping the coupons in an immutable map, its footprint is estimated with {@link CouponFootprint}.
+ * The threshold index is an array of the coupons sorted by minimum basket value.
+ *
+ * @author manik sharma
+ */
+final class ObjectCouponTable implements CouponTable {
+
+	private static final Comparator<Coupon> BY_THRESHOLD = Comparator.comparingLong(Coupon::getMinBasketValueCents);
+
+	private final Map<String, Coupon> coupons;
+
+	private final Coupon[] byThreshold;
+
+	private final long[] thresholds;
+
+	private final long bytes;
+
+	private ObjectCouponTable(final Map<String, Coupon> coupons, final Coupon[] byThreshold, final long bytes) {
+		this.coupons = Map.copyOf(coupons);
+		this.byThreshold = byThreshold;
+		this.thresholds = new long[byThreshold.length];
+		for (int i = 0; i < byThreshold.length; i++) {
+			thresholds[i] = byThreshold[i].getMinBasketValueCents();
+		}
+		this.bytes = bytes;
+	}
+
+	@Override
+	public Coupon get(final String code) {
+		return coupons.get(code);
+	}
+
+	@Override
+	public List<Coupon> eligible(final long basketValueCents, final long now, final int limit, final boolean bestFirst) {
+		return Eligibility.select(upperBound(thresholds, basketValueCents), limit, bestFirst,
+				position -> !byThreshold[position].isScoped() && byThreshold[position].isValidAt(now), position -> byThreshold[position].getDiscountCents(),
+				position -> byThreshold[position]);
+	}
+
+	@Override
+	public int size() {
+		return coupons.size();
+	}
+
+	@Override
+	public long estimatedBytes() {
+		return bytes;
+	}
+
+	@Override
+	public CouponTable with(final Collection<Coupon> changed) {
+		final Builder builder = new Builder(new HashMap<>(coupons), bytes, byThreshold);
+		changed.forEach(builder::add);
+		return builder.build();
+	}
+
+	@Override
+	public CouponTable without(final Collection<String> removed) {
+		final Map<String, Coupon> kept = new HashMap<>(coupons);
+		long keptBytes = bytes;
+		for (final String code : removed) {
+			final Coupon coupon = kept.remove(code);
+			if (coupon != null) {
+				keptBytes -= CouponFootprint.estimate(coupon);
+			}
+		}
+		if (kept.size() == coupons.size()) {
+			return this;
+		}
+		final Coupon[] index = Arrays.stream(byThreshold).filter(coupon -> kept.containsKey(coupon.getCode()))
+				.toArray(Coupon[]::new);
+		return new ObjectCouponTable(kept, index, keptBytes);
+	}
+
+	/**
+	 * @return the number of thresholds at most the value
+	 */
+	private static int upperBound(final long[] thresholds, final long value) {
+		int low = 0;
+		int high = thresholds.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (thresholds[middle] <= value) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	static final class Builder implements CouponTable.Builder {
+
+		private final Map<String, Coupon> coupons;
+
+		private long bytes;
+
+		/** The index of the table this builder copies, null for a new table. */
+		private final Coupon[] base;
+
+		private final Map<String, Coupon> added = new LinkedHashMap<>();
+
+		Builder(final int expectedSize) {
+			this(new HashMap<>(Math.max(16, expectedSize * 4 / 3 + 1)), 0, null);
+		}
+
+		private Builder(final Map<String, Coupon> coupons, final long bytes, final Coupon[] base) {
+			this.coupons = coupons;
+			this.bytes = bytes;
+			this.base = base;
+		}
+
+		@Override
+		public Builder add(final Coupon coupon) {
+			final Coupon previous = coupons.put(coupon.getCode(), coupon);
+			bytes += CouponFootprint.estimate(coupon) - (previous == null ? 0 : CouponFootprint.estimate(previous));
+			if (base != null) {
+				added.put(coupon.getCode(), coupon);
+			}
+			return this;
+		}
+
+		@Override
+		public CouponTable build() {
+			if (base == null) {
+				final Coupon[] byThreshold = coupons.values().toArray(new Coupon[0]);
+				Arrays.sort(byThreshold, BY_THRESHOLD);
+				return new ObjectCouponTable(coupons, byThreshold, bytes);
+			}
+			// merges the still sorted coupons of the copied table with the sorted added ones
+			final Coupon[] changed = added.values().toArray(new Coupon[0]);
+			Arrays.sort(changed, BY_THRESHOLD);
+			final Coupon[] byThreshold = new Coupon[coupons.size()];
+			int kept = 0;
+			int next = 0;
+			for (final Coupon coupon : base) {
+				if (added.containsKey(coupon.getCode())) {
+					continue;
+				}
+				while (next < changed.length && BY_THRESHOLD.compare(changed[next], coupon) < 0) {
+					byThreshold[kept++] = changed[next++];
+				}
+				byThreshold[kept++] = coupon;
+			}
+			while (next < changed.length) {
+				byThreshold[kept++] = changed[next++];
+			}
+			return new ObjectCouponTable(coupons, byThreshold, bytes);
+		}
+	}
+}
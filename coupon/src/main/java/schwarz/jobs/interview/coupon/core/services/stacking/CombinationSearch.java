@@ -0,0 +1,181 @@
+package schwarz.jobs.interview.coupon.core.services.stacking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * Finds the combination of coupons with the largest total discount on one basket.
+ * <p>
+ * Stacking rules: at most {@code maxCoupons} coupons are combined, an exclusive coupon is never combined
+ * with another one, and the total discount is capped at the basket value. Of two combinations with the same
+ * total the one with fewer coupons wins, so that no coupon is spent without a benefit. The discount of a coupon
+ * on the basket may be less than its discount, e.g. for a coupon limited to some of the basket lines.
+ * </p>
+ * <p>
+ * The stackable coupons are searched depth first in descending order of discount, taking a coupon before
+ * skipping it. A branch is pruned as soon as its bound, the discount taken so far plus the largest discounts
+ * still available for the free places, cannot beat the best combination found. The first complete branch is
+ * the greedy choice, which with the rules above is already optimal, so the bound cuts all other branches right
+ * at their root: {@code O(n log n)} for the sort and {@code O(n * maxCoupons)} for the search instead of
+ * enumerating all {@code 2^n} subsets. Exclusive coupons are compared alone against the best stack.
+ * </p>
+ *
+ * @author manik sharma
+ */
+public final class CombinationSearch {
+
+	private final long basketValueCents;
+
+	private final int maxCoupons;
+
+	/** Discounts of the stackable coupons in descending order. */
+	private long[] discounts;
+
+	/** Sum of the discounts from index i to the end of {@link #discounts}. */
+	private long[] suffixSums;
+
+	private final int[] chosen;
+
+	private int[] best;
+
+	private long bestTotal = -1;
+
+	private CombinationSearch(final long basketValueCents, final int maxCoupons) {
+		this.basketValueCents = basketValueCents;
+		this.maxCoupons = maxCoupons;
+		this.chosen = new int[maxCoupons];
+	}
+
+	/**
+	 * @param basketValueCents basket value in cents, caps the total discount
+	 * @param candidates       coupons applicable to the basket on their own, in request order
+	 * @param maxCoupons       maximum number of combined coupons
+	 * @return the best combination, empty if there is no candidate
+	 */
+	public static Combination best(final long basketValueCents, final List<Coupon> candidates, final int maxCoupons) {
+		return best(basketValueCents, candidates, Coupon::getDiscountCents, maxCoupons);
+	}
+
+	/**
+	 * @param basketValueCents basket value in cents, caps the total discount
+	 * @param candidates       coupons applicable to the basket on their own, in request order
+	 * @param discountCents    the discount of a candidate on this basket in cents
+	 * @param maxCoupons       maximum number of combined coupons
+	 * @return the best combination, empty if there is no candidate
+	 */
+	public static Combination best(final long basketValueCents, final List<Coupon> candidates,
+			final ToLongFunction<Coupon> discountCents, final int maxCoupons) {
+		if (maxCoupons < 1) {
+			throw new IllegalArgumentException("At least one coupon must be applicable.");
+		}
+		final List<Coupon> stackable = new ArrayList<>(candidates.size());
+		Coupon exclusive = null;
+		for (final Coupon coupon : candidates) {
+			if (!coupon.isExclusive()) {
+				stackable.add(coupon);
+			} else if (exclusive == null || discountCents.applyAsLong(coupon) > discountCents.applyAsLong(exclusive)) {
+				exclusive = coupon;
+			}
+		}
+		// stable, equal discounts keep the request order
+		stackable.sort(Comparator.comparingLong(discountCents).reversed());
+
+		final CombinationSearch search = new CombinationSearch(basketValueCents, maxCoupons);
+		search.discounts = stackable.stream().mapToLong(discountCents).toArray();
+		search.suffixSums = new long[search.discounts.length + 1];
+		for (int i = search.discounts.length - 1; i >= 0; i--) {
+			search.suffixSums[i] = search.suffixSums[i + 1] + search.discounts[i];
+		}
+		search.search(0, 0, 0);
+
+		final List<Coupon> coupons = new ArrayList<>(maxCoupons);
+		for (final int index : search.best) {
+			coupons.add(stackable.get(index));
+		}
+		if (exclusive != null) {
+			final long alone = Math.min(discountCents.applyAsLong(exclusive), basketValueCents);
+			if (alone > search.bestTotal || (alone == search.bestTotal && alone > 0 && coupons.size() > 1)) {
+				return Combination.of(basketValueCents, List.of(exclusive), discountCents);
+			}
+		}
+		return Combination.of(basketValueCents, coupons, discountCents);
+	}
+
+	private void search(final int next, final int taken, final long total) {
+		final long capped = Math.min(total, basketValueCents);
+		if (capped > bestTotal || (capped == bestTotal && taken < best.length)) {
+			bestTotal = capped;
+			best = Arrays.copyOf(chosen, taken);
+		}
+		if (taken == maxCoupons || total >= basketValueCents) {
+			return;
+		}
+		for (int index = next; index < discounts.length; index++) {
+			if (bound(index, taken, total) <= bestTotal) {
+				// the discounts only decrease from here, so no later index can do better either
+				return;
+			}
+			chosen[taken] = index;
+			search(index + 1, taken + 1, total + discounts[index]);
+		}
+	}
+
+	/**
+	 * @return the largest capped total reachable when the free places are filled from index onwards
+	 */
+	private long bound(final int index, final int taken, final long total) {
+		final int end = Math.min(discounts.length, index + maxCoupons - taken);
+		return Math.min(basketValueCents, total + suffixSums[index] - suffixSums[end]);
+	}
+
+	/**
+	 * The chosen coupons in descending order of discount with their contributions; the last one contributes
+	 * only what is left of the basket value.
+	 */
+	public static final class Combination {
+
+		private final List<Coupon> coupons;
+
+		private final long[] contributions;
+
+		private final long totalCents;
+
+		private Combination(final List<Coupon> coupons, final long[] contributions, final long totalCents) {
+			this.coupons = coupons;
+			this.contributions = contributions;
+			this.totalCents = totalCents;
+		}
+
+		static Combination of(final long basketValueCents, final List<Coupon> coupons,
+				final ToLongFunction<Coupon> discountCents) {
+			final long[] contributions = new long[coupons.size()];
+			long remaining = basketValueCents;
+			for (int i = 0; i < contributions.length; i++) {
+				contributions[i] = Math.min(discountCents.applyAsLong(coupons.get(i)), remaining);
+				remaining -= contributions[i];
+			}
+			return new Combination(List.copyOf(coupons), contributions, basketValueCents - remaining);
+		}
+
+		public List<Coupon> getCoupons() {
+			return coupons;
+		}
+
+		/**
+		 * @param index position in {@link #getCoupons()}
+		 * @return the discount in cents the coupon adds to the total
+		 */
+		public long getContributionCents(final int index) {
+			return contributions[index];
+		}
+
+		public long getTotalCents() {
+			return totalCents;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package schwarz.jobs.interview.coupon.core.services.validity;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.configuration.CouponValidityProperties;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+import schwarz.jobs.interview.coupon.core.services.redemption.RedemptionCounters;
+import schwarz.jobs.interview.coupon.util.Constants;
+
+/**
+ * Moves the coupons expired longer than {@code retention} from the coupons table to {@code coupons_archive}.
+ * <p>
+ * A run works in chunks of {@code purgeBatchSize} coupons read by the {@code valid_until} index, each chunk
+ * copies its rows with their redemptions to the archive and deletes them in one short transaction on the
+ * {@link BlockingExecutor}, followed by a pause of {@code purgePause}. So the locks on the coupons table are
+ * held for one chunk only, and the writers and the snapshot refresh are never blocked for the whole run.
+ * A run stops at the first chunk that is not full. The archived coupons are counted as
+ * {@code coupon.purge.archived}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class CouponPurge implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponPurge.class);
+
+	private static final String SELECT_EXPIRED = "SELECT id, code FROM coupons WHERE valid_until <= ? ORDER BY valid_until LIMIT ?";
+
+	private static final String ARCHIVE = "INSERT INTO coupons_archive (id, code, discount, min_basket_value, exclusive, max_redemptions, valid_from, valid_until, skus, categories, redeemed)"
+			+ " SELECT c.id, c.code, c.discount, c.min_basket_value, c.exclusive, c.max_redemptions, c.valid_from, c.valid_until, c.skus, c.categories, r.redeemed"
+			+ " FROM coupons c LEFT JOIN coupon_redemptions r ON r.code = c.code WHERE c.id IN (%s)";
+
+	private static final String DELETE_REDEMPTIONS = "DELETE FROM coupon_redemptions WHERE code IN (%s)";
+
+	private static final String DELETE_COUPONS = "DELETE FROM coupons WHERE id IN (%s)";
+
+	private final CouponValidityProperties properties;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final BlockingExecutor blockingExecutor;
+
+	private final CouponCache couponCache;
+
+	private final CatalogVersion catalogVersion;
+
+	private final RedemptionCounters redemptionCounters;
+
+	private final Counter archived;
+
+	private Disposable runs;
+
+	public CouponPurge(final CouponValidityProperties properties, final JdbcTemplate jdbcTemplate,
+			final TransactionTemplate transactionTemplate, final BlockingExecutor blockingExecutor,
+			final CouponCache couponCache, final CatalogVersion catalogVersion,
+			final RedemptionCounters redemptionCounters, final MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.blockingExecutor = blockingExecutor;
+		this.couponCache = couponCache;
+		this.catalogVersion = catalogVersion;
+		this.redemptionCounters = redemptionCounters;
+		this.archived = Counter.builder("coupon.purge.archived")
+				.description("Expired coupons moved to the archive").register(meterRegistry);
+	}
+
+	/**
+	 * Archives all coupons expired longer than the retention, chunk by chunk.
+	 *
+	 * @return Mono of the number of archived coupons
+	 */
+	public Mono<Long> purge() {
+		return Mono.defer(() -> {
+			final Timestamp horizon = Timestamp.from(Instant.now().minus(properties.getRetention()));
+			return archiveChunk(horizon)
+					.expand(codes -> codes.size() < batchSize() ? Mono.empty()
+							: archiveChunk(horizon).delaySubscription(properties.getPurgePause()))
+					.reduce(0L, (count, codes) -> count + codes.size());
+		});
+	}
+
+	/**
+	 * Archives and deletes one chunk in one transaction, then drops the codes from the cache and the
+	 * {@link RedemptionCounters} and bumps the {@link CatalogVersion} with them.
+	 *
+	 * @return Mono of the archived codes
+	 */
+	private Mono<List<String>> archiveChunk(final Timestamp horizon) {
+		return blockingExecutor.call(() -> transactionTemplate.execute(status -> {
+			final List<Object[]> expired = jdbcTemplate.query(SELECT_EXPIRED,
+					(resultSet, row) -> new Object[] { resultSet.getLong("id"), resultSet.getString("code") },
+					horizon, batchSize());
+			if (expired.isEmpty()) {
+				return List.<String>of();
+			}
+			final Object[] ids = expired.stream().map(row -> row[0]).toArray();
+			final List<String> codes = expired.stream().map(row -> (String) row[1]).collect(Collectors.toList());
+			final String placeholders = String.join(",", Collections.nCopies(expired.size(), "?"));
+			jdbcTemplate.update(String.format(ARCHIVE, placeholders), ids);
+			jdbcTemplate.update(String.format(DELETE_REDEMPTIONS, placeholders), codes.toArray());
+			jdbcTemplate.update(String.format(DELETE_COUPONS, placeholders), ids);
+			return codes;
+		})).doOnNext(codes -> {
+			if (!codes.isEmpty()) {
+				codes.forEach(couponCache::invalidate);
+				redemptionCounters.forget(codes);
+				catalogVersion.bump(codes);
+				archived.increment(codes.size());
+			}
+		});
+	}
+
+	/**
+	 * @return the coupons of one chunk, at most one IN clause of ids
+	 */
+	private int batchSize() {
+		return Math.max(1, Math.min(properties.getPurgeBatchSize(), Constants.MAX_IN_CLAUSE_PARAMETERS));
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!properties.isPurgeEnabled()) {
+			return;
+		}
+		runs = Flux.interval(properties.getPurgeInterval(), properties.getPurgeInterval())
+				.onBackpressureDrop()
+				.concatMap(tick -> purge().doOnNext(count -> {
+					if (count > 0) {
+						log.info("Archived {} coupons expired for more than {}.", count, properties.getRetention());
+					}
+				}).onErrorResume(error -> {
+					log.error("Purging the expired coupons failed.", error);
+					return Mono.empty();
+				}))
+				.subscribe();
+	}
+
+	@Override
+	public void destroy() {
+		if (runs != null) {
+			runs.dispose();
+		}
+	}
+}
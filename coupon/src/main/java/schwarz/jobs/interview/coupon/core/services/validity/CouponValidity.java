@@ -0,0 +1,223 @@
+package schwarz.jobs.interview.coupon.core.services.validity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import schwarz.jobs.interview.coupon.configuration.CouponValidityProperties;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+
+/**
+ * Timers of the validity windows of the coupons held in memory.
+ * <p>
+ * Every coupon with a validity window that is loaded into the {@link CouponCache} or the coupon snapshot is
+ * {@link #track(Coupon) tracked}: its start, its end and its purge horizon, the end plus {@code retention},
+ * are scheduled on a {@link TimerWheel} advanced every {@code tick}. At each boundary the code is dropped from
+ * the cache and the {@link CatalogVersion} is bumped with it, so lookups and their ETags change when the coupon
+ * starts or ends instead of after the next write. At the purge horizon the code is handed to the
+ * {@link #onPurgeable(Consumer) listeners}, which drop it from their tables like the purge drops the row.
+ * Nothing scans the coupons, a tick only touches the timers that are due. A timer of a window changed since
+ * fires without effect. The pending timers are published as {@code coupon.validity.timers}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class CouponValidity implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponValidity.class);
+
+	/** Marks a missing bound of a window. */
+	private static final long NONE = Long.MIN_VALUE;
+
+	private final CouponValidityProperties properties;
+
+	private final CouponCache couponCache;
+
+	private final CatalogVersion catalogVersion;
+
+	/** The window of every tracked code, the timers are scheduled for. */
+	private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+	/** Guarded by itself. */
+	private final TimerWheel<String> wheel;
+
+	private final List<Consumer<Collection<String>>> purgeListeners = new CopyOnWriteArrayList<>();
+
+	private Scheduler ticker;
+
+	private Disposable ticks;
+
+	public CouponValidity(final CouponValidityProperties properties, final CouponCache couponCache,
+			final CatalogVersion catalogVersion, final MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.couponCache = couponCache;
+		this.catalogVersion = catalogVersion;
+		this.wheel = new TimerWheel<>(properties.getTick().toMillis(), System.currentTimeMillis());
+		Gauge.builder("coupon.validity.timers", this, CouponValidity::timers)
+				.description("Pending timers of coupon validity windows").register(meterRegistry);
+	}
+
+	/**
+	 * Schedules the boundaries of the window of a coupon loaded into memory, a no-op if the window is
+	 * tracked already. A coupon without window stops the tracking of its code.
+	 *
+	 * @param coupon the loaded coupon
+	 */
+	public void track(final Coupon coupon) {
+		if (coupon.getValidFrom() == null && coupon.getValidUntil() == null) {
+			if (!windows.isEmpty()) {
+				windows.remove(coupon.getCode());
+			}
+			return;
+		}
+		final Window window = new Window(coupon);
+		final long now = System.currentTimeMillis();
+		if (window.purgeableAt(now, properties.getRetention().toMillis())) {
+			windows.remove(coupon.getCode());
+			return;
+		}
+		if (window.equals(windows.put(coupon.getCode(), window))) {
+			return;
+		}
+		synchronized (wheel) {
+			for (final long boundary : new long[] { window.from, window.until,
+					window.until == NONE ? NONE : window.until + properties.getRetention().toMillis() }) {
+				if (boundary != NONE && boundary > now) {
+					wheel.schedule(boundary, coupon.getCode());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param coupons the loaded coupons
+	 */
+	public void trackAll(final Collection<Coupon> coupons) {
+		coupons.forEach(this::track);
+	}
+
+	/**
+	 * @param coupon a coupon
+	 * @param now    the current time
+	 * @return true if the coupon is expired longer than the retention, it is purged and no longer kept in memory
+	 */
+	public boolean isPurgeable(final Coupon coupon, final long now) {
+		return coupon.getValidUntil() != null && new Window(coupon).purgeableAt(now, properties.getRetention().toMillis());
+	}
+
+	/**
+	 * @param listener receives the codes reaching their purge horizon
+	 */
+	public void onPurgeable(final Consumer<Collection<String>> listener) {
+		purgeListeners.add(listener);
+	}
+
+	/**
+	 * Fires the timers due up to now.
+	 */
+	public void tick() {
+		final long now = System.currentTimeMillis();
+		final Set<String> due = new LinkedHashSet<>();
+		synchronized (wheel) {
+			wheel.advance(now, due::add);
+		}
+		if (due.isEmpty()) {
+			return;
+		}
+		final List<String> purgeable = new ArrayList<>();
+		for (final String code : due) {
+			couponCache.invalidate(code);
+			final Window window = windows.get(code);
+			if (window != null && window.purgeableAt(now, properties.getRetention().toMillis())
+					&& windows.remove(code, window)) {
+				purgeable.add(code);
+			}
+		}
+		catalogVersion.bump(due);
+		if (!purgeable.isEmpty()) {
+			purgeListeners.forEach(listener -> listener.accept(purgeable));
+		}
+	}
+
+	/**
+	 * @return the number of timers not fired yet
+	 */
+	public int timers() {
+		synchronized (wheel) {
+			return wheel.size();
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		ticker = Schedulers.newSingle("coupon-validity");
+		ticks = Flux.interval(properties.getTick(), ticker)
+				.onBackpressureDrop()
+				.concatMap(tick -> Mono.fromRunnable(this::tick).onErrorResume(error -> {
+					log.error("Firing the coupon validity timers failed.", error);
+					return Mono.empty();
+				}))
+				.subscribe();
+	}
+
+	@Override
+	public void destroy() {
+		if (ticks != null) {
+			ticks.dispose();
+			ticker.dispose();
+		}
+	}
+
+	/**
+	 * The bounds of a validity window in epoch milliseconds.
+	 */
+	private static final class Window {
+
+		private final long from;
+
+		private final long until;
+
+		private Window(final Coupon coupon) {
+			this.from = coupon.getValidFrom() == null ? NONE : coupon.getValidFrom().toEpochMilli();
+			this.until = coupon.getValidUntil() == null ? NONE : coupon.getValidUntil().toEpochMilli();
+		}
+
+		private boolean purgeableAt(final long now, final long retention) {
+			return until != NONE && until + retention <= now;
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+			return other instanceof Window && ((Window) other).from == from && ((Window) other).until == until;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(from, until);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package schwarz.jobs.interview.coupon.core.services.validity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel of {@link #LEVELS} levels of {@link #SLOTS} slots each, not thread-safe.
+ * <p>
+ * Time is counted in ticks of {@code tickMillis}. A timer is kept in the lowest level whose span covers its
+ * deadline: level 0 holds the timers of the next 64 ticks one slot per tick, level 1 those of the next
+ * 4096 ticks one slot per 64 ticks, and so on. Scheduling is {@code O(1)}. When the wheel reaches the start
+ * of a slot of a higher level, the timers of that slot cascade into the lower levels, so each timer moves at
+ * most {@link #LEVELS} times before it fires and no advance looks at timers that are not due. Timers beyond
+ * the span of the top level wait in an overflow list until the top level wraps. A timer fires in the first
+ * tick that starts at or after its deadline, never early.
+ * </p>
+ *
+ * @param <T> the payload of a timer
+ * @author manik sharma
+ */
+final class TimerWheel<T> {
+
+	private static final int BITS = 6;
+
+	private static final int SLOTS = 1 << BITS;
+
+	private static final int MASK = SLOTS - 1;
+
+	private static final int LEVELS = 5;
+
+	private final long tickMillis;
+
+	private final List<Timer<T>>[][] wheel;
+
+	private List<Timer<T>> overflow = new ArrayList<>();
+
+	/** The last tick processed. */
+	private long currentTick;
+
+	private int size;
+
+	@SuppressWarnings("unchecked")
+	TimerWheel(final long tickMillis, final long nowMillis) {
+		if (tickMillis < 1) {
+			throw new IllegalArgumentException("The tick of a timer wheel must be at least 1 ms.");
+		}
+		this.tickMillis = tickMillis;
+		this.wheel = new List[LEVELS][SLOTS];
+		this.currentTick = nowMillis / tickMillis;
+	}
+
+	/**
+	 * @param deadlineMillis the time the timer is due, a past one fires with the next tick
+	 * @param payload        handed to the consumer of {@link #advance(long, Consumer)}
+	 */
+	void schedule(final long deadlineMillis, final T payload) {
+		// the first tick starting at or after the deadline
+		final long tick = Math.floorDiv(deadlineMillis, tickMillis) + (Math.floorMod(deadlineMillis, tickMillis) == 0 ? 0 : 1);
+		place(new Timer<>(Math.max(tick, currentTick + 1), payload));
+		size++;
+	}
+
+	/**
+	 * Processes every tick up to the time and hands the payloads of the due timers to the consumer.
+	 *
+	 * @param nowMillis the current time
+	 * @param due       receives the payload of every timer due, in the order of the ticks
+	 */
+	void advance(final long nowMillis, final Consumer<T> due) {
+		final long target = Math.floorDiv(nowMillis, tickMillis);
+		while (currentTick < target) {
+			currentTick++;
+			if ((currentTick & ((1L << (BITS * LEVELS)) - 1)) == 0) {
+				final List<Timer<T>> waiting = overflow;
+				overflow = new ArrayList<>();
+				waiting.forEach(this::place);
+			}
+			// higher levels first, their timers may cascade into the slot of a lower level starting now
+			for (int level = LEVELS - 1; level > 0; level--) {
+				if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+					cascade(level, (int) ((currentTick >>> (BITS * level)) & MASK));
+				}
+			}
+			final int slot = (int) (currentTick & MASK);
+			final List<Timer<T>> timers = wheel[0][slot];
+			if (timers != null) {
+				wheel[0][slot] = null;
+				size -= timers.size();
+				for (final Timer<T> timer : timers) {
+					due.accept(timer.payload);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of timers not fired yet
+	 */
+	int size() {
+		return size;
+	}
+
+	private void cascade(final int level, final int slot) {
+		final List<Timer<T>> timers = wheel[level][slot];
+		if (timers != null) {
+			wheel[level][slot] = null;
+			timers.forEach(this::place);
+		}
+	}
+
+	/**
+	 * Puts the timer into the lowest level whose current span contains its tick, a tick in the current
+	 * span of level {@code n + 1} but not of level {@code n} starts a later slot of level {@code n}.
+	 */
+	private void place(final Timer<T> timer) {
+		for (int level = 0; level < LEVELS; level++) {
+			if ((timer.tick >>> (BITS * (level + 1))) == (currentTick >>> (BITS * (level + 1)))) {
+				final int slot = (int) ((timer.tick >>> (BITS * level)) & MASK);
+				List<Timer<T>> timers = wheel[level][slot];
+				if (timers == null) {
+					timers = new ArrayList<>(4);
+					wheel[level][slot] = timers;
+				}
+				timers.add(timer);
+				return;
+			}
+		}
+		overflow.add(timer);
+	}
+
+	private static final class Timer<T> {
+
+		private final long tick;
+
+		private final T payload;
+
+		private Timer(final long tick, final T payload) {
+			this.tick = tick;
+			this.payload = payload;
+		}
+	}
+}
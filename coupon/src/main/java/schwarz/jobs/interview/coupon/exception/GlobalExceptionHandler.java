@@ -2,12 +2,12 @@ package schwarz.jobs.interview.coupon.exception;
 
 import java.util.List;
 
-import javax.servlet.http.HttpServletRequest;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -34,10 +34,10 @@ public class GlobalExceptionHandler {
 	   */
 	  @ExceptionHandler(CouponNotFoundException.class)
 	  public ResponseEntity<ApiErrorResponse> handleCouponNotFoundException(
-	      CouponNotFoundException ex, HttpServletRequest request) {
+	      CouponNotFoundException ex, ServerHttpRequest request) {
 	    logger.error("Coupon not found exception occurred: {}", ex.getMessage());
 	    ApiErrorResponse errorResponse = new ApiErrorResponse(HttpStatus.NOT_FOUND.value(),
-	        Constants.INVALID_COUPON, List.of(ex.getMessage()), request.getRequestURI());
+	        Constants.INVALID_COUPON, List.of(ex.getMessage()), request.getPath().value());
 	    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
 	  }
 
@@ -51,12 +51,12 @@ public class GlobalExceptionHandler {
 		/*
 		 * @ExceptionHandler(TargetWordTooLongException.class) public
 		 * ResponseEntity<ApiErrorResponse> handleTargetWordTooLongException(
-		 * TargetWordTooLongException ex, HttpServletRequest request) {
+		 * TargetWordTooLongException ex, ServerHttpRequest request) {
 		 * logger.error("Target word too long exception occurred: {}", ex.getMessage());
 		 * ApiErrorResponse errorResponse = new
 		 * ApiErrorResponse(HttpStatus.BAD_REQUEST.value(),
 		 * MessageConstants.BAD_REQUEST, List.of(ex.getMessage()),
-		 * request.getRequestURI()); return
+		 * request.getPath().value()); return
 		 * ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse); }
 		 */
 
@@ -69,13 +69,63 @@ public class GlobalExceptionHandler {
 	   */
 	  @ExceptionHandler(IllegalArgumentException.class)
 	  public ResponseEntity<ApiErrorResponse> handleIllegalArgumentException(
-	      IllegalArgumentException ex, HttpServletRequest request) {
+	      IllegalArgumentException ex, ServerHttpRequest request) {
 	    logger.error("Illegal argument exception occurred: {}", ex.getMessage());
 	    ApiErrorResponse errorResponse = new ApiErrorResponse(HttpStatus.BAD_REQUEST.value(),
-	    		Constants.BAD_REQUEST, List.of(ex.getMessage()), request.getRequestURI());
+	    		Constants.BAD_REQUEST, List.of(ex.getMessage()), request.getPath().value());
+	    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+	  }
+
+	  /**
+	   * Handles `InvalidBasketException`, a basket whose value or lines cannot be evaluated,
+	   * and returns a formatted error response.
+	   *
+	   * @param ex      The thrown `InvalidBasketException`.
+	   * @param request The HTTP request that caused the exception.
+	   * @return A `ResponseEntity` containing the `ApiErrorResponse` with error details.
+	   */
+	  @ExceptionHandler(InvalidBasketException.class)
+	  public ResponseEntity<ApiErrorResponse> handleInvalidBasketException(
+	      InvalidBasketException ex, ServerHttpRequest request) {
+	    logger.error("Invalid basket: {}", ex.getMessage());
+	    ApiErrorResponse errorResponse = new ApiErrorResponse(HttpStatus.BAD_REQUEST.value(),
+	    		Constants.BAD_REQUEST, List.of(ex.getMessage()), request.getPath().value());
 	    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
 	  }
 
+	  /**
+	   * Handles `DataIntegrityViolationException`, e.g. a concurrently created duplicate coupon code,
+	   * and returns a formatted error response.
+	   *
+	   * @param ex      The thrown `DataIntegrityViolationException`.
+	   * @param request The HTTP request that caused the exception.
+	   * @return A `ResponseEntity` containing the `ApiErrorResponse` with error details.
+	   */
+	  @ExceptionHandler(DataIntegrityViolationException.class)
+	  public ResponseEntity<ApiErrorResponse> handleDataIntegrityViolationException(
+	      DataIntegrityViolationException ex, ServerHttpRequest request) {
+	    logger.error("Data integrity violation occurred: {}", ex.getMessage());
+	    ApiErrorResponse errorResponse = new ApiErrorResponse(HttpStatus.CONFLICT.value(),
+	    		Constants.DUPLICATE_COUPON_CODE, List.of(ex.getMostSpecificCause().getMessage()), request.getPath().value());
+	    return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+	  }
+
+	  /**
+	   * Handles the `ServiceOverloadedException` and returns a formatted error response.
+	   *
+	   * @param ex      The thrown `ServiceOverloadedException`.
+	   * @param request The HTTP request that caused the exception.
+	   * @return A `ResponseEntity` containing the `ApiErrorResponse` with error details.
+	   */
+	  @ExceptionHandler(ServiceOverloadedException.class)
+	  public ResponseEntity<ApiErrorResponse> handleServiceOverloadedException(
+	      ServiceOverloadedException ex, ServerHttpRequest request) {
+	    logger.error("Service overloaded exception occurred: {}", ex.getMessage());
+	    ApiErrorResponse errorResponse = new ApiErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(),
+	    		Constants.SERVICE_UNAVAILABLE, List.of(ex.getMessage()), request.getPath().value());
+	    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+	  }
+
 	  /**
 	   * Handles generic exceptions and returns an internal server error response.
 	   *
@@ -84,10 +134,10 @@ public class GlobalExceptionHandler {
 	   * @return A `ResponseEntity` containing the `ApiErrorResponse` with error details.
 	   */
 	  @ExceptionHandler(Exception.class)
-	  public ResponseEntity<ApiErrorResponse> handleGenericException(Exception ex, HttpServletRequest request) {
+	  public ResponseEntity<ApiErrorResponse> handleGenericException(Exception ex, ServerHttpRequest request) {
 	    logger.error("Generic exception occurred: {}", ex.getMessage(), ex);
 	    ApiErrorResponse errorResponse = new ApiErrorResponse(HttpStatus.BAD_REQUEST.value(),
-	        Constants.BAD_REQUEST, List.of(ex.getMessage()), request.getRequestURI());
+	        Constants.BAD_REQUEST, List.of(ex.getMessage()), request.getPath().value());
 	    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
 	  }
 }
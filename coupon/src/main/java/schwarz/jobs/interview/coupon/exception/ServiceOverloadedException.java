@@ -0,0 +1,15 @@
+package schwarz.jobs.interview.coupon.exception;
+
+/**
+ * ServiceOverloadedException for returning custom Exception.
+ * <p>
+ * This class is a custom Exception to reject calls when the blocking executor is saturated.
+ * </p>
+ */
+
+public class ServiceOverloadedException extends RuntimeException{
+
+	public ServiceOverloadedException(String message) {
+		super(message);
+	}
+}
@@ -1,5 +1,9 @@
 package schwarz.jobs.interview.coupon.util;
 
+import java.math.BigDecimal;
+
+import org.springframework.http.MediaType;
+
 public class Constants {
 
 	public static final String BASE_URL = "api";
@@ -8,15 +12,63 @@ public class Constants {
 	public static final String PATH_SEPARATOR = "/";
 	public static final String ENDPOINT_CREATE = "create";
 	public static final String ENDPOINT_APPLY = "apply";
+	public static final String ENDPOINT_APPLY_BULK = "apply/bulk";
+	public static final String ENDPOINT_APPLY_MULTI = "apply/multi";
 	public static final String ENDPOINT_COUPONS = "coupons";
+	public static final String ENDPOINT_ELIGIBLE_COUPONS = "coupons/eligible";
 	public static final String ENDPOINT_COUPON = "coupon";
+	public static final String ENDPOINT_CACHE_STATS = "cache/stats";
+	public static final String ENDPOINT_IMPORT = "import";
+	public static final String TEXT_CSV_VALUE = "text/csv";
+	public static final String ENDPOINT_GENERATE = "generate";
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+	public static final String ROUTE_APPLY = "coupons.apply";
+	public static final String ROUTE_APPLY_STREAM = "coupons.apply.stream";
+	public static final String ROUTE_LOOKUP = "coupons.lookup";
+	public static final String ROUTE_CHANGES = "coupons.changes";
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+	public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+	
+	public static final int MAX_IN_CLAUSE_PARAMETERS = 1000;
+	public static final int STREAM_BATCH_SIZE = 64;
+	public static final int IMPORT_BATCH_SIZE = 1000;
+	public static final int MAX_REPORTED_IMPORT_REJECTS = 1000;
+	public static final int MAX_COUPON_CODE_LENGTH = 250;
+	public static final int GENERATION_BATCH_SIZE = 5000;
+	public static final int MAX_ELIGIBLE_COUPONS = 1000;
+	public static final int MAX_CODES_PER_BASKET = 50;
+	public static final int MAX_BASKET_LINES = 1000;
+	public static final int MAX_SCOPE_ENTRIES = 50;
+	public static final int MAX_SCOPE_ENTRY_LENGTH = 64;
+	public static final String DEFAULT_ELIGIBLE_COUPONS = "100";
+	public static final BigDecimal MAX_AMOUNT = new BigDecimal("99999999.99");
+	
 	public static final String BAD_REQUEST = "Bad Request";
 	public static final String VALIDATION_ERROR = "Validation Error";
 	public static final String INVALID_COUPON = "Invalid Coupon Code";
+	public static final String DUPLICATE_COUPON_CODE = "Duplicate Coupon Code";
+	
+	public static final String SERVICE_UNAVAILABLE = "Service Unavailable";
+	public static final String SERVICE_OVERLOADED = "Too many pending database calls, retry later.";
 	
 	public static final String INVALID_BASKET_VALUE = "Basket Value cannot be null or negative.";
+	public static final String BASKET_VALUE_OUT_OF_RANGE = "Basket Value is too large to be counted in cents.";
+	public static final String TOO_MANY_CODES = "At most " + MAX_CODES_PER_BASKET + " codes can be applied to one basket.";
+	public static final String INVALID_LIMIT = "Limit must be between 1 and " + MAX_ELIGIBLE_COUPONS + ".";
 	public static final String INVALID_DISCOUNT_VALUE = "Discount Value cannot be null or negative.";
+	public static final String INVALID_MAX_REDEMPTIONS = "Max redemptions must be positive, or absent for no limit.";
+	public static final String INVALID_VALIDITY = "Valid until must be after valid from.";
+	public static final String INVALID_SCOPE = "A coupon can be limited to at most " + MAX_SCOPE_ENTRIES + " SKUs and " + MAX_SCOPE_ENTRIES + " categories, each non-blank, without commas and at most " + MAX_SCOPE_ENTRY_LENGTH + " characters long.";
+	public static final String INVALID_BASKET_LINES = "A basket can have at most " + MAX_BASKET_LINES + " lines, each with a price that is not negative and a positive quantity.";
 	public static final String INVALID_COUPON_CODE = "Coupon code cannot be null or blank.";
+	public static final String COUPON_CODE_TOO_LONG = "Coupon code cannot be longer than " + MAX_COUPON_CODE_LENGTH + " characters.";
+	public static final String AMOUNT_TOO_LARGE = "Amounts cannot be larger than " + MAX_AMOUNT + ".";
+	public static final String MALFORMED_IMPORT_ROW = "Row must contain code, discount and minBasketValue.";
+	public static final String INVALID_ALPHABET = "Alphabet must contain at least two distinct lower-case characters and no whitespace.";
+	public static final String INVALID_CODE_LENGTH = "Code length must be positive and the codes cannot be longer than " + MAX_COUPON_CODE_LENGTH + " characters.";
+	public static final String INVALID_CODE_COUNT = "Code count must be positive and cannot exceed the number of possible codes.";
+	public static final String CODE_SPACE_EXHAUSTED = "All possible codes are used, generate the remaining codes with another prefix or length.";
 	
 	public static final String COUPON_APPLIED_SUCCESS = "Coupon applied successfully.";
 	public static final String COUPON_APPLIED_FAIL = "Coupon application failed.";
@@ -1,5 +1,7 @@
 package schwarz.jobs.interview.coupon.util;
 
+import java.util.TreeSet;
+
 import org.springframework.stereotype.Component;
 
 import lombok.AllArgsConstructor;
@@ -15,6 +17,12 @@ public class MapperUtil {
 		dto.setCode(coupon.getCode());
 		dto.setDiscount(coupon.getDiscount());
 		dto.setMinBasketValue(coupon.getMinBasketValue());
+		dto.setExclusive(coupon.isExclusive());
+		dto.setMaxRedemptions(coupon.getMaxRedemptions());
+		dto.setValidFrom(coupon.getValidFrom());
+		dto.setValidUntil(coupon.getValidUntil());
+		dto.setSkus(coupon.getSkus() == null ? null : new TreeSet<>(coupon.getSkuSet()));
+		dto.setCategories(coupon.getCategories() == null ? null : new TreeSet<>(coupon.getCategorySet()));
 		
 		return dto;
 	}
@@ -0,0 +1,55 @@
+package schwarz.jobs.interview.coupon.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic on amounts held as {@code long} cents.
+ * <p>
+ * Amounts are stored with {@code precision = 10, scale = 2}, so every amount is an exact number of cents.
+ * The service compares and computes with cents and converts only at the JSON and persistence boundaries:
+ * <ul>
+ * <li>{@link #toCents(BigDecimal)} rounds amounts with more than two decimals {@link RoundingMode#HALF_UP},
+ * the same rule the database applies when storing them into a scale 2 column.</li>
+ * <li>{@link #toBigDecimal(long)} is exact and always returns an amount with scale 2.</li>
+ * </ul>
+ * Amounts whose cents do not fit into a {@code long} are rejected with an {@link ArithmeticException}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+public final class Money {
+
+	public static final int SCALE = 2;
+
+	public static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+
+	private Money() {
+	}
+
+	/**
+	 * @param amount amount in currency units, must not be null
+	 * @return the amount in cents, rounded {@link #ROUNDING} to {@link #SCALE} decimals
+	 * @throws ArithmeticException if the cents do not fit into a {@code long}
+	 */
+	public static long toCents(final BigDecimal amount) {
+		final BigDecimal scaled = amount.scale() == SCALE ? amount : amount.setScale(SCALE, ROUNDING);
+		return scaled.movePointRight(SCALE).longValueExact();
+	}
+
+	/**
+	 * @param amount amount in currency units, may be null
+	 * @return the amount in cents, 0 for null
+	 */
+	public static long toCentsOrZero(final BigDecimal amount) {
+		return amount == null ? 0 : toCents(amount);
+	}
+
+	/**
+	 * @param cents amount in cents
+	 * @return the exact amount in currency units with scale 2
+	 */
+	public static BigDecimal toBigDecimal(final long cents) {
+		return BigDecimal.valueOf(cents, SCALE);
+	}
+}
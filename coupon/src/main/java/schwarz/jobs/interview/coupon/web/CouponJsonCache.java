@@ -0,0 +1,307 @@
+package schwarz.jobs.interview.coupon.web;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.configuration.CouponCatalogProperties;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.util.Constants;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+
+/**
+ * Serialized JSON and Smile of the coupons returned by the lookup endpoint, keyed by normalized code.
+ * <p>
+ * The JSON of a coupon is written by Jackson once per {@link CatalogVersion} and then copied into the
+ * responses, codes without a coupon are remembered as well. A new catalog version starts a new, empty
+ * {@link Entries generation}; a request keeps the generation it started with, so a response is never older
+ * than its ETag. Responses to an {@code If-None-Match} with the current ETag are counted as
+ * {@code coupon.get.not.modified}.
+ * </p>
+ * <p>
+ * Smile coupons are written without header and without back references to earlier names, so they can be
+ * copied into any array like the JSON ones.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Component
+public class CouponJsonCache {
+
+	/** Bytes of the SHA-256 digest of the codes kept in an ETag. */
+	private static final int ETAG_DIGEST_BYTES = 16;
+
+	/** Marks a code without coupon. */
+	private static final byte[] ABSENT = new byte[0];
+
+	/**
+	 * Representations of the lookup response.
+	 */
+	public enum Format {
+
+		JSON(MediaType.APPLICATION_JSON), SMILE(Constants.APPLICATION_SMILE);
+
+		private final MediaType mediaType;
+
+		Format(final MediaType mediaType) {
+			this.mediaType = mediaType;
+		}
+
+		public MediaType getMediaType() {
+			return mediaType;
+		}
+
+		/**
+		 * @param accept the {@code Accept} header, may be null
+		 * @return the format accepted with the highest quality, JSON if none is
+		 */
+		public static Format of(final String accept) {
+			if (accept == null) {
+				return JSON;
+			}
+			final List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+			MediaType.sortByQualityValue(mediaTypes);
+			for (final MediaType mediaType : mediaTypes) {
+				for (final Format format : values()) {
+					if (mediaType.isCompatibleWith(format.mediaType)) {
+						return format;
+					}
+				}
+			}
+			return JSON;
+		}
+	}
+
+	private final CatalogVersion catalogVersion;
+
+	private final CouponCatalogProperties properties;
+
+	private final Map<Format, Encoding> encodings = new EnumMap<>(Format.class);
+
+	private final Counter notModified;
+
+	private volatile Entries current;
+
+	public CouponJsonCache(final CatalogVersion catalogVersion, final Jackson2ObjectMapperBuilder objectMapperBuilder,
+			final CouponCatalogProperties properties, final MeterRegistry meterRegistry) {
+		this.catalogVersion = catalogVersion;
+		this.properties = properties;
+		final ObjectWriter json = objectMapperBuilder.build().writerFor(CouponDTO.class);
+		encodings.put(Format.JSON, new Encoding(json, new byte[] { '[' }, new byte[] { ',' }, new byte[] { ']' }));
+		// values without header and back references to names, which can be copied into any array
+		final ObjectWriter smile = objectMapperBuilder.factory(new SmileFactory()
+				.disable(SmileGenerator.Feature.WRITE_HEADER).disable(SmileGenerator.Feature.CHECK_SHARED_NAMES))
+				.build().writerFor(CouponDTO.class);
+		try {
+			// header announcing no back references and the start of an array, the values follow without separator
+			final byte[] empty = new ObjectMapper(new SmileFactory().disable(SmileGenerator.Feature.CHECK_SHARED_NAMES))
+					.writeValueAsBytes(List.of());
+			encodings.put(Format.SMILE, new Encoding(smile, Arrays.copyOf(empty, empty.length - 1), new byte[0],
+					new byte[] { empty[empty.length - 1] }));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Writing an empty Smile array failed.", e);
+		}
+		this.notModified = Counter.builder("coupon.get.not.modified")
+				.description("Lookups answered with 304 Not Modified").register(meterRegistry);
+	}
+
+	/**
+	 * @return the serialized coupons of the current catalog version
+	 */
+	public Entries current() {
+		final long version = catalogVersion.get();
+		Entries entries = current;
+		if (entries == null || entries.version != version) {
+			entries = new Entries(version);
+			current = entries;
+		}
+		return entries;
+	}
+
+	/**
+	 * Counts a lookup answered with 304 Not Modified.
+	 */
+	public void notModified() {
+		notModified.increment();
+	}
+
+	/**
+	 * The serialized coupons of one catalog version.
+	 */
+	public final class Entries {
+
+		private final long version;
+
+		private final Map<Format, Cache<String, byte[]>> serialized = new EnumMap<>(Format.class);
+
+		private Entries(final long version) {
+			this.version = version;
+			for (final Format format : Format.values()) {
+				serialized.put(format, Caffeine.newBuilder().maximumSize(properties.getMaximumSerializedCoupons()).build());
+			}
+		}
+
+		/**
+		 * @param format the representation of the response
+		 * @param codes  normalized codes in the order of the request
+		 * @return the strong ETag of the lookup of the codes in this version and format, the codes are
+		 *         identified by a truncated SHA-256 digest of the ordered list
+		 */
+		public String etag(final Format format, final Collection<String> codes) {
+			return "\"" + Long.toHexString(catalogVersion.getInstance()) + "-" + version + "-" + digest(codes) + "-"
+					+ format.name().toLowerCase() + "\"";
+		}
+
+		/**
+		 * Writes the array of the found coupons from their serialized form, the codes not serialized in
+		 * this version yet are looked up with one call of the loader and serialized.
+		 *
+		 * @param format the representation of the response
+		 * @param codes  normalized codes in the order of the request
+		 * @param loader looks up the coupons of the missing codes
+		 * @return Mono of the array, empty if no coupon is found
+		 */
+		public Mono<byte[]> serialize(final Format format, final Collection<String> codes,
+				final Function<List<String>, Flux<CouponDTO>> loader) {
+			final Cache<String, byte[]> cache = serialized.get(format);
+			final Encoding encoding = encodings.get(format);
+			final Map<String, byte[]> coupons = new HashMap<>(cache.getAllPresent(codes));
+			final List<String> missing = codes.stream().filter(code -> !coupons.containsKey(code))
+					.collect(Collectors.toList());
+			if (missing.isEmpty()) {
+				return Mono.justOrEmpty(encoding.array(codes, coupons));
+			}
+			return loader.apply(missing)
+					.doOnNext(coupon -> coupons.put(coupon.getCode(), encoding.value(coupon)))
+					.then(Mono.fromSupplier(() -> {
+						for (final String code : missing) {
+							cache.put(code, coupons.computeIfAbsent(code, absent -> ABSENT));
+						}
+						return Optional.ofNullable(encoding.array(codes, coupons));
+					}))
+					.flatMap(Mono::justOrEmpty);
+		}
+	}
+
+	/**
+	 * @param codes normalized codes in the order of the request
+	 * @return the hex of the first {@link #ETAG_DIGEST_BYTES} bytes of the SHA-256 digest of the codes, each
+	 *         prefixed with its length so that no two lists share their input
+	 */
+	static String digest(final Collection<String> codes) {
+		final MessageDigest sha256;
+		try {
+			sha256 = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}
+		for (final String code : codes) {
+			final byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+			sha256.update((byte) (bytes.length >>> 24));
+			sha256.update((byte) (bytes.length >>> 16));
+			sha256.update((byte) (bytes.length >>> 8));
+			sha256.update((byte) bytes.length);
+			sha256.update(bytes);
+		}
+		final byte[] hash = sha256.digest();
+		final StringBuilder hex = new StringBuilder(2 * ETAG_DIGEST_BYTES);
+		for (int i = 0; i < ETAG_DIGEST_BYTES; i++) {
+			hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * @param ifNoneMatch the {@code If-None-Match} header, may be null
+	 * @param etag        the current ETag
+	 * @return true if the header lists the ETag or is {@code *}
+	 */
+	public static boolean matches(final String ifNoneMatch, final String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (final String candidate : ifNoneMatch.split(",")) {
+			final String tag = candidate.trim();
+			if (tag.equals("*") || tag.equals(etag) || (tag.startsWith("W/") && tag.substring(2).equals(etag))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writer of one coupon and the framing of an array of coupons in one format.
+	 */
+	private static final class Encoding {
+
+		private final ObjectWriter writer;
+
+		private final byte[] start;
+
+		private final byte[] separator;
+
+		private final byte[] end;
+
+		private Encoding(final ObjectWriter writer, final byte[] start, final byte[] separator, final byte[] end) {
+			this.writer = writer;
+			this.start = start;
+			this.separator = separator;
+			this.end = end;
+		}
+
+		private byte[] value(final CouponDTO coupon) {
+			try {
+				return writer.writeValueAsBytes(coupon);
+			} catch (JsonProcessingException e) {
+				throw new IllegalStateException("Serializing coupon " + coupon.getCode() + " failed.", e);
+			}
+		}
+
+		private byte[] array(final Collection<String> codes, final Map<String, byte[]> coupons) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream(codes.size() * 96);
+			out.writeBytes(start);
+			boolean found = false;
+			for (final String code : codes) {
+				final byte[] coupon = coupons.get(code);
+				if (coupon != null && coupon != ABSENT) {
+					if (found) {
+						out.writeBytes(separator);
+					}
+					out.writeBytes(coupon);
+					found = true;
+				}
+			}
+			if (!found) {
+				return null;
+			}
+			out.writeBytes(end);
+			return out.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package schwarz.jobs.interview.coupon.web;
+
+import java.util.List;
+
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.core.services.ICouponService;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.util.Constants;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationResultDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponChangeDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+
+/**
+ * RSocket Controller for applying and looking up coupons over one long-lived multiplexed connection.
+ * 
+ * The routes are served over WebSocket at {@code /rsocket} on the HTTP port, with JSON or CBOR payloads.
+ * Streams are backpressured by the requests of the client.
+ * 
+ * @author manik sharma
+ */
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+public class CouponRSocketController {
+
+    private final ICouponService couponService;
+
+    private final CatalogVersion catalogVersion;
+
+    /**
+     * @param request {@link ApplicationRequestDTO} that provides code and basket to be updated
+     * @return a {@link Mono} of the {@link ApplicationResultDTO} with the outcome and the updated basket
+     */
+    @MessageMapping(Constants.ROUTE_APPLY)
+    public Mono<ApplicationResultDTO> apply(final ApplicationRequestDTO request) {
+        return couponService.applyAll(List.of(request)).next();
+    }
+
+    /**
+     * @param requests stream of {@link ApplicationRequestDTO} that provide codes and baskets to be updated
+     * @return a stream containing one {@link ApplicationResultDTO} per request, in the order of the requests
+     */
+    @MessageMapping(Constants.ROUTE_APPLY_STREAM)
+    public Flux<ApplicationResultDTO> applyStream(final Flux<ApplicationRequestDTO> requests) {
+        log.info("Applying coupon stream over RSocket started!");
+        return couponService.applyStream(requests);
+    }
+
+    /**
+     * @param couponCodes the codes to look up
+     * @return a stream of the found coupons {@link CouponDTO}
+     */
+    @MessageMapping(Constants.ROUTE_LOOKUP)
+    public Flux<CouponDTO> getCoupons(final List<String> couponCodes) {
+        return couponService.getCoupons(couponCodes);
+    }
+
+    /**
+     * @return an endless stream of the {@link CouponChangeDTO} committed after the subscription
+     */
+    @MessageMapping(Constants.ROUTE_CHANGES)
+    public Flux<CouponChangeDTO> changes() {
+        log.info("Coupon change stream over RSocket subscribed!");
+        return catalogVersion.changes();
+    }
+}
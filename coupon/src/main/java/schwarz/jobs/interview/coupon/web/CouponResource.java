@@ -1,19 +1,26 @@
 package schwarz.jobs.interview.coupon.web;
 
 
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.validation.Valid;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import io.swagger.annotations.ApiOperation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -22,12 +29,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.core.services.CouponGenerationService;
+import schwarz.jobs.interview.coupon.core.services.CouponImportService;
 import schwarz.jobs.interview.coupon.core.services.CouponService;
 import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.ImportFormat;
 import schwarz.jobs.interview.coupon.util.Constants;
 import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationResultDTO;
+import schwarz.jobs.interview.coupon.web.dto.CacheStatsDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.GenerationJobDTO;
+import schwarz.jobs.interview.coupon.web.dto.GenerationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ImportReportDTO;
+import schwarz.jobs.interview.coupon.web.dto.MultiApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.MultiApplicationResultDTO;
 
 /**
  * REST Controller for creating and updating the basket.
@@ -47,42 +65,101 @@ public class CouponResource {
 	
     private final CouponService couponService;
 
+    private final CouponImportService couponImportService;
+
+    private final CouponGenerationService couponGenerationService;
+
+    private final CouponJsonCache couponJsonCache;
+
     /**
      * @param request containing {@link ApplicationRequestDTO} that provides code and basket to be updated
-     * @return a {@link ResponseEntity} containing the updated {@link Basket}
+     * @return a {@link Mono} of {@link ResponseEntity} containing the updated {@link Basket}, or the
+     * {@link ApplicationResultDTO} with the outcome if the coupon was not applied
      */
     @ApiOperation(value = "Applies currently active promotions and coupons from the request to the requested Basket")
     @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Successfully updated the basket", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Basket.class))),
-      @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content(mediaType = "application/json"))})
+      @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content(mediaType = "application/json")),
+      @ApiResponse(responseCode = "404", description = "Coupon not found", content = @Content(mediaType = "application/json")),
+      @ApiResponse(responseCode = "422", description = "Coupon not applied, the outcome tells why", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApplicationResultDTO.class)))})
     @PostMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_APPLY)
-    public ResponseEntity<Basket> apply(
+    public Mono<ResponseEntity<Object>> apply(
         @RequestBody @Valid final ApplicationRequestDTO applicationRequestDTO) {
 
         log.info("Applying coupon started!");
 
-        final Optional<Basket> basket =
-            couponService.apply(applicationRequestDTO.getBasket(), applicationRequestDTO.getCode());
+        return couponService.applyWithOutcome(applicationRequestDTO.getBasket(), applicationRequestDTO.getCode())
+            .map(result -> {
+                if (!applicationRequestDTO.getBasket().isApplicationSuccessful()) {
+                	log.info(Constants.COUPON_APPLIED_FAIL);
+                    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).<Object>body(result);
+                }
 
-        if (basket.isEmpty()) {
-        	log.info(Constants.COUPON_APPLIED_FAIL);
-            return ResponseEntity.notFound().build();
-        }
+                log.info("Applied coupon End!");
 
-        if (!applicationRequestDTO.getBasket().isApplicationSuccessful()) {
-        	log.info(Constants.COUPON_APPLIED_FAIL);
-            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
-        }
+                return ResponseEntity.ok().<Object>body(applicationRequestDTO.getBasket());
+            })
+            .switchIfEmpty(Mono.fromSupplier(() -> {
+            	log.info(Constants.COUPON_APPLIED_FAIL);
+                return ResponseEntity.notFound().build();
+            }));
+    }
+    
+    
+    /**
+     * @param requests list of {@link ApplicationRequestDTO} that provide codes and baskets to be updated
+     * @return a {@link Mono} of {@link ResponseEntity} containing one {@link ApplicationResultDTO} per request
+     */
+    @ApiOperation(value = "Applies the coupons of many requests to their Baskets at once")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully evaluated all baskets", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApplicationResultDTO.class))),
+      @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content(mediaType = "application/json"))})
+    @PostMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_APPLY_BULK)
+    public Mono<ResponseEntity<List<ApplicationResultDTO>>> applyAll(
+        @RequestBody final List<ApplicationRequestDTO> requests) {
 
-        log.info("Applied coupon End!");
+        log.info("Applying {} coupons started!", requests.size());
 
-        return ResponseEntity.ok().body(applicationRequestDTO.getBasket());
+        return couponService.applyAll(requests).collectList().map(ResponseEntity::ok);
     }
     
+    /**
+     * @param requests newline delimited stream of {@link ApplicationRequestDTO} that provide codes and baskets to be updated
+     * @return a newline delimited stream containing one {@link ApplicationResultDTO} per request, written while the requests are read
+     */
+    @ApiOperation(value = "Applies the coupons of a stream of requests to their Baskets incrementally")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully evaluated the baskets", content = @Content(mediaType = Constants.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = ApplicationResultDTO.class)))})
+    @PostMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_APPLY_BULK,
+        consumes = Constants.APPLICATION_NDJSON_VALUE, produces = Constants.APPLICATION_NDJSON_VALUE)
+    @ResponseBody
+    public Flux<ApplicationResultDTO> applyStream(@RequestBody final Flux<ApplicationRequestDTO> requests) {
+
+        log.info("Applying coupon stream started!");
+
+        return couponService.applyStream(requests);
+    }
     
+    /**
+     * @param request containing {@link MultiApplicationRequestDTO} that provides several codes and the basket to be updated
+     * @return a {@link Mono} of {@link ResponseEntity} containing the {@link MultiApplicationResultDTO} with the chosen coupons
+     */
+    @ApiOperation(value = "Applies the best combination of several coupons to the requested Basket")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully evaluated the combination", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MultiApplicationResultDTO.class))),
+      @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content(mediaType = "application/json"))})
+    @PostMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_APPLY_MULTI)
+    public Mono<ResponseEntity<MultiApplicationResultDTO>> applyMulti(
+        @RequestBody @Valid final MultiApplicationRequestDTO request) {
+
+        log.info("Applying {} coupons to one basket started!", request.getCodes().size());
+
+        return couponService.applyMulti(request.getBasket(), request.getCodes()).map(ResponseEntity::ok);
+    }
+
     /**
      * @param request containing {@link CouponDTO} that creates a new coupon in server
-     * @return a {@link ResponseEntity} containing the updated {@link Basket}
+     * @return a {@link Mono} of {@link ResponseEntity} containing the created {@link CouponDTO}
      */
     @ApiOperation(value = "Creates a new Coupon in the server")
     @ApiResponses(value = {
@@ -90,42 +167,181 @@ public class CouponResource {
       @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content(mediaType = "application/json")),
       @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(mediaType = "application/json"))})
     @PostMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_CREATE)
-    public ResponseEntity<CouponDTO> create(@RequestBody @Valid final CouponDTO couponDTO) {
+    public Mono<ResponseEntity<CouponDTO>> create(@RequestBody @Valid final CouponDTO couponDTO) {
     	log.info("Inside creating coupon!");
-        final Coupon coupon = couponService.createCoupon(couponDTO);
-        if(coupon!=null) {
-        	log.info(Constants.COUPON_CREATE_SUCCESS);
-        	return ResponseEntity.ok(couponDTO);
-        }else {
-        	log.info(Constants.COUPON_CREATE_FAIL);
-        	return ResponseEntity.notFound().build();
-        }
+        return couponService.createCoupon(couponDTO)
+            .map(coupon -> {
+            	log.info(Constants.COUPON_CREATE_SUCCESS);
+            	return ResponseEntity.ok(couponDTO);
+            })
+            .switchIfEmpty(Mono.fromSupplier(() -> {
+            	log.info(Constants.COUPON_CREATE_FAIL);
+            	return ResponseEntity.notFound().build();
+            }));
         
     }
 
+    /**
+     * @param lines of a CSV file with one {@code code,discount,minBasketValue} coupon definition per line
+     * @return a {@link Mono} of {@link ResponseEntity} containing the {@link ImportReportDTO} with the rejected rows
+     */
+    @ApiOperation(value = "Imports many coupons from a CSV file, existing coupons are overwritten")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully imported the valid rows", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportReportDTO.class)))})
+    @PostMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_IMPORT,
+        consumes = Constants.TEXT_CSV_VALUE)
+    public Mono<ResponseEntity<ImportReportDTO>> importCsv(@RequestBody final Flux<String> lines) {
+    	log.info("Importing coupons from CSV started!");
+    	return couponImportService.importCoupons(lines, ImportFormat.CSV).map(ResponseEntity::ok);
+    }
+
+    /**
+     * @param lines newline delimited stream of {@link CouponDTO} coupon definitions
+     * @return a {@link Mono} of {@link ResponseEntity} containing the {@link ImportReportDTO} with the rejected rows
+     */
+    @ApiOperation(value = "Imports many coupons from JSON lines, existing coupons are overwritten")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully imported the valid rows", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportReportDTO.class)))})
+    @PostMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_IMPORT,
+        consumes = Constants.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<ImportReportDTO>> importNdjson(@RequestBody final Flux<String> lines) {
+    	log.info("Importing coupons from JSON lines started!");
+    	return couponImportService.importCoupons(lines, ImportFormat.NDJSON).map(ResponseEntity::ok);
+    }
+
+    /**
+     * @param request containing {@link GenerationRequestDTO} with the prefix, alphabet, length, count and coupon template
+     * @return a {@link Mono} of {@link ResponseEntity} containing the started {@link GenerationJobDTO}
+     */
+    @ApiOperation(value = "Starts a job generating many unique single-use coupon codes")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "202", description = "Successfully started the job", content = @Content(mediaType = "application/json", schema = @Schema(implementation = GenerationJobDTO.class))),
+      @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content(mediaType = "application/json"))})
+    @PostMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_GENERATE)
+    public Mono<ResponseEntity<GenerationJobDTO>> generate(@RequestBody @Valid final GenerationRequestDTO request) {
+    	log.info("Starting code generation of {} codes!", request.getCount());
+    	return couponGenerationService.startJob(request).map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job));
+    }
+
+    /**
+     * @param id of the generation job
+     * @return a {@link Mono} of {@link ResponseEntity} containing the progress {@link GenerationJobDTO}
+     */
+    @ApiOperation(value = "Gets the progress of a code generation job")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully fetched the job", content = @Content(mediaType = "application/json", schema = @Schema(implementation = GenerationJobDTO.class))),
+      @ApiResponse(responseCode = "404", description = "No job found", content = @Content(mediaType = "application/json"))})
+    @GetMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_GENERATE + "/{id}")
+    public Mono<ResponseEntity<GenerationJobDTO>> getGenerationJob(@PathVariable final long id) {
+    	return couponGenerationService.getJob(id).map(ResponseEntity::ok)
+    			.switchIfEmpty(Mono.fromSupplier(() -> ResponseEntity.notFound().build()));
+    }
+
+    /**
+     * @param id of the failed generation job
+     * @return a {@link Mono} of {@link ResponseEntity} containing the resumed {@link GenerationJobDTO}
+     */
+    @ApiOperation(value = "Resumes a failed code generation job after its last written batch")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "202", description = "Successfully resumed the job", content = @Content(mediaType = "application/json", schema = @Schema(implementation = GenerationJobDTO.class))),
+      @ApiResponse(responseCode = "404", description = "No job found", content = @Content(mediaType = "application/json"))})
+    @PostMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_GENERATE + "/{id}/resume")
+    public Mono<ResponseEntity<GenerationJobDTO>> resumeGenerationJob(@PathVariable final long id) {
+    	return couponGenerationService.resumeJob(id).map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job))
+    			.switchIfEmpty(Mono.fromSupplier(() -> ResponseEntity.notFound().build()));
+    }
+
 //    @GetMapping("/coupons")
 //    public List<Coupon> getCoupons(@RequestBody @Valid final CouponRequestDTO couponRequestDTO) {
 //
 //        return couponService.getCoupons(couponRequestDTO);
 //    }
     /**
-     * 
-     * @return a {@link ResponseEntity} containing the list of coupons {@link CouponDTO}
+     * Answers from the serialized JSON or Smile of the coupons of the current catalog version, an {@code If-None-Match}
+     * with the current ETag is answered with 304 without looking up any coupon.
+     * @param couponCodes the codes to look up
+     * @param accept the media types accepted by the client, JSON or Smile
+     * @param ifNoneMatch the ETags known to the client
+     * @return a {@link Mono} of {@link ResponseEntity} containing the array of the coupons {@link CouponDTO}
      */
     @ApiOperation(value = "Gets the Coupons from the server")
     @ApiResponses(value = {
-      @ApiResponse(responseCode = "200", description = "Successfully fetched all the coupons", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CouponDTO.class))),
+      @ApiResponse(responseCode = "200", description = "Successfully fetched all the coupons", content = {
+          @Content(mediaType = "application/json", schema = @Schema(implementation = CouponDTO.class)),
+          @Content(mediaType = Constants.APPLICATION_SMILE_VALUE, schema = @Schema(implementation = CouponDTO.class))}),
+      @ApiResponse(responseCode = "304", description = "The coupons did not change since the given ETag", content = @Content(mediaType = "application/json")),
       @ApiResponse(responseCode = "404", description = "No data found", content = @Content(mediaType = "application/json")),
       @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(mediaType = "application/json"))})
     @GetMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_COUPONS)
-    public ResponseEntity<List<CouponDTO>> getCoupons(@RequestParam List<String> couponCodes) {
+    public Mono<ResponseEntity<byte[]>> getCoupons(@RequestParam List<String> couponCodes,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch) {
     	log.info("Get all coupons!");
-    	List<CouponDTO> lst = couponService.getCoupons(couponCodes);
-    	if(!lst.isEmpty()) {
-    		return ResponseEntity.ok(lst);
-    	}else {
-    		return ResponseEntity.noContent().build();
+    	final Set<String> codes = couponCodes.stream().map(CouponService::normalize)
+    			.collect(Collectors.toCollection(LinkedHashSet::new));
+    	final CouponJsonCache.Format format = CouponJsonCache.Format.of(accept);
+    	final CouponJsonCache.Entries entries = couponJsonCache.current();
+    	final String etag = entries.etag(format, codes);
+    	if (CouponJsonCache.matches(ifNoneMatch, etag)) {
+    		couponJsonCache.notModified();
+    		return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build());
     	}
+    	return entries.serialize(format, codes, couponService::getCoupons)
+    			.map(body -> ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).contentType(format.getMediaType()).body(body))
+    			.defaultIfEmpty(ResponseEntity.noContent().build());
         
     }
+
+    /**
+     * @param basketValue value of the basket
+     * @param bestFirst largest discount first instead of ascending minimum basket value
+     * @param limit maximum number of coupons
+     * @return a {@link Mono} of {@link ResponseEntity} containing the coupons that can be applied to the basket
+     */
+    @ApiOperation(value = "Gets the Coupons whose minimum basket value is reached by the basket value")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully fetched the eligible coupons", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CouponDTO.class))),
+      @ApiResponse(responseCode = "204", description = "No coupon is eligible", content = @Content(mediaType = "application/json")),
+      @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content(mediaType = "application/json"))})
+    @GetMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_ELIGIBLE_COUPONS)
+    public Mono<ResponseEntity<List<CouponDTO>>> getEligibleCoupons(@RequestParam final BigDecimal basketValue,
+        @RequestParam(defaultValue = "false") final boolean bestFirst,
+        @RequestParam(defaultValue = Constants.DEFAULT_ELIGIBLE_COUPONS) final int limit) {
+    	log.info("Get eligible coupons!");
+    	return couponService.getEligibleCoupons(basketValue, limit, bestFirst).collectList()
+    			.map(lst -> lst.isEmpty() ? ResponseEntity.noContent().<List<CouponDTO>>build() : ResponseEntity.ok(lst));
+    }
+
+    /**
+     * @param basket the basket with its lines
+     * @param bestFirst largest discount first instead of ascending minimum basket value
+     * @param limit maximum number of coupons
+     * @return a {@link Mono} of {@link ResponseEntity} containing the coupons that can be applied to the basket,
+     * including the coupons limited to SKUs or categories of its lines
+     */
+    @ApiOperation(value = "Gets the Coupons that can be applied to the basket and its lines")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully fetched the eligible coupons", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CouponDTO.class))),
+      @ApiResponse(responseCode = "204", description = "No coupon is eligible", content = @Content(mediaType = "application/json")),
+      @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content(mediaType = "application/json"))})
+    @PostMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_ELIGIBLE_COUPONS)
+    public Mono<ResponseEntity<List<CouponDTO>>> getEligibleCoupons(@RequestBody @Valid final Basket basket,
+        @RequestParam(defaultValue = "false") final boolean bestFirst,
+        @RequestParam(defaultValue = Constants.DEFAULT_ELIGIBLE_COUPONS) final int limit) {
+    	log.info("Get eligible coupons for basket lines!");
+    	return couponService.getEligibleCoupons(basket, limit, bestFirst).collectList()
+    			.map(lst -> lst.isEmpty() ? ResponseEntity.noContent().<List<CouponDTO>>build() : ResponseEntity.ok(lst));
+    }
+
+    /**
+     * 
+     * @return a {@link ResponseEntity} containing the hit, miss and eviction counters {@link CacheStatsDTO} of the coupon cache
+     */
+    @ApiOperation(value = "Gets the statistics of the coupon cache")
+    @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully fetched the cache statistics", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CacheStatsDTO.class)))})
+    @GetMapping(value = Constants.PATH_SEPARATOR + Constants.VERSION + Constants.PATH_SEPARATOR + Constants.ENDPOINT_CACHE_STATS)
+    public ResponseEntity<CacheStatsDTO> getCacheStats() {
+    	return ResponseEntity.ok(couponService.getCacheStats());
+    }
 }
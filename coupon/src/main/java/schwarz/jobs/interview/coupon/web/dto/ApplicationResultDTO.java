@@ -0,0 +1,22 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ApplicationResultDTO {
+
+    private String code;
+
+    private ApplicationOutcome outcome;
+
+    private Basket basket;
+
+}
@@ -0,0 +1,29 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A committed write of coupons, published by the coupon change stream.
+ * <p>
+ * Versions increase by one per change of the same instance; a gap means changes were skipped and
+ * empty codes mean the written codes are unknown, in both cases the subscriber looks its coupons up again.
+ * </p>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CouponChangeDTO {
+
+	private long instance;
+
+	private long version;
+
+	private List<String> codes;
+
+}
@@ -0,0 +1,24 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CouponContributionDTO {
+
+    private String code;
+
+    private ApplicationOutcome outcome;
+
+    /** The part of the applied discount contributed by this coupon, null if it is not applied. */
+    private BigDecimal discount;
+
+}
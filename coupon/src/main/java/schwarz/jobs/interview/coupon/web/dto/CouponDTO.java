@@ -1,6 +1,8 @@
 package schwarz.jobs.interview.coupon.web.dto;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Set;
 
 import javax.validation.constraints.NotNull;
 
@@ -24,4 +26,25 @@ public class CouponDTO {
     @NotNull
     private BigDecimal minBasketValue;
 
+    private boolean exclusive;
+
+    /** Maximum number of redemptions, 1 for a single-use code, null for no limit. */
+    private Long maxRedemptions;
+
+    /** Start of the validity window, inclusive, null if the coupon is valid from its creation. */
+    private Instant validFrom;
+
+    /** End of the validity window, exclusive, null if the coupon never expires. */
+    private Instant validUntil;
+
+    /** SKUs the coupon is limited to, null if it is not limited to SKUs. */
+    private Set<String> skus;
+
+    /** Categories the coupon is limited to, null if it is not limited to categories. */
+    private Set<String> categories;
+
+    public CouponDTO(final BigDecimal discount, final String code, final BigDecimal minBasketValue) {
+        this(discount, code, minBasketValue, false, null, null, null, null, null);
+    }
+
 }
@@ -0,0 +1,32 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import schwarz.jobs.interview.coupon.core.domain.GenerationStatus;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GenerationJobDTO {
+
+    private long id;
+
+    private GenerationStatus status;
+
+    private long count;
+
+    private long generated;
+
+    private double progress;
+
+    /**
+     * Codes per second since the job was started or resumed, 0 if the job is not running.
+     */
+    private double codesPerSecond;
+
+    private String message;
+
+}
@@ -0,0 +1,33 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import java.math.BigDecimal;
+
+import javax.validation.constraints.NotNull;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GenerationRequestDTO {
+
+    private String prefix;
+
+    @NotNull
+    private String alphabet;
+
+    private int length;
+
+    private long count;
+
+    @NotNull
+    private BigDecimal discount;
+
+    @NotNull
+    private BigDecimal minBasketValue;
+
+}
@@ -0,0 +1,20 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportRejectDTO {
+
+    private long line;
+
+    private String code;
+
+    private String reason;
+
+}
@@ -0,0 +1,29 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportReportDTO {
+
+    private long importedRows;
+
+    private long rejectedRows;
+
+    private long durationMillis;
+
+    private double rowsPerSecond;
+
+    /**
+     * The first rejected rows, at most {@code Constants.MAX_REPORTED_IMPORT_REJECTS}.
+     */
+    private List<ImportRejectDTO> rejects;
+
+}
@@ -0,0 +1,26 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import java.util.List;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MultiApplicationRequestDTO {
+
+    @NotEmpty
+    private List<String> codes;
+
+    @NotNull
+    private Basket basket;
+
+}
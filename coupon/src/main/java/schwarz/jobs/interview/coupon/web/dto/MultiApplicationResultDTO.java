@@ -0,0 +1,22 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MultiApplicationResultDTO {
+
+    private Basket basket;
+
+    /** The applied coupons in descending order of discount, then the other requested codes in request order. */
+    private List<CouponContributionDTO> coupons;
+
+}
@@ -0,0 +1,81 @@
+DROP TABLE IF EXISTS coupons;
+DROP TABLE IF EXISTS coupons_archive;
+DROP SEQUENCE IF EXISTS coupons_seq;
+
+-- ids are drawn in blocks of 50 by JPA, inserts without id take the next value
+CREATE SEQUENCE coupons_seq START WITH 1 INCREMENT BY 50;
+ 
+CREATE TABLE coupons (
+  id BIGINT DEFAULT NEXT VALUE FOR coupons_seq PRIMARY KEY,
+  code VARCHAR(250) NOT NULL,
+  discount NUMBER(10,2) NOT NULL,
+  min_basket_value NUMBER(10,2) DEFAULT NULL,
+  -- exclusive coupons are never combined with other coupons on one basket
+  exclusive BOOLEAN NOT NULL DEFAULT FALSE,
+  -- 1 for single-use codes, NULL for no limit
+  max_redemptions BIGINT DEFAULT NULL,
+  -- validity window, valid_from inclusive and valid_until exclusive, NULL for no bound
+  valid_from TIMESTAMP DEFAULT NULL,
+  valid_until TIMESTAMP DEFAULT NULL,
+  -- comma separated normalized SKUs and categories the coupon is limited to, NULL for the whole basket
+  skus VARCHAR(4000) DEFAULT NULL,
+  categories VARCHAR(4000) DEFAULT NULL,
+  -- set by the database on every insert and update, the coupon snapshot reads the rows changed since its last refresh
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  CONSTRAINT ck_coupons_code_normalized CHECK (code = LOWER(TRIM(code))),
+  CONSTRAINT ck_coupons_validity CHECK (valid_from IS NULL OR valid_until IS NULL OR valid_from < valid_until)
+);
+
+CREATE UNIQUE INDEX ux_coupons_code ON coupons (code);
+CREATE INDEX ix_coupons_updated_at ON coupons (updated_at);
+-- the eligibility query reads the coupons by minimum basket value when the snapshot is disabled
+CREATE INDEX ix_coupons_min_basket_value ON coupons (min_basket_value);
+-- the purge reads the long expired coupons in chunks by end of validity
+CREATE INDEX ix_coupons_valid_until ON coupons (valid_until);
+
+-- coupons moved out of coupons by the purge once they are expired longer than the retention,
+-- with the redemptions counted until then
+CREATE TABLE coupons_archive (
+  id BIGINT PRIMARY KEY,
+  code VARCHAR(250) NOT NULL,
+  discount NUMBER(10,2) NOT NULL,
+  min_basket_value NUMBER(10,2) DEFAULT NULL,
+  exclusive BOOLEAN NOT NULL,
+  max_redemptions BIGINT DEFAULT NULL,
+  valid_from TIMESTAMP DEFAULT NULL,
+  valid_until TIMESTAMP NOT NULL,
+  skus VARCHAR(4000) DEFAULT NULL,
+  categories VARCHAR(4000) DEFAULT NULL,
+  redeemed BIGINT DEFAULT NULL,
+  archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX ix_coupons_archive_code ON coupons_archive (code);
+
+DROP TABLE IF EXISTS coupon_redemptions;
+
+-- redemptions per code, written behind by the redemption counters in periodic batches; kept apart from
+-- coupons so that redemptions do not touch coupons.updated_at and the snapshot refresh
+CREATE TABLE coupon_redemptions (
+  code VARCHAR(250) PRIMARY KEY,
+  redeemed BIGINT NOT NULL,
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+DROP TABLE IF EXISTS generation_jobs;
+
+-- code generation jobs, next_index and generated are committed with every written batch
+CREATE TABLE generation_jobs (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  prefix VARCHAR(250) NOT NULL,
+  alphabet VARCHAR(250) NOT NULL,
+  code_length INT NOT NULL,
+  code_count BIGINT NOT NULL,
+  discount NUMBER(10,2) NOT NULL,
+  min_basket_value NUMBER(10,2) NOT NULL,
+  seed BIGINT NOT NULL,
+  next_index BIGINT NOT NULL DEFAULT 0,
+  generated BIGINT NOT NULL DEFAULT 0,
+  status VARCHAR(20) NOT NULL,
+  message VARCHAR(500) DEFAULT NULL
+);
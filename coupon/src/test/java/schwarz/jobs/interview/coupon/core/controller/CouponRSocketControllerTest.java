@@ -0,0 +1,109 @@
+package schwarz.jobs.interview.coupon.core.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.util.Constants;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationResultDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponChangeDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:rsocket;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE", "coupon.r2dbc.url=r2dbc:h2:mem:///rsocket" })
+public class CouponRSocketControllerTest {
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	RSocketRequester.Builder requesterBuilder;
+
+	RSocketRequester requester;
+
+	@BeforeEach
+	void setup() {
+		requester = requesterBuilder
+				// closing the connection in the tear down is expected
+				.rsocketFactory(factory -> factory.errorConsumer(error -> { }))
+				.connectWebSocket(URI.create("ws://localhost:" + port + "/rsocket"))
+				.block(Duration.ofSeconds(10));
+	}
+
+	@AfterEach
+	void tearDown() {
+		requester.rsocket().dispose();
+	}
+
+	@Test
+	void test_apply_and_lookup_on_one_connection() {
+		final ApplicationResultDTO result = requester.route(Constants.ROUTE_APPLY)
+				.data(new ApplicationRequestDTO("TEST1", Basket.builder().value(BigDecimal.valueOf(60)).build()))
+				.retrieveMono(ApplicationResultDTO.class)
+				.block(Duration.ofSeconds(10));
+
+		assertThat(result.getOutcome()).isEqualTo(ApplicationOutcome.APPLIED);
+		assertThat(result.getBasket().getAppliedDiscount()).isEqualByComparingTo("10");
+
+		final List<CouponDTO> coupons = requester.route(Constants.ROUTE_LOOKUP)
+				.data(List.of("test2", "missing", "test1"))
+				.retrieveFlux(CouponDTO.class)
+				.collectList()
+				.block(Duration.ofSeconds(10));
+
+		assertThat(coupons).extracting(CouponDTO::getCode).containsExactly("test2", "test1");
+	}
+
+	@Test
+	void test_apply_stream_answers_every_request_in_order() {
+		final List<ApplicationResultDTO> results = requester.route(Constants.ROUTE_APPLY_STREAM)
+				.data(Flux.range(0, 100).map(i -> new ApplicationRequestDTO(i % 2 == 0 ? "test1" : "missing-" + i,
+						Basket.builder().value(BigDecimal.valueOf(100)).build())), ApplicationRequestDTO.class)
+				.retrieveFlux(ApplicationResultDTO.class)
+				.collectList()
+				.block(Duration.ofSeconds(10));
+
+		assertThat(results).hasSize(100);
+		assertThat(results.get(0).getOutcome()).isEqualTo(ApplicationOutcome.APPLIED);
+		assertThat(results.get(99).getOutcome()).isEqualTo(ApplicationOutcome.NOT_FOUND);
+	}
+
+	@Test
+	void test_change_stream_publishes_created_coupons() {
+		final WebClient http = WebClient.create("http://localhost:" + port + "/api/v1");
+		// creates the coupon until the change stream is subscribed on the server and publishes it
+		final Disposable creates = Flux.interval(Duration.ofMillis(100))
+				.concatMap(tick -> http.post().uri("/create")
+						.bodyValue(new CouponDTO(BigDecimal.ONE, "RSocket-1", BigDecimal.ZERO))
+						.exchange().flatMap(response -> response.releaseBody()))
+				.subscribe();
+		try {
+			final CouponChangeDTO change = requester.route(Constants.ROUTE_CHANGES)
+					.retrieveFlux(CouponChangeDTO.class)
+					.filter(candidate -> candidate.getCodes().contains("rsocket-1"))
+					.next()
+					.block(Duration.ofSeconds(10));
+
+			assertThat(change.getVersion()).isPositive();
+		} finally {
+			creates.dispose();
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package schwarz.jobs.interview.coupon.core.controller;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs the {@link CouponResourceWebTest} scenarios with all reads served from the compact coupon snapshot.
+ */
+@SpringBootTest(properties = { "coupon.snapshot.enabled=true", "coupon.snapshot.layout=compact",
+		"coupon.snapshot.refresh-interval=100ms", "spring.datasource.url=jdbc:h2:mem:compact_snapshot_mode;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE", "coupon.r2dbc.url=r2dbc:h2:mem:///compact_snapshot_mode" })
+public class CouponResourceCompactSnapshotModeWebTest extends CouponResourceSnapshotModeWebTest {
+
+}
@@ -0,0 +1,11 @@
+package schwarz.jobs.interview.coupon.core.controller;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs the {@link CouponResourceWebTest} scenarios against the blocking JPA execution mode.
+ */
+@SpringBootTest(properties = { "coupon.execution.mode=jpa", "spring.datasource.url=jdbc:h2:mem:jpa_mode;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE", "coupon.r2dbc.url=r2dbc:h2:mem:///jpa_mode" })
+public class CouponResourceJpaModeWebTest extends CouponResourceWebTest {
+
+}
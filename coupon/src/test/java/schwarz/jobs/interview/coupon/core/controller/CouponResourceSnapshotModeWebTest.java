@@ -0,0 +1,27 @@
+package schwarz.jobs.interview.coupon.core.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs the {@link CouponResourceWebTest} scenarios with all reads served from the coupon snapshot.
+ */
+@SpringBootTest(properties = { "coupon.snapshot.enabled=true", "coupon.snapshot.refresh-interval=100ms",
+		"spring.datasource.url=jdbc:h2:mem:snapshot_mode;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE", "coupon.r2dbc.url=r2dbc:h2:mem:///snapshot_mode" })
+public class CouponResourceSnapshotModeWebTest extends CouponResourceWebTest {
+
+	@Test
+	@Override
+	void test_prometheus_exposes_coupon_metrics() {
+		client.get().uri("/api/v1/coupons?couponCodes=test1").exchange();
+
+		client.get().uri("/actuator/prometheus")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(String.class)
+				.value(body -> assertThat(body).contains("coupon_get_seconds_bucket", "coupon_snapshot_coupons",
+						"coupon_snapshot_bytes").doesNotContain("coupon_store_seconds_count{operation=\"findByCodeIn\""));
+	}
+}
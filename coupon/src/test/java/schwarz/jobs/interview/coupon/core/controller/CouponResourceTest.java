@@ -1,27 +1,42 @@
 package schwarz.jobs.interview.coupon.core.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import schwarz.jobs.interview.coupon.configuration.CouponCatalogProperties;
 import schwarz.jobs.interview.coupon.core.domain.Coupon;
 import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
 import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.web.CouponJsonCache;
 import schwarz.jobs.interview.coupon.web.CouponResource;
 import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationResultDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
 
 @ExtendWith(SpringExtension.class)
@@ -32,6 +47,11 @@ public class CouponResourceTest {
 	
 	@Mock
 	CouponService couponService;
+
+	@Spy
+	CouponJsonCache couponJsonCache = new CouponJsonCache(
+			new CatalogVersion(new CouponCatalogProperties(), null, null), Jackson2ObjectMapperBuilder.json(),
+			new CouponCatalogProperties(), new SimpleMeterRegistry());
 	
 	Coupon coupon = null;
 	
@@ -48,8 +68,8 @@ public class CouponResourceTest {
 	void test_valid_input_create_coupon() {
 		CouponDTO request = new CouponDTO(BigDecimal.TEN, "1234", BigDecimal.valueOf(110));
 		
-		when(couponService.createCoupon(request)).thenReturn(coupon);
-		ResponseEntity<CouponDTO> response = controller.create(request);
+		when(couponService.createCoupon(request)).thenReturn(Mono.just(coupon));
+		ResponseEntity<CouponDTO> response = controller.create(request).block();
 		
 		assertEquals(HttpStatus.OK, response.getStatusCode());
 		assertEquals("1234", response.getBody().getCode());
@@ -64,11 +84,13 @@ public class CouponResourceTest {
 		        .build();
 		ApplicationRequestDTO request = new ApplicationRequestDTO("1234", basket);
 		
-		when(couponService.apply(basket, request.getCode())).thenReturn(Optional.of(basket));
+		when(couponService.applyWithOutcome(basket, request.getCode()))
+				.thenReturn(Mono.just(new ApplicationResultDTO("1234", ApplicationOutcome.APPLIED, basket)));
 		
-		ResponseEntity<Basket> response = controller.apply(request);
+		ResponseEntity<Object> response = controller.apply(request).block();
 		
 		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(basket, response.getBody());
 		
 	}
 	
@@ -80,25 +102,56 @@ public class CouponResourceTest {
 		        .build();
 		ApplicationRequestDTO request = new ApplicationRequestDTO("1234", basket);
 		
-		when(couponService.apply(basket, request.getCode())).thenReturn(Optional.of(basket));
+		ApplicationResultDTO result = new ApplicationResultDTO("1234", ApplicationOutcome.BELOW_MINIMUM, basket);
+		when(couponService.applyWithOutcome(basket, request.getCode())).thenReturn(Mono.just(result));
 		
-		ResponseEntity<Basket> response = controller.apply(request);
+		ResponseEntity<Object> response = controller.apply(request).block();
 		
 		assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+		assertEquals(result, response.getBody());
+		
+	}
+	
+	@Test
+	void test_unknown_code_apply() {
+		Basket basket = Basket.builder()
+		        .value(BigDecimal.TEN)
+		        .build();
+		ApplicationRequestDTO request = new ApplicationRequestDTO("1234", basket);
+		
+		when(couponService.applyWithOutcome(basket, request.getCode())).thenReturn(Mono.empty());
+		
+		ResponseEntity<Object> response = controller.apply(request).block();
+		
+		assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
 		
 	}
 	
 	@Test
-	void test_getCoupons() {
+	void test_getCoupons() throws Exception {
 		List<String> codes = Arrays.asList("1234");
 		
 		CouponDTO dto = new CouponDTO(BigDecimal.TEN, "1234", BigDecimal.valueOf(110));
 		List<CouponDTO> lst = Arrays.asList(dto);
-		when(couponService.getCoupons(codes)).thenReturn(lst);
+		when(couponService.getCoupons(codes)).thenReturn(Flux.fromIterable(lst));
 		
-		ResponseEntity<List<CouponDTO>> response = controller.getCoupons(codes);
+		ResponseEntity<byte[]> response = controller.getCoupons(codes, null, null).block();
 		assertEquals(HttpStatus.OK, response.getStatusCode());
-		assertEquals(1, response.getBody().size());
+		assertEquals(1, new ObjectMapper().readValue(response.getBody(), CouponDTO[].class).length);
+		
+	}
+	
+	@Test
+	void test_getCoupons_not_modified() {
+		List<String> codes = Arrays.asList("1234");
+		
+		when(couponService.getCoupons(codes)).thenReturn(Flux.just(new CouponDTO(BigDecimal.TEN, "1234", BigDecimal.valueOf(110))));
+		
+		String etag = controller.getCoupons(codes, null, null).block().getHeaders().getETag();
+		ResponseEntity<byte[]> response = controller.getCoupons(codes, null, etag).block();
+		
+		assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+		verify(couponService, times(1)).getCoupons(any());
 		
 	}
 }
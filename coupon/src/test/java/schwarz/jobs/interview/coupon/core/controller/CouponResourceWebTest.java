@@ -0,0 +1,626 @@
+package schwarz.jobs.interview.coupon.core.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+
+import schwarz.jobs.interview.coupon.core.domain.GenerationStatus;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.BasketLine;
+import schwarz.jobs.interview.coupon.core.services.redemption.RedemptionCounters;
+import schwarz.jobs.interview.coupon.core.services.validity.CouponPurge;
+import schwarz.jobs.interview.coupon.util.Constants;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationResultDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.GenerationJobDTO;
+import schwarz.jobs.interview.coupon.web.dto.GenerationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.MultiApplicationRequestDTO;
+
+/**
+ * The web scenarios, run again by the mode subclasses. Every test context gets a database of its own, since
+ * schema.sql recreates the tables on each context start while the cached contexts keep polling theirs. The
+ * databases stay open until the contexts are closed, which write their last redemptions on shutdown.
+ */
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:web;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE", "coupon.r2dbc.url=r2dbc:h2:mem:///web" })
+@AutoConfigureWebTestClient
+public class CouponResourceWebTest {
+
+	@Autowired
+	WebTestClient client;
+
+	@Autowired
+	RedemptionCounters redemptionCounters;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	CouponPurge couponPurge;
+
+	@Test
+	void test_create_and_apply_coupon() {
+		client.post().uri("/api/v1/create")
+				.bodyValue(new CouponDTO(BigDecimal.valueOf(5), "Web-5", BigDecimal.ONE))
+				.exchange()
+				.expectStatus().isOk();
+
+		client.post().uri("/api/v1/apply")
+				.bodyValue(new ApplicationRequestDTO("WEB-5", Basket.builder().value(BigDecimal.TEN).build()))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.appliedDiscount").isEqualTo(5.0)
+				.jsonPath("$.applicationSuccessful").isEqualTo(true);
+	}
+
+	@Test
+	void test_apply_reports_why_the_coupon_was_not_applied() {
+		client.post().uri("/api/v1/create")
+				.bodyValue(new CouponDTO(BigDecimal.valueOf(5), "minimum-50", BigDecimal.valueOf(50)))
+				.exchange()
+				.expectStatus().isOk();
+
+		client.post().uri("/api/v1/apply")
+				.bodyValue(new ApplicationRequestDTO("minimum-50", Basket.builder().value(BigDecimal.valueOf(49.99)).build()))
+				.exchange()
+				.expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+				.expectBody()
+				.jsonPath("$.code").isEqualTo("minimum-50")
+				.jsonPath("$.outcome").isEqualTo("BELOW_MINIMUM")
+				.jsonPath("$.basket.applicationSuccessful").isEqualTo(false);
+		client.post().uri("/api/v1/apply")
+				.bodyValue(new ApplicationRequestDTO("minimum-50", Basket.builder().value(BigDecimal.ZERO).build()))
+				.exchange()
+				.expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+				.expectBody()
+				.jsonPath("$.outcome").isEqualTo("EMPTY_BASKET");
+	}
+
+	@Test
+	void test_apply_unknown_coupon() {
+		client.post().uri("/api/v1/apply")
+				.bodyValue(new ApplicationRequestDTO("unknown", Basket.builder().value(BigDecimal.TEN).build()))
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	void test_apply_bulk() {
+		client.post().uri("/api/v1/apply/bulk")
+				.bodyValue(List.of(
+						new ApplicationRequestDTO("test1", Basket.builder().value(BigDecimal.valueOf(100)).build()),
+						new ApplicationRequestDTO("missing", Basket.builder().value(BigDecimal.valueOf(100)).build()),
+						new ApplicationRequestDTO("test2", Basket.builder().value(BigDecimal.valueOf(-5)).build())))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(3)
+				.jsonPath("$[0].outcome").isEqualTo("APPLIED")
+				.jsonPath("$[0].basket.appliedDiscount").isEqualTo(10.0)
+				.jsonPath("$[1].outcome").isEqualTo("NOT_FOUND")
+				.jsonPath("$[2].outcome").isEqualTo("INVALID");
+	}
+
+	@Test
+	void test_reject_basket_values_out_of_range_per_item() {
+		final BigDecimal huge = new BigDecimal("1e30");
+		client.post().uri("/api/v1/apply")
+				.bodyValue(new ApplicationRequestDTO("test1", Basket.builder().value(huge).build()))
+				.exchange()
+				.expectStatus().isBadRequest()
+				.expectBody()
+				.jsonPath("$.messages[0]").isEqualTo(Constants.BASKET_VALUE_OUT_OF_RANGE);
+
+		client.post().uri("/api/v1/apply/bulk")
+				.bodyValue(List.of(
+						new ApplicationRequestDTO("test1", Basket.builder().value(huge).build()),
+						new ApplicationRequestDTO("test1", Basket.builder().value(BigDecimal.valueOf(100)).build())))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$[0].outcome").isEqualTo("INVALID")
+				.jsonPath("$[1].outcome").isEqualTo("APPLIED");
+		client.post().uri("/api/v1/apply/multi")
+				.bodyValue(new MultiApplicationRequestDTO(List.of("test1"), Basket.builder().value(huge).build()))
+				.exchange()
+				.expectStatus().isBadRequest();
+		client.get().uri("/api/v1/coupons/eligible?basketValue=1e30")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void test_apply_ndjson_stream() {
+		client.post().uri("/api/v1/apply/bulk")
+				.contentType(Constants.APPLICATION_NDJSON)
+				.accept(Constants.APPLICATION_NDJSON)
+				.bodyValue("{\"code\":\"test1\",\"basket\":{\"value\":100}}\n"
+						+ "{\"code\":\"missing\",\"basket\":{\"value\":100}}\n")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(Constants.APPLICATION_NDJSON)
+				.expectBodyList(ApplicationResultDTO.class)
+				.value(results -> {
+					assertThat(results).extracting(ApplicationResultDTO::getOutcome)
+							.containsExactly(ApplicationOutcome.APPLIED, ApplicationOutcome.NOT_FOUND);
+				});
+	}
+
+	@Test
+	void test_get_seeded_coupons() {
+		client.get().uri("/api/v1/coupons?couponCodes=TEST1,test2,missing")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$[0].code").isEqualTo("test1")
+				.jsonPath("$[0].minBasketValue").isEqualTo(50.0);
+	}
+
+	@Test
+	void test_get_coupons_not_modified_until_a_coupon_is_written() {
+		final String etag = client.get().uri("/api/v1/coupons?couponCodes=test3,etag-1")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().exists(HttpHeaders.ETAG)
+				.expectBody().jsonPath("$.length()").isEqualTo(1)
+				.returnResult().getResponseHeaders().getETag();
+
+		client.get().uri("/api/v1/coupons?couponCodes=TEST3,etag-1")
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+				.exchange()
+				.expectStatus().isNotModified()
+				.expectHeader().valueEquals(HttpHeaders.ETAG, etag);
+		// other order, and codes whose set hashes are equal
+		client.get().uri("/api/v1/coupons?couponCodes=etag-1,test3")
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+				.exchange()
+				.expectStatus().isOk();
+		final String ad = client.get().uri("/api/v1/coupons?couponCodes=test3,a,d")
+				.exchange()
+				.expectStatus().isOk()
+				.returnResult(String.class).getResponseHeaders().getETag();
+		client.get().uri("/api/v1/coupons?couponCodes=test3,b,c")
+				.header(HttpHeaders.IF_NONE_MATCH, ad)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().value(HttpHeaders.ETAG, value -> assertThat(value).isNotEqualTo(ad));
+
+		client.post().uri("/api/v1/create")
+				.bodyValue(new CouponDTO(BigDecimal.ONE, "etag-1", BigDecimal.ZERO))
+				.exchange()
+				.expectStatus().isOk();
+
+		client.get().uri("/api/v1/coupons?couponCodes=test3,etag-1")
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().value(HttpHeaders.ETAG, value -> assertThat(value).isNotEqualTo(etag))
+				.expectBody().jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$[1].code").isEqualTo("etag-1");
+	}
+
+	@Test
+	void test_apply_and_get_coupons_in_smile() throws IOException {
+		final ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().modulesToInstall(new ParameterNamesModule()).build();
+
+		final byte[] basket = client.post().uri("/api/v1/apply")
+				.contentType(Constants.APPLICATION_SMILE)
+				.accept(Constants.APPLICATION_SMILE)
+				.bodyValue(smile.writeValueAsBytes(new ApplicationRequestDTO("test1", Basket.builder().value(BigDecimal.valueOf(60)).build())))
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(Constants.APPLICATION_SMILE)
+				.expectBody(byte[].class).returnResult().getResponseBody();
+		assertThat(smile.readValue(basket, Basket.class).getAppliedDiscount()).isEqualByComparingTo("10");
+
+		final byte[] coupons = client.get().uri("/api/v1/coupons?couponCodes=test2,missing,test1")
+				.accept(Constants.APPLICATION_SMILE)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(Constants.APPLICATION_SMILE)
+				.expectBody(byte[].class).returnResult().getResponseBody();
+		final CouponDTO[] found = smile.readValue(coupons, CouponDTO[].class);
+		assertThat(found).extracting(CouponDTO::getCode).containsExactly("test2", "test1");
+		assertThat(found[1].getMinBasketValue()).isEqualByComparingTo("50");
+	}
+
+	@Test
+	void test_get_eligible_coupons_and_reject_baskets_below_minimum() {
+		client.post().uri("/api/v1/create")
+				.bodyValue(new CouponDTO(BigDecimal.valueOf(5000), "eligible-a", BigDecimal.valueOf(99999)))
+				.exchange()
+				.expectStatus().isOk();
+		client.post().uri("/api/v1/create")
+				.bodyValue(new CouponDTO(BigDecimal.valueOf(4000), "eligible-b", BigDecimal.valueOf(99998)))
+				.exchange()
+				.expectStatus().isOk();
+
+		client.get().uri("/api/v1/coupons/eligible?basketValue=99999&bestFirst=true&limit=2")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$[0].code").isEqualTo("eligible-a")
+				.jsonPath("$[1].code").isEqualTo("eligible-b");
+		client.get().uri("/api/v1/coupons/eligible?basketValue=99998.99&bestFirst=true&limit=1")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$[0].code").isEqualTo("eligible-b");
+		client.get().uri("/api/v1/coupons/eligible?basketValue=-1")
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		client.post().uri("/api/v1/apply/bulk")
+				.bodyValue(List.of(new ApplicationRequestDTO("eligible-a", Basket.builder().value(BigDecimal.valueOf(99998)).build())))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$[0].outcome").isEqualTo("BELOW_MINIMUM");
+	}
+
+	@Test
+	void test_apply_multi_chooses_between_exclusive_coupon_and_stack() {
+		client.post().uri("/api/v1/create")
+				.bodyValue(new CouponDTO(BigDecimal.valueOf(30), "multi-solo", BigDecimal.ZERO, true, null, null, null, null, null))
+				.exchange()
+				.expectStatus().isOk();
+
+		client.post().uri("/api/v1/apply/multi")
+				.bodyValue(new MultiApplicationRequestDTO(List.of("test1", "test2", "multi-solo", "missing"),
+						Basket.builder().value(BigDecimal.valueOf(100)).build()))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.basket.appliedDiscount").isEqualTo(30.0)
+				.jsonPath("$.coupons[0].code").isEqualTo("multi-solo")
+				.jsonPath("$.coupons[1].outcome").isEqualTo("NOT_COMBINED")
+				.jsonPath("$.coupons[2].code").isEqualTo("test2")
+				.jsonPath("$.coupons[3].outcome").isEqualTo("NOT_FOUND");
+
+		client.post().uri("/api/v1/apply/multi")
+				.bodyValue(new MultiApplicationRequestDTO(List.of("test1", "test2", "test3", "multi-solo"),
+						Basket.builder().value(BigDecimal.valueOf(200)).build()))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.basket.appliedDiscount").isEqualTo(45.0)
+				.jsonPath("$.coupons[0].code").isEqualTo("test3")
+				.jsonPath("$.coupons[3].outcome").isEqualTo("NOT_COMBINED");
+	}
+
+	@Test
+	void test_single_use_coupon_is_redeemed_once_and_written_behind() {
+		client.post().uri("/api/v1/create")
+				.bodyValue(CouponDTO.builder().discount(BigDecimal.valueOf(5)).code("once").minBasketValue(BigDecimal.ZERO)
+						.maxRedemptions(1L).build())
+				.exchange()
+				.expectStatus().isOk();
+
+		client.post().uri("/api/v1/apply/bulk")
+				.bodyValue(List.of(
+						new ApplicationRequestDTO("once", Basket.builder().value(BigDecimal.TEN).build()),
+						new ApplicationRequestDTO("ONCE", Basket.builder().value(BigDecimal.TEN).build())))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBodyList(ApplicationResultDTO.class)
+				.value(results -> assertThat(results).extracting(ApplicationResultDTO::getOutcome)
+						.containsExactlyInAnyOrder(ApplicationOutcome.APPLIED, ApplicationOutcome.EXHAUSTED));
+
+		redemptionCounters.flush().block();
+		assertThat(jdbcTemplate.queryForObject("SELECT redeemed FROM coupon_redemptions WHERE code = 'once'", Long.class))
+				.isEqualTo(1);
+	}
+
+	@Test
+	void test_prometheus_exposes_coupon_metrics() {
+		client.get().uri("/api/v1/coupons?couponCodes=test1").exchange().expectStatus().isOk();
+
+		client.get().uri("/actuator/prometheus")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(String.class)
+				.value(body -> assertThat(body).contains("coupon_get_seconds_bucket", "coupon_get_codes_count",
+						"coupon_store_seconds_count{operation=\"findByCodeIn\""));
+	}
+
+	@Test
+	void test_import_csv_reports_rejected_rows() {
+		client.post().uri("/api/v1/import")
+				.contentType(MediaType.valueOf(Constants.TEXT_CSV_VALUE))
+				.bodyValue("code,discount,minBasketValue\n"
+						+ "IMPORT-1,5.00,10\n"
+						+ "import-2,abc,10\n"
+						+ " ,1,1\n"
+						+ "\n"
+						+ "import-3,2.50,0\n"
+						+ "import-4,-1,0\n")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.importedRows").isEqualTo(2)
+				.jsonPath("$.rejectedRows").isEqualTo(3)
+				.jsonPath("$.rejects[0].line").isEqualTo(3)
+				.jsonPath("$.rejects[1].reason").isEqualTo(Constants.INVALID_COUPON_CODE)
+				.jsonPath("$.rejects[2].line").isEqualTo(7)
+				.jsonPath("$.rejects[2].reason").isEqualTo(Constants.INVALID_DISCOUNT_VALUE);
+
+		client.get().uri("/api/v1/coupons?couponCodes=import-1,import-3")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$[0].code").isEqualTo("import-1");
+	}
+
+	@Test
+	void test_import_ndjson_overwrites_existing_coupon() {
+		client.post().uri("/api/v1/import")
+				.contentType(Constants.APPLICATION_NDJSON)
+				.bodyValue("{\"code\":\"Import-Json\",\"discount\":1,\"minBasketValue\":0}\n"
+						+ "{\"code\":\"import-json\",\"discount\":7,\"minBasketValue\":0}\n"
+						+ "{\"code\":\n")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.importedRows").isEqualTo(2)
+				.jsonPath("$.rejects[0].reason").isEqualTo(Constants.MALFORMED_IMPORT_ROW);
+
+		client.get().uri("/api/v1/coupons?couponCodes=import-json")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$[0].discount").isEqualTo(7.0);
+	}
+
+	@Test
+	void test_generate_unique_codes_skipping_existing_ones() throws InterruptedException {
+		// "gen-aaa" is the only code of the space that exists already and must not be overwritten
+		client.post().uri("/api/v1/create")
+				.bodyValue(new CouponDTO(BigDecimal.valueOf(99), "gen-aaa", BigDecimal.ONE))
+				.exchange()
+				.expectStatus().isOk();
+
+		GenerationJobDTO job = client.post().uri("/api/v1/generate")
+				.bodyValue(GenerationRequestDTO.builder().prefix("GEN-").alphabet("abc").length(3).count(27)
+						.discount(BigDecimal.ONE).minBasketValue(BigDecimal.TEN).build())
+				.exchange()
+				.expectStatus().isAccepted()
+				.expectBody(GenerationJobDTO.class)
+				.returnResult().getResponseBody();
+
+		GenerationJobDTO finished = job;
+		for (int attempt = 0; attempt < 200 && finished.getStatus() == GenerationStatus.RUNNING; attempt++) {
+			Thread.sleep(50);
+			finished = client.get().uri("/api/v1/generate/" + job.getId())
+					.exchange()
+					.expectStatus().isOk()
+					.expectBody(GenerationJobDTO.class)
+					.returnResult().getResponseBody();
+		}
+
+		assertThat(finished.getStatus()).isEqualTo(GenerationStatus.FAILED);
+		assertThat(finished.getGenerated()).isEqualTo(26);
+		assertThat(finished.getMessage()).isEqualTo(Constants.CODE_SPACE_EXHAUSTED);
+		client.get().uri("/api/v1/coupons?couponCodes=gen-aaa,gen-abc,gen-ccc")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(3)
+				.jsonPath("$[0].discount").isEqualTo(99.0)
+				.jsonPath("$[1].discount").isEqualTo(1.0);
+	}
+
+	@Test
+	void test_generate_rejects_invalid_alphabet() {
+		client.post().uri("/api/v1/generate")
+				.bodyValue(GenerationRequestDTO.builder().alphabet("aA").length(3).count(1)
+						.discount(BigDecimal.ONE).minBasketValue(BigDecimal.TEN).build())
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void test_coupon_applies_only_inside_its_validity_window() throws InterruptedException {
+		final Instant now = Instant.now();
+		client.post().uri("/api/v1/create")
+				.bodyValue(CouponDTO.builder().discount(BigDecimal.ONE).code("window-later").minBasketValue(BigDecimal.ZERO)
+						.validFrom(now.plus(Duration.ofHours(1))).build())
+				.exchange()
+				.expectStatus().isOk();
+		client.post().uri("/api/v1/create")
+				.bodyValue(CouponDTO.builder().discount(BigDecimal.ONE).code("window-ended").minBasketValue(BigDecimal.ZERO)
+						.validUntil(now.minus(Duration.ofMinutes(1))).build())
+				.exchange()
+				.expectStatus().isOk();
+		client.post().uri("/api/v1/create")
+				.bodyValue(CouponDTO.builder().discount(BigDecimal.ONE).code("window-soon").minBasketValue(BigDecimal.ZERO)
+						.validFrom(now.plus(Duration.ofMillis(1500))).validUntil(now.plus(Duration.ofHours(1))).build())
+				.exchange()
+				.expectStatus().isOk();
+		client.post().uri("/api/v1/create")
+				.bodyValue(CouponDTO.builder().discount(BigDecimal.ONE).code("window-bad").minBasketValue(BigDecimal.ZERO)
+						.validFrom(now).validUntil(now).build())
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		client.post().uri("/api/v1/apply/bulk")
+				.bodyValue(List.of(
+						new ApplicationRequestDTO("window-later", Basket.builder().value(BigDecimal.TEN).build()),
+						new ApplicationRequestDTO("window-ended", Basket.builder().value(BigDecimal.TEN).build()),
+						new ApplicationRequestDTO("window-soon", Basket.builder().value(BigDecimal.TEN).build())))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$[0].outcome").isEqualTo("NOT_STARTED")
+				.jsonPath("$[1].outcome").isEqualTo("EXPIRED")
+				.jsonPath("$[2].outcome").isEqualTo("NOT_STARTED");
+		client.get().uri("/api/v1/coupons?couponCodes=window-later,window-ended,window-soon")
+				.exchange()
+				.expectStatus().isNoContent();
+		client.get().uri("/api/v1/coupons/eligible?basketValue=1&limit=1000")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBodyList(CouponDTO.class)
+				.value(coupons -> assertThat(coupons).extracting(CouponDTO::getCode)
+						.doesNotContain("window-later", "window-ended", "window-soon"));
+
+		// the timer of the start of the window makes the coupon visible without a write
+		int status = 0;
+		for (int attempt = 0; attempt < 100 && status != 200; attempt++) {
+			Thread.sleep(50);
+			status = client.get().uri("/api/v1/coupons?couponCodes=window-later,window-ended,window-soon")
+					.exchange()
+					.expectBody(String.class)
+					.returnResult().getStatus().value();
+		}
+		assertThat(status).isEqualTo(200);
+		client.get().uri("/api/v1/coupons?couponCodes=window-later,window-ended,window-soon")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(1)
+				.jsonPath("$[0].code").isEqualTo("window-soon");
+		client.post().uri("/api/v1/apply")
+				.bodyValue(new ApplicationRequestDTO("window-soon", Basket.builder().value(BigDecimal.TEN).build()))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.applicationSuccessful").isEqualTo(true);
+	}
+
+	@Test
+	void test_purge_archives_coupons_expired_longer_than_the_retention() {
+		client.post().uri("/api/v1/create")
+				.bodyValue(CouponDTO.builder().discount(BigDecimal.ONE).code("purge-old").minBasketValue(BigDecimal.ZERO)
+						.validUntil(Instant.parse("2000-01-01T00:00:00Z")).build())
+				.exchange()
+				.expectStatus().isOk();
+
+		assertThat(couponPurge.purge().block()).isPositive();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupons WHERE code = 'purge-old'", Long.class))
+				.isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupons_archive WHERE code = 'purge-old'", Long.class))
+				.isPositive();
+		client.post().uri("/api/v1/apply")
+				.bodyValue(new ApplicationRequestDTO("purge-old", Basket.builder().value(BigDecimal.TEN).build()))
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	void test_scoped_coupon_applies_to_the_value_of_its_matching_lines() {
+		client.post().uri("/api/v1/create")
+				.bodyValue(CouponDTO.builder().discount(BigDecimal.valueOf(2)).code("scope-milk").minBasketValue(BigDecimal.valueOf(5))
+						.skus(Set.of("Milk-1")).build())
+				.exchange()
+				.expectStatus().isOk();
+		client.post().uri("/api/v1/create")
+				.bodyValue(CouponDTO.builder().discount(BigDecimal.valueOf(3)).code("scope-fruit").minBasketValue(BigDecimal.ONE)
+						.categories(Set.of("fruit")).build())
+				.exchange()
+				.expectStatus().isOk();
+		client.post().uri("/api/v1/create")
+				.bodyValue(CouponDTO.builder().discount(BigDecimal.TEN).code("scope-bread").minBasketValue(BigDecimal.ONE)
+						.skus(Set.of("bread-1")).build())
+				.exchange()
+				.expectStatus().isOk();
+		client.post().uri("/api/v1/create")
+				.bodyValue(CouponDTO.builder().discount(BigDecimal.ONE).code("scope-bad").minBasketValue(BigDecimal.ONE)
+						.skus(Set.of(" ")).build())
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		final Basket basket = Basket.builder().value(BigDecimal.valueOf(20)).lines(List.of(
+				new BasketLine("milk-1", "dairy", BigDecimal.valueOf(3), 2),
+				new BasketLine("bread-1", "bakery", BigDecimal.valueOf(14), 1))).build();
+		final Basket small = Basket.builder().value(BigDecimal.valueOf(20)).lines(List.of(
+				new BasketLine("milk-1", "dairy", BigDecimal.valueOf(3), 1),
+				new BasketLine("bread-1", "bakery", BigDecimal.valueOf(17), 1))).build();
+		client.post().uri("/api/v1/apply/bulk")
+				.bodyValue(List.of(
+						new ApplicationRequestDTO("scope-milk", basket),
+						new ApplicationRequestDTO("scope-fruit", basket),
+						new ApplicationRequestDTO("scope-milk", small),
+						new ApplicationRequestDTO("scope-milk", Basket.builder().value(BigDecimal.valueOf(20)).build())))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$[0].outcome").isEqualTo("APPLIED")
+				.jsonPath("$[0].basket.appliedDiscount").isEqualTo(2.0)
+				.jsonPath("$[1].outcome").isEqualTo("NOT_IN_SCOPE")
+				.jsonPath("$[2].outcome").isEqualTo("BELOW_MINIMUM")
+				.jsonPath("$[3].outcome").isEqualTo("NOT_IN_SCOPE");
+		// a scoped discount is capped at the value of the matching lines
+		client.post().uri("/api/v1/apply")
+				.bodyValue(new ApplicationRequestDTO("scope-bread", small))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.appliedDiscount").isEqualTo(10.0);
+		final List<BasketLine> cheapBread = List.of(
+				new BasketLine("bread-1", "bakery", new BigDecimal("1.50"), 2),
+				new BasketLine("milk-1", "dairy", BigDecimal.valueOf(3), 2));
+		client.post().uri("/api/v1/apply")
+				.bodyValue(new ApplicationRequestDTO("scope-bread", Basket.builder().value(BigDecimal.valueOf(20)).lines(cheapBread).build()))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.appliedDiscount").isEqualTo(3.0);
+		client.post().uri("/api/v1/apply/multi")
+				.bodyValue(new MultiApplicationRequestDTO(List.of("scope-milk", "scope-bread"),
+						Basket.builder().value(BigDecimal.valueOf(20)).lines(cheapBread).build()))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.basket.appliedDiscount").isEqualTo(5.0)
+				.jsonPath("$.coupons[0].code").isEqualTo("scope-bread")
+				.jsonPath("$.coupons[0].discount").isEqualTo(3.0)
+				.jsonPath("$.coupons[1].code").isEqualTo("scope-milk")
+				.jsonPath("$.coupons[1].discount").isEqualTo(2.0);
+
+		client.post().uri("/api/v1/coupons/eligible?limit=1000")
+				.bodyValue(basket)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBodyList(CouponDTO.class)
+				.value(coupons -> {
+					assertThat(coupons).extracting(CouponDTO::getCode).contains("scope-milk").doesNotContain("scope-fruit");
+					assertThat(coupons).filteredOn(coupon -> coupon.getCode().equals("scope-milk"))
+							.extracting(CouponDTO::getSkus).first().isEqualTo(Set.of("milk-1"));
+				});
+		client.get().uri("/api/v1/coupons/eligible?basketValue=20&limit=1000")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBodyList(CouponDTO.class)
+				.value(coupons -> assertThat(coupons).extracting(CouponDTO::getCode).doesNotContain("scope-milk", "scope-fruit"));
+		client.post().uri("/api/v1/coupons/eligible")
+				.bodyValue(Basket.builder().value(BigDecimal.TEN)
+						.lines(List.of(new BasketLine("milk-1", "dairy", BigDecimal.ONE, 0))).build())
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+}
@@ -1,31 +1,73 @@
 package schwarz.jobs.interview.coupon.core.services;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+import schwarz.jobs.interview.coupon.configuration.CouponCacheProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponCatalogProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponFilterProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponJournalProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponRedemptionProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponSnapshotProperties;
+import schwarz.jobs.interview.coupon.configuration.CouponStackingProperties;
 import schwarz.jobs.interview.coupon.core.domain.Coupon;
-import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.CouponStore;
+import schwarz.jobs.interview.coupon.core.repository.RedemptionRepository;
+import schwarz.jobs.interview.coupon.core.services.cache.CatalogVersion;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCodeFilter;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+import schwarz.jobs.interview.coupon.core.services.journal.ApplicationJournal;
+import schwarz.jobs.interview.coupon.core.services.metrics.CouponMetrics;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
 import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.redemption.RedemptionCounters;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponSnapshot;
+import schwarz.jobs.interview.coupon.core.services.scope.CouponScopeIndex;
+import schwarz.jobs.interview.coupon.core.services.validity.CouponValidity;
 import schwarz.jobs.interview.coupon.exception.InvalidBasketException;
 import schwarz.jobs.interview.coupon.util.Constants;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationResultDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponContributionDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.MultiApplicationResultDTO;
 
 @ExtendWith(SpringExtension.class)
 public class CouponServiceTest {
@@ -34,7 +76,48 @@ public class CouponServiceTest {
     private CouponService couponService;
 
     @Mock
-    private CouponRepository couponRepository;
+    private CouponStore couponStore;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private CouponCache couponCache = new CouponCache(new CouponCacheProperties(), meterRegistry);
+
+    @Spy
+    private CouponMetrics couponMetrics = new CouponMetrics(meterRegistry);
+
+    @Spy
+    private CouponCodeFilter couponCodeFilter = new CouponCodeFilter(new CouponFilterProperties(), null, null, meterRegistry);
+
+    @Spy
+    private CouponSnapshot couponSnapshot = new CouponSnapshot(new CouponSnapshotProperties(), null, null,
+    		Mockito.mock(CouponValidity.class), meterRegistry);
+
+    @Spy
+    private CouponStackingProperties stackingProperties = new CouponStackingProperties();
+
+    @Spy
+    private RedemptionCounters redemptionCounters = new RedemptionCounters(new CouponRedemptionProperties(),
+    		Mockito.mock(RedemptionRepository.class),
+    		Mockito.mock(BlockingExecutor.class, invocation -> Mono.fromCallable(invocation.getArgument(0))),
+    		meterRegistry);
+
+    @Spy
+    private ApplicationJournal applicationJournal = new ApplicationJournal(new CouponJournalProperties(), meterRegistry);
+
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion(new CouponCatalogProperties(), null, null);
+
+    @Mock
+    private CouponValidity couponValidity;
+
+    @Mock
+    private CouponScopeIndex couponScopeIndex;
+
+    @BeforeEach
+    void setup() {
+        when(couponStore.findByCode(any())).thenReturn(Mono.empty());
+    }
 
     @Test
     public void createCoupon() {
@@ -45,14 +128,34 @@ public class CouponServiceTest {
             .build();
 
         Coupon coupon = new Coupon(Long.MIN_VALUE,"12345", BigDecimal.TEN, BigDecimal.valueOf(50));
-        when(couponRepository.save(Mockito.any(Coupon.class))).thenReturn(coupon);
+        when(couponStore.save(Mockito.any(Coupon.class))).thenReturn(Mono.just(coupon));
         
-        Coupon savedCoupon = couponService.createCoupon(dto);
+        Coupon savedCoupon = couponService.createCoupon(dto).block();
 
-        verify(couponRepository, times(1)).save(any());
+        verify(couponStore, times(1)).save(any());
+        verify(catalogVersion, times(1)).bump(List.of("12345"));
         assertEquals(savedCoupon.getCode(), coupon.getCode());
     }
     
+    @Test
+    public void createCoupon_overwrites_existing_code() {
+        CouponDTO dto = CouponDTO.builder()
+            .code(" Summer10 ")
+            .discount(BigDecimal.TEN)
+            .minBasketValue(BigDecimal.valueOf(50))
+            .build();
+
+        when(couponStore.findByCode("summer10")).thenReturn(Mono.just(
+        		new Coupon(42L, "summer10", BigDecimal.ONE, BigDecimal.ONE)));
+        when(couponStore.save(Mockito.any(Coupon.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        Coupon savedCoupon = couponService.createCoupon(dto).block();
+
+        assertEquals(42L, savedCoupon.getId());
+        assertEquals("summer10", savedCoupon.getCode());
+        assertEquals(BigDecimal.TEN, savedCoupon.getDiscount());
+    }
+    
     @Test
     public void createCoupon_validation_failed() {
         CouponDTO dto = CouponDTO.builder()
@@ -61,10 +164,10 @@ public class CouponServiceTest {
             .minBasketValue(BigDecimal.valueOf(50))
             .build();
 
-        assertThatThrownBy(() -> {
-            couponService.createCoupon(dto);
-        }).isInstanceOf(IllegalArgumentException.class)
-            .hasMessage(Constants.INVALID_DISCOUNT_VALUE);
+        StepVerifier.create(couponService.createCoupon(dto))
+            .expectErrorSatisfies(error -> assertThat(error).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(Constants.INVALID_DISCOUNT_VALUE))
+            .verify();
     }
 
     @Test
@@ -72,54 +175,89 @@ public class CouponServiceTest {
 
         final Basket basket = createBasket(BigDecimal.valueOf(100));
 
-        when(couponRepository.findByCode("1111")).thenReturn(Optional.of(Coupon.builder()
+        when(couponStore.findByCode("1111")).thenReturn(Mono.just(Coupon.builder()
             .code("1111")
             .discount(BigDecimal.TEN)
             .minBasketValue(BigDecimal.valueOf(50))
             .build()));
 
-        Optional<Basket> optionalBasket = couponService.apply(basket, "1111");
-
-        assertThat(optionalBasket).hasValueSatisfying(b -> {
-            assertThat(b.getAppliedDiscount()).isEqualTo(BigDecimal.TEN);
-            assertThat(b.isApplicationSuccessful()).isTrue();
-        });
+        StepVerifier.create(couponService.apply(basket, "1111"))
+            .assertNext(b -> {
+                assertThat(b.getAppliedDiscount()).isEqualTo(new BigDecimal("10.00"));
+                assertThat(b.isApplicationSuccessful()).isTrue();
+            })
+            .verifyComplete();
     }
 
     @Test
     public void test_apply_coupon_method_false() {
     	 final Basket basket = createBasket(BigDecimal.valueOf(0));
 
-    	 when(couponRepository.findByCode("1111")).thenReturn(Optional.of(Coupon.builder()
+    	 when(couponStore.findByCode("1111")).thenReturn(Mono.just(Coupon.builder()
  	            .code("1111")
  	            .discount(BigDecimal.TEN)
  	            .minBasketValue(BigDecimal.valueOf(50))
  	            .build()));
  	 
-    	 Optional<Basket> optionalBasket = couponService.apply(basket, "1111");
-
-    	        assertThat(optionalBasket).hasValueSatisfying(b -> {
+    	 StepVerifier.create(couponService.apply(basket, "1111"))
+    	        .assertNext(b -> {
     	            assertThat(b).isEqualTo(basket);
     	            assertThat(b.isApplicationSuccessful()).isFalse();
-    	        });
+    	        })
+    	        .verifyComplete();
     }
     
     @Test
     public void test_apply_coupon_method_failure() {
     	final Basket basket = createBasket(BigDecimal.valueOf(-1));
     	
-    	 when(couponRepository.findByCode("1111")).thenReturn(Optional.of(Coupon.builder()
+    	 when(couponStore.findByCode("1111")).thenReturn(Mono.just(Coupon.builder()
     	            .code("1111")
     	            .discount(BigDecimal.TEN)
     	            .minBasketValue(BigDecimal.valueOf(50))
     	            .build()));
     	 
-            assertThatThrownBy(() -> {
-                couponService.apply(basket, "1111");
-            }).isInstanceOf(InvalidBasketException.class)
-                .hasMessage(Constants.INVALID_BASKET_VALUE);
+            StepVerifier.create(couponService.apply(basket, "1111"))
+                .expectErrorSatisfies(error -> assertThat(error).isInstanceOf(InvalidBasketException.class)
+                    .hasMessage(Constants.INVALID_BASKET_VALUE))
+                .verify();
     }
     
+    @Test
+    public void test_apply_coupon_below_minimum_basket_value() {
+    	final Basket basket = createBasket(BigDecimal.valueOf(49.99));
+
+    	when(couponStore.findByCode("1111")).thenReturn(Mono.just(Coupon.builder()
+    			.code("1111")
+    			.discount(BigDecimal.TEN)
+    			.minBasketValue(BigDecimal.valueOf(50))
+    			.build()));
+
+    	StepVerifier.create(couponService.apply(basket, "1111"))
+    	        .assertNext(b -> {
+    	            assertThat(b.getAppliedDiscount()).isNull();
+    	            assertThat(b.isApplicationSuccessful()).isFalse();
+    	        })
+    	        .verifyComplete();
+    	assertThat(meterRegistry.get("coupon.apply.outcome").tag("outcome", "below_minimum").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_get_eligible_coupons_from_the_store_without_snapshot() {
+    	when(couponStore.findEligible(eq(BigDecimal.valueOf(60)), any(), eq(2), eq(true))).thenReturn(Flux.just(
+    			new Coupon(1L, "best", BigDecimal.TEN, BigDecimal.valueOf(50)),
+    			new Coupon(2L, "second", BigDecimal.ONE, null)));
+
+    	StepVerifier.create(couponService.getEligibleCoupons(BigDecimal.valueOf(60), 2, true).map(CouponDTO::getCode))
+    			.expectNext("best", "second")
+    			.verifyComplete();
+    	StepVerifier.create(couponService.getEligibleCoupons(BigDecimal.valueOf(60), Constants.MAX_ELIGIBLE_COUPONS + 1, false))
+    			.expectErrorSatisfies(error -> assertThat(error).isInstanceOf(IllegalArgumentException.class)
+    					.hasMessage(Constants.INVALID_LIMIT))
+    			.verify();
+    	assertThat(meterRegistry.get(CouponMetrics.STORE).tag("operation", "findEligible").timer().count()).isEqualTo(1);
+    }
+
     @Test
     public void should_test_get_Coupons() {
 
@@ -129,37 +267,243 @@ public class CouponServiceTest {
 		 */
         List<String> codes = Arrays.asList("1111", "1234");
         
-      when(couponRepository.findByCode(any()))
-            .thenReturn(Optional.of(Coupon.builder()
-                .code("1111")
+      when(couponStore.findByCodeIn(any()))
+            .thenReturn(Flux.just(Coupon.builder()
+                .code("1234")
                 .discount(BigDecimal.TEN)
                 .minBasketValue(BigDecimal.valueOf(50))
-                .build()))
-            .thenReturn(Optional.of(Coupon.builder()
-                .code("1234")
+                .build(), Coupon.builder()
+                .code("1111")
                 .discount(BigDecimal.TEN)
                 .minBasketValue(BigDecimal.valueOf(50))
                 .build()));
 
-        List<CouponDTO> returnedCoupons = couponService.getCoupons(codes);
+        List<CouponDTO> returnedCoupons = couponService.getCoupons(codes).collectList().block();
 
         assertThat(returnedCoupons.get(0).getCode()).isEqualTo("1111");
 
         assertThat(returnedCoupons.get(1).getCode()).isEqualTo("1234");
+        verify(couponStore, never()).findByCode(any());
     }
     
     @Test
     public void should_test_get_Coupons_not_present() {
     	List<String> codes = Arrays.asList("999");
     	
-    	 when(couponRepository.findByCode(any()))
-         .thenReturn(Optional.empty());
+    	 when(couponStore.findByCodeIn(any()))
+         .thenReturn(Flux.empty());
 
-     List<CouponDTO> returnedCoupons = couponService.getCoupons(codes);
+     List<CouponDTO> returnedCoupons = couponService.getCoupons(codes).collectList().block();
      
      assertEquals(0, returnedCoupons.size());
     }
+
+    @Test
+    public void should_test_get_Coupons_in_chunks_without_duplicates() {
+    	List<String> codes = IntStream.range(0, Constants.MAX_IN_CLAUSE_PARAMETERS + 1)
+    			.mapToObj(i -> "code" + i).collect(Collectors.toList());
+    	List<String> requestedCodes = new ArrayList<>(codes);
+    	requestedCodes.add("CODE0");
+
+    	when(couponStore.findByCodeIn(any())).thenAnswer(invocation -> {
+    		Collection<String> chunk = invocation.getArgument(0);
+    		return Flux.fromIterable(chunk).map(code -> Coupon.builder()
+    				.code(code)
+    				.discount(BigDecimal.TEN)
+    				.minBasketValue(BigDecimal.valueOf(50))
+    				.build());
+    	});
+
+    	List<CouponDTO> returnedCoupons = couponService.getCoupons(requestedCodes).collectList().block();
+
+    	verify(couponStore, times(2)).findByCodeIn(any());
+    	assertThat(returnedCoupons).extracting(CouponDTO::getCode).containsExactlyElementsOf(codes);
+    }
+    
+    @Test
+    public void should_serve_repeated_lookups_from_cache() {
+    	when(couponStore.findByCode("1111")).thenReturn(Mono.just(Coupon.builder()
+	            .code("1111")
+	            .discount(BigDecimal.TEN)
+	            .minBasketValue(BigDecimal.valueOf(50))
+	            .build()));
+
+    	couponService.apply(createBasket(BigDecimal.valueOf(100)), "1111").block();
+    	couponService.apply(createBasket(BigDecimal.valueOf(100)), "1111").block();
+
+    	verify(couponStore, times(1)).findByCode("1111");
+    	assertEquals(1, couponService.getCacheStats().getHitCount());
+    	assertEquals(1, couponService.getCacheStats().getMissCount());
+    }
+
+    @Test
+    public void should_invalidate_cache_on_create() {
+    	when(couponStore.findByCode("abc")).thenReturn(Mono.just(Coupon.builder()
+	            .code("abc")
+	            .discount(BigDecimal.TEN)
+	            .minBasketValue(BigDecimal.valueOf(50))
+	            .build()));
+    	when(couponStore.save(Mockito.any(Coupon.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+    	couponService.apply(createBasket(BigDecimal.valueOf(100)), "ABC").block();
+    	couponService.createCoupon(CouponDTO.builder()
+    			.code("ABC")
+    			.discount(BigDecimal.ONE)
+    			.minBasketValue(BigDecimal.valueOf(50))
+    			.build()).block();
+    	couponService.apply(createBasket(BigDecimal.valueOf(100)), "abc").block();
+
+    	assertEquals(2, couponService.getCacheStats().getMissCount());
+    	assertEquals(0, couponService.getCacheStats().getHitCount());
+    }
     
+    @Test
+    public void should_apply_all_with_one_lookup_and_per_item_outcomes() {
+    	when(couponStore.findByCodeIn(any())).thenReturn(Flux.just(Coupon.builder()
+    			.code("1111")
+    			.discount(BigDecimal.TEN)
+    			.minBasketValue(BigDecimal.valueOf(50))
+    			.build()));
+
+    	List<ApplicationRequestDTO> requests = Arrays.asList(
+    			new ApplicationRequestDTO("1111", createBasket(BigDecimal.valueOf(100))),
+    			new ApplicationRequestDTO("9999", createBasket(BigDecimal.valueOf(100))),
+    			new ApplicationRequestDTO("1111", createBasket(BigDecimal.ZERO)),
+    			new ApplicationRequestDTO("1111", createBasket(BigDecimal.valueOf(-1))),
+    			new ApplicationRequestDTO(" ", createBasket(BigDecimal.TEN)),
+    			new ApplicationRequestDTO("1111", null));
+
+    	List<ApplicationResultDTO> results = couponService.applyAll(requests).collectList().block();
+
+    	assertThat(results).extracting(ApplicationResultDTO::getOutcome).containsExactly(
+    			ApplicationOutcome.APPLIED, ApplicationOutcome.NOT_FOUND, ApplicationOutcome.EMPTY_BASKET,
+    			ApplicationOutcome.INVALID, ApplicationOutcome.INVALID, ApplicationOutcome.INVALID);
+    	assertThat(results.get(0).getBasket().getAppliedDiscount()).isEqualTo(new BigDecimal("10.00"));
+    	verify(couponStore, times(1)).findByCodeIn(any());
+    	verify(couponStore, never()).findByCode(any());
+    	assertThat(meterRegistry.get("coupon.apply.outcome").tag("outcome", "invalid").counter().count()).isEqualTo(3);
+    	assertThat(meterRegistry.get("coupon.apply.outcome").tag("outcome", "applied").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_apply_the_best_combination_of_codes_with_one_lookup() {
+    	when(couponStore.findByCodeIn(any())).thenReturn(Flux.just(
+    			new Coupon(1L, "five", BigDecimal.valueOf(5), BigDecimal.ZERO),
+    			new Coupon(2L, "eight", BigDecimal.valueOf(8), BigDecimal.ZERO),
+    			new Coupon(3L, "two", BigDecimal.valueOf(2), BigDecimal.ZERO),
+    			new Coupon(4L, "large", BigDecimal.valueOf(50), BigDecimal.valueOf(100)),
+    			Coupon.builder().id(5L).code("solo").discount(BigDecimal.valueOf(12)).minBasketValue(BigDecimal.ZERO)
+    					.exclusive(true).build()));
+    	stackingProperties.setMaxCoupons(2);
+    	final Basket basket = createBasket(BigDecimal.valueOf(60));
+
+    	MultiApplicationResultDTO result = couponService.applyMulti(basket,
+    			Arrays.asList("Five", "eight", "two", "large", "solo", "missing", "five")).block();
+
+    	assertThat(result.getCoupons()).extracting(CouponContributionDTO::getCode)
+    			.containsExactly("eight", "five", "two", "large", "solo", "missing");
+    	assertThat(result.getCoupons()).extracting(CouponContributionDTO::getOutcome).containsExactly(
+    			ApplicationOutcome.APPLIED, ApplicationOutcome.APPLIED, ApplicationOutcome.NOT_COMBINED,
+    			ApplicationOutcome.BELOW_MINIMUM, ApplicationOutcome.NOT_COMBINED, ApplicationOutcome.NOT_FOUND);
+    	assertThat(result.getCoupons().get(1).getDiscount()).isEqualByComparingTo("5");
+    	assertThat(basket.getAppliedDiscount()).isEqualByComparingTo("13");
+    	assertThat(basket.isApplicationSuccessful()).isTrue();
+    	verify(couponStore, times(1)).findByCodeIn(any());
+    	verify(couponStore, never()).findByCode(any());
+    }
+
+    @Test
+    public void should_reject_unknown_codes_before_any_lookup() {
+    	couponCodeFilter.rebuild(Arrays.asList("1111", "2222"));
+
+    	StepVerifier.create(couponService.apply(createBasket(BigDecimal.TEN), "unknown")).verifyComplete();
+    	StepVerifier.create(couponService.getCoupons(Arrays.asList("Unknown", "other")).collectList())
+    			.assertNext(coupons -> assertThat(coupons).isEmpty())
+    			.verifyComplete();
+
+    	verify(couponStore, never()).findByCode(any());
+    	verify(couponStore, never()).findByCodeIn(any());
+    	assertThat(couponService.getCacheStats().getFilterRejections()).isEqualTo(3);
+    }
+
+    @Test
+    public void should_not_redeem_a_single_use_code_twice() {
+    	when(couponStore.findByCode("single")).thenReturn(Mono.just(Coupon.builder().code("single")
+    			.discount(BigDecimal.TEN).minBasketValue(BigDecimal.ZERO).maxRedemptions(1L).build()));
+
+    	StepVerifier.create(couponService.apply(createBasket(BigDecimal.valueOf(100)), "single"))
+    			.assertNext(basket -> assertThat(basket.getAppliedDiscount()).isEqualTo(new BigDecimal("10.00")))
+    			.verifyComplete();
+    	StepVerifier.create(couponService.applyMulti(createBasket(BigDecimal.valueOf(100)), Arrays.asList("single")))
+    			.assertNext(result -> assertThat(result.getCoupons()).extracting(CouponContributionDTO::getOutcome)
+    					.containsExactly(ApplicationOutcome.EXHAUSTED))
+    			.verifyComplete();
+
+    	assertThat(redemptionCounters.pending()).isEqualTo(1);
+    	assertThat(meterRegistry.get("coupon.apply.outcome").tag("outcome", "exhausted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_record_apply_latency_and_outcome() {
+    	StepVerifier.create(couponService.apply(createBasket(BigDecimal.TEN), "9999")).verifyComplete();
+
+    	assertThat(meterRegistry.get(CouponMetrics.APPLY).tag("result", "success").timer().count()).isEqualTo(1);
+    	assertThat(meterRegistry.get(CouponMetrics.STORE).tag("operation", "findByCode").timer().count()).isEqualTo(1);
+    	assertThat(meterRegistry.get("coupon.apply.outcome").tag("outcome", "not_found").counter().count()).isEqualTo(1);
+    	verify(applicationJournal).append("9999", 1000, 0, ApplicationOutcome.NOT_FOUND);
+    }
+    
+    @Test
+    public void should_apply_stream_incrementally_in_batches() {
+    	when(couponStore.findByCodeIn(any())).thenReturn(Flux.just(Coupon.builder()
+    			.code("1111")
+    			.discount(BigDecimal.TEN)
+    			.minBasketValue(BigDecimal.valueOf(50))
+    			.build()));
+    	TestPublisher<ApplicationRequestDTO> requests = TestPublisher.create();
+
+    	StepVerifier.create(couponService.applyStream(requests.flux()))
+    			.then(() -> IntStream.range(0, Constants.STREAM_BATCH_SIZE).forEach(i ->
+    					requests.next(new ApplicationRequestDTO("1111", createBasket(BigDecimal.valueOf(100))))))
+    			.expectNextCount(Constants.STREAM_BATCH_SIZE)
+    			.then(() -> requests.next(new ApplicationRequestDTO("9999", createBasket(BigDecimal.valueOf(100)))))
+    			.expectNoEvent(Duration.ofMillis(50))
+    			.then(requests::complete)
+    			.assertNext(result -> assertThat(result.getOutcome()).isEqualTo(ApplicationOutcome.NOT_FOUND))
+    			.verifyComplete();
+    	requests.assertMaxRequested(Constants.STREAM_BATCH_SIZE * 32L);
+    }
+    
+    @Test
+    public void should_share_one_load_between_concurrent_lookups_of_a_code() throws Exception {
+    	CompletableFuture<Coupon> query = new CompletableFuture<>();
+    	when(couponStore.findByCode("campaign")).thenReturn(Mono.fromFuture(query));
+    	int callers = 50;
+    	ExecutorService executor = Executors.newFixedThreadPool(callers);
+    	CountDownLatch waiting = new CountDownLatch(callers);
+    	try {
+    		List<Future<Basket>> baskets = IntStream.range(0, callers).mapToObj(i -> executor.submit(() -> {
+    			Mono<Basket> apply = couponService.apply(createBasket(BigDecimal.valueOf(100)),
+    					i % 2 == 0 ? "Campaign" : " campaign");
+    			waiting.countDown();
+    			return apply.block(Duration.ofSeconds(10));
+    		})).collect(Collectors.toList());
+    		waiting.await();
+    		Thread.sleep(200);
+    		query.complete(Coupon.builder().code("campaign").discount(BigDecimal.TEN).minBasketValue(BigDecimal.ZERO).build());
+
+    		for(Future<Basket> basket : baskets) {
+    			assertThat(basket.get(10, TimeUnit.SECONDS).getAppliedDiscount()).isEqualTo(new BigDecimal("10.00"));
+    		}
+    	} finally {
+    		executor.shutdownNow();
+    	}
+    	verify(couponStore, times(1)).findByCode("campaign");
+    	DistributionSummary loadCallers = meterRegistry.get("coupon.cache.load.callers").summary();
+    	assertThat(loadCallers.count()).isEqualTo(1);
+    	assertThat(loadCallers.totalAmount()).isEqualTo(callers);
+    }
+
     private Basket createBasket(BigDecimal value) {
     	return Basket.builder()
         .value(value)
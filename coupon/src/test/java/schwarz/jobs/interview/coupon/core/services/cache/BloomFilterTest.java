@@ -0,0 +1,28 @@
+package schwarz.jobs.interview.coupon.core.services.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class BloomFilterTest {
+
+	@Test
+	void should_contain_every_put_code_and_few_others() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01, Long.MAX_VALUE);
+		IntStream.range(0, 10_000).forEach(i -> filter.put("code-" + i));
+
+		assertThat(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("code-" + i))).isTrue();
+		long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("unknown-" + i)).count();
+		assertThat(falsePositives).isLessThan(2_000);
+		assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+	}
+
+	@Test
+	void should_stay_within_the_memory_budget() {
+		BloomFilter filter = new BloomFilter(10_000_000, 0.001, 8 * 1024 * 8);
+
+		assertThat(filter.bitSize()).isEqualTo(8 * 1024 * 8);
+	}
+}
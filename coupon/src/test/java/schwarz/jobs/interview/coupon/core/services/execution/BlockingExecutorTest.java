@@ -0,0 +1,90 @@
+package schwarz.jobs.interview.coupon.core.services.execution;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import schwarz.jobs.interview.coupon.configuration.ExecutionProperties;
+import schwarz.jobs.interview.coupon.exception.ServiceOverloadedException;
+
+public class BlockingExecutorTest {
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private BlockingExecutor blockingExecutor;
+
+	@BeforeEach
+	void setup() {
+		ExecutionProperties properties = new ExecutionProperties();
+		properties.setMaxConcurrency(2);
+		properties.setQueueCapacity(4);
+		meterRegistry = new SimpleMeterRegistry();
+		blockingExecutor = new BlockingExecutor(properties, null, meterRegistry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		blockingExecutor.destroy();
+	}
+
+	@Test
+	void should_run_task_off_the_calling_thread() {
+		Thread caller = Thread.currentThread();
+
+		StepVerifier.create(blockingExecutor.call(Thread::currentThread))
+				.assertNext(thread -> assertThat(thread).isNotSameAs(caller))
+				.verifyComplete();
+	}
+
+	@Test
+	void should_complete_empty_for_null_result() {
+		StepVerifier.create(blockingExecutor.call(() -> null)).verifyComplete();
+	}
+
+	@Test
+	void should_bound_concurrency_and_record_wait_time() {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+
+		Flux.range(0, 4).flatMap(i -> blockingExecutor.call(() -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			Thread.sleep(50);
+			return running.decrementAndGet();
+		})).blockLast(Duration.ofSeconds(5));
+
+		assertThat(maxRunning.get()).isEqualTo(2);
+		assertThat(blockingExecutor.getQueueDepth()).isZero();
+		assertThat(meterRegistry.get("coupon.blocking.wait").timer().count()).isEqualTo(4);
+	}
+
+	@Test
+	void should_reject_calls_when_queue_is_full() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Void> running = Flux.range(0, 2).flatMap(i -> blockingExecutor.call(() -> {
+			started.countDown();
+			return release.await(5, TimeUnit.SECONDS);
+		})).then().toFuture();
+		started.await(5, TimeUnit.SECONDS);
+		CompletableFuture<Void> queued = Flux.range(0, 4)
+				.flatMap(i -> blockingExecutor.call(() -> true)).then().toFuture();
+
+		assertThat(blockingExecutor.getQueueDepth()).isEqualTo(4);
+		StepVerifier.create(blockingExecutor.call(() -> true))
+				.expectError(ServiceOverloadedException.class)
+				.verify();
+		release.countDown();
+		CompletableFuture.allOf(running, queued).join();
+	}
+}
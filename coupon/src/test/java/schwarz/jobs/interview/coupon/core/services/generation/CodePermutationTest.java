@@ -0,0 +1,40 @@
+package schwarz.jobs.interview.coupon.core.services.generation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+public class CodePermutationTest {
+
+	@Test
+	void should_map_every_index_to_a_distinct_code_in_the_space() {
+		for (long size : new long[] { 1, 2, 3, 36, 1000, 46_656 }) {
+			CodePermutation permutation = new CodePermutation(size, 42L);
+
+			long[] codes = LongStream.range(0, size).map(permutation::apply).toArray();
+
+			assertThat(LongStream.of(codes).allMatch(code -> code >= 0 && code < size)).isTrue();
+			assertThat(LongStream.of(codes).distinct().count()).isEqualTo(size);
+		}
+	}
+
+	@Test
+	void should_depend_on_the_seed_only() {
+		CodePermutation permutation = new CodePermutation(CodePermutation.MAX_SIZE, 7L);
+
+		assertThat(new CodePermutation(CodePermutation.MAX_SIZE, 7L).apply(12345)).isEqualTo(permutation.apply(12345));
+		assertThat(new CodePermutation(CodePermutation.MAX_SIZE, 8L).apply(12345)).isNotEqualTo(permutation.apply(12345));
+		assertThat(permutation.apply(1)).isNotEqualTo(permutation.apply(0) + 1);
+	}
+
+	@Test
+	void should_reject_indices_outside_the_space() {
+		CodePermutation permutation = new CodePermutation(10, 1L);
+
+		assertThrows(IndexOutOfBoundsException.class, () -> permutation.apply(10));
+		assertThrows(IllegalArgumentException.class, () -> new CodePermutation(0, 1L));
+	}
+}
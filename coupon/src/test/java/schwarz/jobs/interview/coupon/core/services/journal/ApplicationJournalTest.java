@@ -0,0 +1,92 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import schwarz.jobs.interview.coupon.configuration.CouponJournalProperties;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationOutcome;
+
+public class ApplicationJournalTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void should_roll_segments_and_continue_after_a_restart() throws IOException {
+		ApplicationJournal journal = open();
+		for (int i = 0; i < 100; i++) {
+			journal.append("code-" + i, 10_000 + i, i % 2 == 0 ? 500 : 0,
+					i % 2 == 0 ? ApplicationOutcome.APPLIED : ApplicationOutcome.BELOW_MINIMUM);
+		}
+		journal.commit();
+		journal.destroy();
+
+		journal = open();
+		journal.append("after-restart", ApplicationJournal.NO_VALUE, 0, ApplicationOutcome.INVALID);
+		journal.destroy();
+
+		List<JournalEntry> entries = replay(Instant.EPOCH, Instant.now().plusSeconds(1));
+		assertThat(JournalSegment.list(directory)).hasSizeGreaterThan(1);
+		assertThat(entries).hasSize(101);
+		assertThat(entries.get(0)).isEqualTo(new JournalEntry(entries.get(0).getTimestamp(), "code-0", 10_000, 500,
+				ApplicationOutcome.APPLIED));
+		assertThat(entries.get(99).getOutcome()).isEqualTo(ApplicationOutcome.BELOW_MINIMUM);
+		assertThat(entries.get(100).getCode()).isEqualTo("after-restart");
+		assertThat(entries).extracting(JournalEntry::getTimestamp).isSorted();
+	}
+
+	@Test
+	void should_replay_a_time_range_and_stop_at_a_torn_record() throws IOException {
+		ApplicationJournal journal = open();
+		journal.append("first", 100, 10, ApplicationOutcome.APPLIED);
+		journal.append("second", 200, 10, ApplicationOutcome.APPLIED);
+		journal.destroy();
+		List<JournalEntry> all = replay(Instant.EPOCH, Instant.now().plusSeconds(1));
+		assertThat(all).extracting(JournalEntry::getCode).containsExactly("first", "second");
+
+		assertThat(replay(Instant.ofEpochMilli(all.get(1).getTimestamp() + 1), Instant.now().plusSeconds(1))).isEmpty();
+
+		// corrupt the last byte of the second record, as a crash in the middle of writing it would
+		Path segment = JournalSegment.list(directory).get(0);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			int end = JournalSegment.HEADER + 2 * (8 + 3 * 8 + 1 + "APPLIED".length() + 2) + "first".length()
+					+ "second".length();
+			channel.write(ByteBuffer.wrap(new byte[] { 'X' }), end - 1);
+		}
+		assertThat(replay(Instant.EPOCH, Instant.now().plusSeconds(1))).extracting(JournalEntry::getCode)
+				.containsExactly("first");
+
+		journal = open();
+		journal.append("third", 300, 0, ApplicationOutcome.NOT_FOUND);
+		journal.destroy();
+		assertThat(replay(Instant.EPOCH, Instant.now().plusSeconds(1))).extracting(JournalEntry::getCode)
+				.containsExactly("first", "third");
+	}
+
+	private ApplicationJournal open() {
+		CouponJournalProperties properties = new CouponJournalProperties();
+		properties.setEnabled(true);
+		properties.setDirectory(directory.toString());
+		properties.setSegmentSize(DataSize.ofKilobytes(2));
+		return new ApplicationJournal(properties, new SimpleMeterRegistry());
+	}
+
+	private List<JournalEntry> replay(Instant from, Instant to) throws IOException {
+		List<JournalEntry> entries = new ArrayList<>();
+		ApplicationJournalReader.replay(directory, from, to, entries::add);
+		return entries;
+	}
+}
@@ -0,0 +1,76 @@
+package schwarz.jobs.interview.coupon.core.services.redemption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class RedemptionCounterTest {
+
+	@Test
+	void should_never_reserve_more_than_the_limit_under_contention() throws Exception {
+		RedemptionCounter counter = new RedemptionCounter(8);
+		counter.initialize(10_000, 1_000);
+		int threads = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Integer>> reserved = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				reserved.add(executor.submit(() -> {
+					start.await();
+					int count = 0;
+					for (int attempt = 0; attempt < 2_000; attempt++) {
+						if (counter.tryReserve()) {
+							counter.commit();
+							count++;
+						}
+					}
+					return count;
+				}));
+			}
+			start.countDown();
+			int total = 0;
+			for (Future<Integer> count : reserved) {
+				total += count.get(10, TimeUnit.SECONDS);
+			}
+			assertThat(total).isEqualTo(9_000);
+			assertThat(counter.pending()).isEqualTo(9_000);
+			assertThat(counter.tryReserve()).isFalse();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void should_return_released_units_and_keep_the_deficit_of_a_lowered_limit() {
+		RedemptionCounter counter = new RedemptionCounter(4);
+		counter.initialize(3, 0);
+		assertThat(counter.tryReserve()).isTrue();
+		assertThat(counter.tryReserve()).isTrue();
+		assertThat(counter.tryReserve()).isTrue();
+		assertThat(counter.tryReserve()).isFalse();
+
+		counter.release();
+		assertThat(counter.tryReserve()).isTrue();
+
+		// three units are taken, the new limit of one leaves a deficit of two
+		counter.resize(1);
+		counter.release();
+		counter.release();
+		assertThat(counter.tryReserve()).isFalse();
+		counter.release();
+		assertThat(counter.tryReserve()).isTrue();
+
+		counter.commit();
+		assertThat(counter.drainCommitted()).isEqualTo(1);
+		assertThat(counter.pending()).isZero();
+	}
+}
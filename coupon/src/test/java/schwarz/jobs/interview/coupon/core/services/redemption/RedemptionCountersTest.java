@@ -0,0 +1,117 @@
+package schwarz.jobs.interview.coupon.core.services.redemption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.configuration.CouponRedemptionProperties;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.repository.RedemptionRepository;
+import schwarz.jobs.interview.coupon.core.services.execution.BlockingExecutor;
+
+public class RedemptionCountersTest {
+
+	private final Map<String, Long> persisted = new HashMap<>();
+
+	private final RedemptionCounters counters = new RedemptionCounters(properties(), repository(persisted),
+			Mockito.mock(BlockingExecutor.class, invocation -> Mono.fromCallable(invocation.getArgument(0))),
+			new SimpleMeterRegistry());
+
+	@Test
+	void should_not_count_redemptions_while_the_coupon_has_no_limit() {
+		redeem(coupon(2L));
+		counters.flush().block();
+		assertThat(persisted).containsEntry("limited", 1L);
+
+		for (int i = 0; i < 5; i++) {
+			redeem(coupon(null));
+		}
+		counters.flush().block();
+		assertThat(persisted).containsEntry("limited", 1L);
+
+		final Coupon limitedAgain = coupon(2L);
+		counters.load(List.of(limitedAgain)).block();
+		assertThat(counters.reserve(limitedAgain)).isNotNull();
+		assertThat(counters.reserve(limitedAgain)).isNull();
+	}
+
+	@Test
+	void should_keep_the_limit_when_a_stale_coupon_has_none() {
+		redeem(coupon(2L));
+		assertThat(counters.reserve(coupon(null))).isSameAs(RedemptionCounters.Reservation.UNCOUNTED);
+
+		assertThat(counters.reserve(coupon(2L))).isNotNull();
+		assertThat(counters.reserve(coupon(2L))).isNull();
+	}
+
+	@Test
+	void should_drop_idle_counters_and_load_them_again_on_reserve() {
+		redeem(coupon(10L));
+		final RedemptionCounters.Reservation pending = counters.reserve(coupon(10L));
+		counters.flush().block();
+		pending.commit();
+		counters.flush().block();
+		assertThat(persisted).containsEntry("limited", 2L);
+
+		counters.flush().block();
+		assertThat(counters.size()).isEqualTo(1);
+		counters.flush().block();
+		assertThat(counters.size()).isZero();
+
+		// dropped after its load, the counter is loaded again by the reservation
+		final Coupon limited = coupon(3L);
+		assertThat(counters.reserve(limited)).isNotNull();
+		assertThat(counters.reserve(limited)).isNull();
+
+		counters.forget(List.of("limited"));
+		assertThat(counters.size()).isZero();
+		assertThat(counters.pending()).isZero();
+	}
+
+	private void redeem(final Coupon coupon) {
+		counters.load(List.of(coupon)).block();
+		counters.reserve(coupon).commit();
+	}
+
+	private static Coupon coupon(final Long maxRedemptions) {
+		return Coupon.builder().code("limited").discount(BigDecimal.ONE).minBasketValue(BigDecimal.ZERO)
+				.maxRedemptions(maxRedemptions).build();
+	}
+
+	private static CouponRedemptionProperties properties() {
+		final CouponRedemptionProperties properties = new CouponRedemptionProperties();
+		properties.setIdleTimeout(properties.getFlushInterval().multipliedBy(2));
+		return properties;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static RedemptionRepository repository(final Map<String, Long> persisted) {
+		final RedemptionRepository repository = Mockito.mock(RedemptionRepository.class);
+		when(repository.findRedeemed(any())).thenAnswer(invocation -> {
+			final Map<String, Long> found = new HashMap<>();
+			for (final String code : (Collection<String>) invocation.getArgument(0)) {
+				if (persisted.containsKey(code)) {
+					found.put(code, persisted.get(code));
+				}
+			}
+			return found;
+		});
+		doAnswer(invocation -> {
+			((Map<String, Long>) invocation.getArgument(0)).forEach((code, delta) -> persisted.merge(code, delta, Long::sum));
+			return null;
+		}).when(repository).addRedeemed(any());
+		return repository;
+	}
+}
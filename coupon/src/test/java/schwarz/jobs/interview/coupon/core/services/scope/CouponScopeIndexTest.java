@@ -0,0 +1,63 @@
+package schwarz.jobs.interview.coupon.core.services.scope;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import schwarz.jobs.interview.coupon.configuration.CouponScopeProperties;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.BasketLine;
+
+public class CouponScopeIndexTest {
+
+	private final CouponScopeIndex index = new CouponScopeIndex(new CouponScopeProperties(), null, null,
+			new SimpleMeterRegistry());
+
+	@Test
+	void should_find_coupons_by_sku_or_category_of_the_lines() {
+		index.put(Coupon.builder().code("milk").skus("milk-1,milk-2").build());
+		index.put(Coupon.builder().code("fruit").categories("fruit").build());
+		index.put(Coupon.builder().code("plain").build());
+
+		final BasketLines lines = BasketLines.of(basket(
+				new BasketLine(" MILK-2 ", "dairy", BigDecimal.valueOf(1.5), 2),
+				new BasketLine("apple-1", "Fruit", BigDecimal.valueOf(2), 3),
+				new BasketLine("bread-1", null, BigDecimal.TEN, 1)));
+
+		assertThat(index.candidates(lines)).containsExactlyInAnyOrder("milk", "fruit");
+		assertThat(index.size()).isEqualTo(2);
+		assertThat(lines.matchingValueCents(Coupon.builder().skus("milk-2").build())).isEqualTo(300);
+		assertThat(lines.matchingValueCents(Coupon.builder().skus("bread-1").categories("fruit").build())).isEqualTo(1600);
+	}
+
+	@Test
+	void should_unlink_a_coupon_from_its_previous_scope() {
+		index.put(Coupon.builder().code("moving").skus("milk-1").build());
+		index.put(Coupon.builder().code("moving").categories("dairy").build());
+
+		assertThat(index.candidates(BasketLines.of(basket(new BasketLine("milk-1", null, BigDecimal.ONE, 1))))).isEmpty();
+		assertThat(index.candidates(BasketLines.of(basket(new BasketLine(null, "dairy", BigDecimal.ONE, 1)))))
+				.containsExactly("moving");
+
+		index.put(Coupon.builder().code("moving").build());
+		assertThat(index.candidates(BasketLines.of(basket(new BasketLine(null, "dairy", BigDecimal.ONE, 1))))).isEmpty();
+		assertThat(index.size()).isZero();
+	}
+
+	@Test
+	void should_reject_lines_without_price_or_quantity() {
+		assertThat(BasketLines.of(Basket.builder().value(BigDecimal.ONE).build()).isEmpty()).isTrue();
+		assertThat(BasketLines.of(basket(new BasketLine("milk-1", null, null, 1)))).isNull();
+		assertThat(BasketLines.of(basket(new BasketLine("milk-1", null, BigDecimal.valueOf(-1), 1)))).isNull();
+		assertThat(BasketLines.of(basket(new BasketLine("milk-1", null, BigDecimal.ONE, 0)))).isNull();
+	}
+
+	private static Basket basket(final BasketLine... lines) {
+		return Basket.builder().value(BigDecimal.valueOf(100)).lines(List.of(lines)).build();
+	}
+}
@@ -0,0 +1,115 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+public class CompactCouponTableTest {
+
+	private static final long NOW = 1_700_000_000_000L;
+
+	@Test
+	void should_find_every_added_coupon_beyond_the_expected_size() {
+		CouponTable.Builder builder = CouponTable.builder(CouponTable.COMPACT, 10);
+		IntStream.range(0, 10_000).forEach(i -> builder.add(coupon((long) i, "code-" + i, "1.5", "10")));
+		CouponTable table = builder.build();
+
+		assertThat(table.size()).isEqualTo(10_000);
+		assertThat(IntStream.range(0, 10_000).allMatch(i -> table.get("code-" + i).getId() == i)).isTrue();
+		assertThat(table.get("code-10000")).isNull();
+		assertThat(table.get("code-1")).isEqualTo(coupon(1L, "code-1", "1.50", "10.00"));
+	}
+
+	@Test
+	void should_keep_non_ascii_codes_and_missing_values() {
+		CouponTable table = CouponTable.builder(CouponTable.COMPACT, 2)
+				.add(coupon(null, "größe", "2", null))
+				.add(coupon(7L, "grosse", "3", "0"))
+				.build();
+
+		assertThat(table.get("größe")).isEqualTo(coupon(null, "größe", "2.00", null));
+		assertThat(table.get("grosse").getId()).isEqualTo(7L);
+		assertThat(table.get("gröse")).isNull();
+	}
+
+	@Test
+	void should_replace_changed_coupons_in_a_new_table() {
+		CouponTable table = CouponTable.builder(CouponTable.COMPACT, 2)
+				.add(coupon(1L, "a", "1", "0"))
+				.add(coupon(2L, "b", "2", "0"))
+				.build();
+
+		CouponTable changed = table.with(List.of(coupon(2L, "b", "5", "0"), coupon(3L, "c", "3", "0")));
+
+		assertThat(changed.size()).isEqualTo(3);
+		assertThat(changed.get("b").getDiscount()).isEqualByComparingTo("5");
+		assertThat(changed.get("a").getDiscount()).isEqualByComparingTo("1");
+		assertThat(table.get("b").getDiscount()).isEqualByComparingTo("2");
+		assertThat(table.get("c")).isNull();
+		assertThat(changed.estimatedBytes()).isLessThan(CouponTable.builder(CouponTable.OBJECTS, 3)
+				.add(table.get("a")).add(changed.get("b")).add(changed.get("c")).build().estimatedBytes());
+	}
+
+	@Test
+	void should_select_the_eligible_coupons_of_both_layouts_after_changes() {
+		for (final String layout : List.of(CouponTable.COMPACT, CouponTable.OBJECTS)) {
+			CouponTable table = CouponTable.builder(layout, 4)
+					.add(coupon(1L, "a", "1", "50"))
+					.add(coupon(2L, "b", "9", "20"))
+					.add(coupon(3L, "c", "5", null))
+					.add(coupon(4L, "d", "7", "80"))
+					.build()
+					.with(List.of(coupon(1L, "a", "3", "10"), coupon(5L, "e", "8", "30")));
+
+			assertThat(table.eligible(3000, NOW, 10, false)).extracting(Coupon::getCode).containsExactly("c", "a", "b", "e");
+			assertThat(table.eligible(3000, NOW, 2, true)).extracting(Coupon::getCode).containsExactly("b", "e");
+			assertThat(table.eligible(2999, NOW, 10, true)).extracting(Coupon::getCode).containsExactly("b", "c", "a");
+			assertThat(table.eligible(Long.MAX_VALUE, NOW, 10, true)).extracting(Coupon::getCode)
+					.containsExactly("b", "e", "d", "c", "a");
+			assertThat(table.eligible(0, NOW, 10, false)).extracting(Coupon::getCode).containsExactly("c");
+		}
+	}
+
+	@Test
+	void should_skip_coupons_outside_their_window_and_drop_removed_codes() {
+		for (final String layout : List.of(CouponTable.OBJECTS, CouponTable.COMPACT)) {
+			CouponTable table = CouponTable.builder(layout, 4)
+					.add(coupon(1L, "open", "1", "10"))
+					.add(window(coupon(2L, "started", "2", "10"), NOW, NOW + 1))
+					.add(window(coupon(3L, "later", "3", "10"), NOW + 1, null))
+					.add(window(coupon(4L, "ended", "4", "10"), null, NOW))
+					.build();
+
+			assertThat(table.eligible(1000, NOW, 10, false)).extracting(Coupon::getCode)
+					.containsExactlyInAnyOrder("open", "started");
+			assertThat(table.eligible(1000, NOW + 1, 10, true)).extracting(Coupon::getCode).containsExactly("later", "open");
+			assertThat(table.get("ended").getValidUntil()).isEqualTo(Instant.ofEpochMilli(NOW));
+
+			CouponTable kept = table.without(List.of("ended", "unknown"));
+			assertThat(kept.size()).isEqualTo(3);
+			assertThat(kept.get("ended")).isNull();
+			assertThat(kept.get("later").getValidFrom()).isEqualTo(Instant.ofEpochMilli(NOW + 1));
+			assertThat(kept.eligible(1000, NOW + 1, 10, false)).hasSize(2);
+			assertThat(kept.estimatedBytes()).isLessThan(table.estimatedBytes());
+			assertThat(kept.without(List.of("unknown"))).isSameAs(kept);
+		}
+	}
+
+	private static Coupon window(final Coupon coupon, final Long validFrom, final Long validUntil) {
+		coupon.setValidFrom(validFrom == null ? null : Instant.ofEpochMilli(validFrom));
+		coupon.setValidUntil(validUntil == null ? null : Instant.ofEpochMilli(validUntil));
+		return coupon;
+	}
+
+	private static Coupon coupon(final Long id, final String code, final String discount, final String minBasketValue) {
+		return Coupon.builder().id(id).code(code).discount(new BigDecimal(discount))
+				.minBasketValue(minBasketValue == null ? null : new BigDecimal(minBasketValue)).build();
+	}
+}
@@ -0,0 +1,98 @@
+package schwarz.jobs.interview.coupon.core.services.stacking;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.stacking.CombinationSearch.Combination;
+
+public class CombinationSearchTest {
+
+	@Test
+	void should_stack_the_largest_discounts_and_cap_the_last_contribution() {
+		Combination combination = CombinationSearch.best(2500,
+				List.of(coupon("a", 500, false), coupon("b", 1500, false), coupon("c", 1000, false), coupon("d", 200, false)), 3);
+
+		assertThat(combination.getCoupons()).extracting(Coupon::getCode).containsExactly("b", "c");
+		assertThat(combination.getContributionCents(0)).isEqualTo(1500);
+		assertThat(combination.getContributionCents(1)).isEqualTo(1000);
+		assertThat(combination.getTotalCents()).isEqualTo(2500);
+
+		Combination capped = CombinationSearch.best(2000, List.of(coupon("a", 1500, false), coupon("b", 1000, false)), 3);
+		assertThat(capped.getContributionCents(1)).isEqualTo(500);
+		assertThat(capped.getTotalCents()).isEqualTo(2000);
+	}
+
+	@Test
+	void should_rank_and_contribute_by_the_discount_on_the_basket() {
+		// "a" is limited to lines worth 3.00 of the basket
+		Combination combination = CombinationSearch.best(10_000,
+				List.of(coupon("a", 1000, false), coupon("b", 600, false)),
+				coupon -> coupon.getCode().equals("a") ? Math.min(coupon.getDiscountCents(), 300) : coupon.getDiscountCents(), 2);
+
+		assertThat(combination.getCoupons()).extracting(Coupon::getCode).containsExactly("b", "a");
+		assertThat(combination.getContributionCents(1)).isEqualTo(300);
+		assertThat(combination.getTotalCents()).isEqualTo(900);
+	}
+
+	@Test
+	void should_use_an_exclusive_coupon_alone_only_if_it_is_better() {
+		List<Coupon> candidates = List.of(coupon("a", 800, false), coupon("b", 700, false), coupon("x", 1200, true));
+
+		assertThat(CombinationSearch.best(10_000, candidates, 3).getCoupons()).extracting(Coupon::getCode)
+				.containsExactly("a", "b");
+		assertThat(CombinationSearch.best(10_000, candidates, 1).getCoupons()).extracting(Coupon::getCode)
+				.containsExactly("x");
+		assertThat(CombinationSearch.best(1000, candidates, 3).getCoupons()).extracting(Coupon::getCode)
+				.containsExactly("x");
+		assertThat(CombinationSearch.best(10_000, List.of(), 3).getCoupons()).isEmpty();
+	}
+
+	@Test
+	void should_find_the_same_total_as_trying_every_subset() {
+		Random random = new Random(7);
+		for (int round = 0; round < 500; round++) {
+			List<Coupon> candidates = new ArrayList<>();
+			for (int i = 0, n = random.nextInt(12); i < n; i++) {
+				candidates.add(coupon("c" + i, random.nextInt(3000), random.nextInt(5) == 0));
+			}
+			long basketValue = random.nextInt(8000);
+			int maxCoupons = 1 + random.nextInt(4);
+
+			Combination combination = CombinationSearch.best(basketValue, candidates, maxCoupons);
+
+			long best = 0;
+			int fewest = 0;
+			for (int subset = 1; subset < 1 << candidates.size(); subset++) {
+				long total = 0;
+				int exclusive = 0;
+				for (int i = 0; i < candidates.size(); i++) {
+					if ((subset & 1 << i) != 0) {
+						total += candidates.get(i).getDiscountCents();
+						exclusive += candidates.get(i).isExclusive() ? 1 : 0;
+					}
+				}
+				int count = Integer.bitCount(subset);
+				total = Math.min(total, basketValue);
+				if (count <= maxCoupons && (exclusive == 0 || count == 1)
+						&& (total > best || (total == best && total > 0 && count < fewest))) {
+					best = total;
+					fewest = count;
+				}
+			}
+			assertThat(combination.getTotalCents()).isEqualTo(best);
+			assertThat(combination.getCoupons()).hasSize(fewest);
+		}
+	}
+
+	private static Coupon coupon(final String code, final long discountCents, final boolean exclusive) {
+		return Coupon.builder().code(code).discount(BigDecimal.valueOf(discountCents, 2)).minBasketValue(BigDecimal.ZERO)
+				.exclusive(exclusive).build();
+	}
+}
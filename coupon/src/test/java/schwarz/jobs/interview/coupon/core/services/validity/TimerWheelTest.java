@@ -0,0 +1,61 @@
+package schwarz.jobs.interview.coupon.core.services.validity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TimerWheelTest {
+
+	@Test
+	void should_fire_every_timer_in_the_first_advance_past_its_deadline() {
+		final long start = 1_000_000;
+		final TimerWheel<Long> wheel = new TimerWheel<>(10, start);
+		final Random random = new Random(42);
+		final List<Long> deadlines = new ArrayList<>();
+		for (int i = 0; i < 2_000; i++) {
+			// spread over the first four levels
+			final long deadline = start + (long) Math.pow(2, random.nextDouble() * 24);
+			deadlines.add(deadline);
+			wheel.schedule(deadline, deadline);
+		}
+		assertThat(wheel.size()).isEqualTo(2_000);
+
+		final List<Long> fired = new ArrayList<>();
+		long now = start;
+		while (wheel.size() > 0) {
+			final long previous = now;
+			now += 1 + random.nextInt(5_000);
+			final long advancedTo = now;
+			wheel.advance(now, deadline -> {
+				// due at the start of the first tick at or after the deadline
+				final long tickStart = (deadline + 9) / 10 * 10;
+				assertThat(tickStart).isGreaterThan(previous).isLessThanOrEqualTo(advancedTo);
+				fired.add(deadline);
+			});
+		}
+		assertThat(fired).containsExactlyInAnyOrderElementsOf(deadlines);
+	}
+
+	@Test
+	void should_round_deadlines_up_to_the_next_tick_and_fire_past_ones_with_the_next_tick() {
+		final TimerWheel<String> wheel = new TimerWheel<>(100, 1_000);
+		final List<String> fired = new ArrayList<>();
+		wheel.schedule(500, "past");
+		wheel.schedule(1_150, "between");
+		wheel.schedule(1_200, "exact");
+
+		wheel.advance(1_099, fired::add);
+		assertThat(fired).isEmpty();
+		wheel.advance(1_100, fired::add);
+		assertThat(fired).containsExactly("past");
+		wheel.advance(1_199, fired::add);
+		assertThat(fired).containsExactly("past");
+		wheel.advance(1_200, fired::add);
+		assertThat(fired).containsExactly("past", "between", "exact");
+		assertThat(wheel.size()).isZero();
+	}
+}
@@ -0,0 +1,95 @@
+package schwarz.jobs.interview.coupon.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+
+/**
+ * Measures the throughput of the apply and coupons endpoints at a fixed concurrency.
+ * <p>
+ * Half of the requests use unknown codes, so they are never served from the coupon cache
+ * and always reach the persistence layer. Run with {@code mvn test -Pload-test}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CouponLoadTest {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponLoadTest.class);
+
+	private static final int COUPONS = 500;
+	private static final int REQUESTS = 20_000;
+	private static final int CONCURRENCY = 64;
+
+	@LocalServerPort
+	private int port;
+
+	private WebClient client;
+
+	@BeforeEach
+	void setup() {
+		client = WebClient.create("http://localhost:" + port + "/api/v1");
+		Flux.range(0, COUPONS)
+				.flatMap(i -> client.post().uri("/create")
+						.bodyValue(new CouponDTO(BigDecimal.TEN, "load-" + i, BigDecimal.ONE))
+						.exchange().flatMap(response -> response.releaseBody()), CONCURRENCY)
+				.blockLast(Duration.ofMinutes(1));
+	}
+
+	@Test
+	void apply_throughput_at_fixed_concurrency() {
+		final double throughput = measure("apply", i -> client.post().uri("/apply")
+				.bodyValue(new ApplicationRequestDTO(code(i), Basket.builder().value(BigDecimal.valueOf(100)).build()))
+				.exchange().flatMap(response -> response.releaseBody()));
+
+		assertThat(throughput).isPositive();
+	}
+
+	@Test
+	void coupons_throughput_at_fixed_concurrency() {
+		final double throughput = measure("coupons", i -> client.get()
+				.uri(uri -> uri.path("/coupons").queryParam("couponCodes", code(i), code(i + 1), code(i + 2)).build())
+				.exchange().flatMap(response -> response.releaseBody()));
+
+		assertThat(throughput).isPositive();
+	}
+
+	private double measure(final String name,
+			final java.util.function.Function<Integer, reactor.core.publisher.Mono<Void>> request) {
+		// warm up the JIT and the connection pool before measuring
+		Flux.range(0, REQUESTS / 10).flatMap(request::apply, CONCURRENCY).blockLast(Duration.ofMinutes(1));
+
+		final AtomicLong completed = new AtomicLong();
+		final long start = System.nanoTime();
+		Flux.range(0, REQUESTS).flatMap(request::apply, CONCURRENCY)
+				.doOnNext(ignored -> completed.incrementAndGet())
+				.then().block(Duration.ofMinutes(5));
+		final double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+		final double throughput = REQUESTS / seconds;
+		log.info("{}: {} requests at concurrency {} in {} s = {} req/s", name, REQUESTS, CONCURRENCY,
+				String.format("%.2f", seconds), String.format("%.0f", throughput));
+		return throughput;
+	}
+
+	private static String code(final int i) {
+		return i % 2 == 0 ? "load-" + (i % COUPONS) : "unknown-" + i;
+	}
+}
@@ -0,0 +1,138 @@
+package schwarz.jobs.interview.coupon.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.util.Constants;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationResultDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+
+/**
+ * Compares the latency of the HTTP endpoints and the RSocket routes at a fixed concurrency.
+ * <p>
+ * HTTP requests share a pool of connections, all RSocket requests are multiplexed over one WebSocket connection.
+ * Run with {@code mvn test -Pload-test}.
+ * </p>
+ *
+ * @author manik sharma
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class TransportLatencyTest {
+
+	private static final Logger log = LoggerFactory.getLogger(TransportLatencyTest.class);
+
+	private static final int COUPONS = 500;
+	private static final int REQUESTS = 20_000;
+	private static final int CONCURRENCY = 64;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private RSocketRequester.Builder requesterBuilder;
+
+	private WebClient client;
+
+	private RSocketRequester requester;
+
+	@BeforeEach
+	void setup() {
+		client = WebClient.create("http://localhost:" + port + "/api/v1");
+		requester = requesterBuilder.rsocketFactory(factory -> factory.errorConsumer(error -> { }))
+				.connectWebSocket(URI.create("ws://localhost:" + port + "/rsocket")).block(Duration.ofSeconds(10));
+		Flux.range(0, COUPONS)
+				.flatMap(i -> client.post().uri("/create")
+						.bodyValue(new CouponDTO(BigDecimal.TEN, "latency-" + i, BigDecimal.ONE))
+						.exchange().flatMap(response -> response.releaseBody()), CONCURRENCY)
+				.blockLast(Duration.ofMinutes(1));
+	}
+
+	@AfterEach
+	void tearDown() {
+		requester.rsocket().dispose();
+	}
+
+	@Test
+	void apply_latency_http_and_rsocket() {
+		final long[] http = measure("apply over HTTP", i -> client.post().uri("/apply")
+				.bodyValue(request(i))
+				.exchange().flatMap(response -> response.releaseBody()));
+		final long[] rsocket = measure("apply over RSocket", i -> requester.route(Constants.ROUTE_APPLY)
+				.data(request(i))
+				.retrieveMono(ApplicationResultDTO.class).then());
+
+		assertThat(http[http.length - 1]).isPositive();
+		assertThat(rsocket[rsocket.length - 1]).isPositive();
+	}
+
+	@Test
+	void lookup_latency_http_and_rsocket() {
+		final long[] http = measure("lookup over HTTP", i -> client.get()
+				.uri(uri -> uri.path("/coupons").queryParam("couponCodes", code(i), code(i + 1), code(i + 2)).build())
+				.exchange().flatMap(response -> response.releaseBody()));
+		final long[] rsocket = measure("lookup over RSocket", i -> requester.route(Constants.ROUTE_LOOKUP)
+				.data(List.of(code(i), code(i + 1), code(i + 2)))
+				.retrieveFlux(CouponDTO.class).then());
+
+		assertThat(http[http.length - 1]).isPositive();
+		assertThat(rsocket[rsocket.length - 1]).isPositive();
+	}
+
+	/**
+	 * @return the sorted latencies of all requests in nanoseconds
+	 */
+	private long[] measure(final String name, final Function<Integer, Mono<Void>> request) {
+		// warm up the JIT and the connections before measuring
+		Flux.range(0, REQUESTS / 10).flatMap(request::apply, CONCURRENCY).blockLast(Duration.ofMinutes(1));
+
+		final long[] latencies = new long[REQUESTS];
+		final long start = System.nanoTime();
+		Flux.range(0, REQUESTS)
+				.flatMap(i -> Mono.defer(() -> {
+					final long sent = System.nanoTime();
+					return request.apply(i).doOnTerminate(() -> latencies[i] = System.nanoTime() - sent);
+				}), CONCURRENCY)
+				.then().block(Duration.ofMinutes(5));
+		final double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+		Arrays.sort(latencies);
+		log.info("{}: {} requests at concurrency {} = {} req/s, latency p50 {} ms, p99 {} ms, max {} ms", name,
+				REQUESTS, CONCURRENCY, String.format("%.0f", REQUESTS / seconds), millis(latencies, 0.50),
+				millis(latencies, 0.99), millis(latencies, 1.0));
+		return latencies;
+	}
+
+	private static String millis(final long[] sorted, final double percentile) {
+		return String.format("%.2f", sorted[(int) Math.min(sorted.length - 1, percentile * sorted.length)] / 1_000_000d);
+	}
+
+	private static ApplicationRequestDTO request(final int i) {
+		return new ApplicationRequestDTO(code(i), Basket.builder().value(BigDecimal.valueOf(100)).build());
+	}
+
+	private static String code(final int i) {
+		return i % 2 == 0 ? "latency-" + (i % COUPONS) : "unknown-" + i;
+	}
+}